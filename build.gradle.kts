@@ -10,14 +10,43 @@ repositories {
     jcenter()
 }
 
+// Gradle 5 has no toolchains, so the Java 21 layer of the library jar is compiled by the JDK given by -Pjava21Home
+// (or by the JAVA21_HOME environment variable). Without it, the layer is left out, and the library runs its UI events
+// on platform threads only.
+val java21Home = (findProperty("java21Home") ?: System.getenv("JAVA21_HOME")) as String?
+
+sourceSets {
+    // The annotation processor is compiled before the library, which uses it for its own controls. It does not depend
+    // on the library classes, and is packaged in its own jar (see the processorJar task).
+    create("processor")
+    
+    // The classes that replace their Java 8 versions on Java 21 and later. They are packaged in the
+    // META-INF/versions/21 directory of the library jar (see the jar task).
+    create("java21")
+    
+    // JMH benchmarks live in their own source set, so they are neither packaged in the library nor run as tests
+    create("jmh") {
+        compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+        runtimeClasspath += sourceSets["main"].output + sourceSets["main"].runtimeClasspath
+    }
+}
+
 dependencies {
     implementation("org.springframework:spring-web")
     implementation("org.springframework:spring-context")
     implementation("org.springframework:spring-webmvc")
+    implementation("org.springframework:spring-websocket")
+    implementation("com.fasterxml.jackson.core:jackson-databind")
     implementation("org.apache.tomcat.embed:tomcat-embed-core")
     
+    annotationProcessor(sourceSets["processor"].output)
+    testAnnotationProcessor(sourceSets["processor"].output)
+    
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.5.2")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.5.2")
+    
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.22")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.22")
 }
 
 java {
@@ -30,15 +59,78 @@ tasks {
         // Related issues:
         //   - Gradle: https://github.com/gradle/gradle/issues/2510
         //   - Eclipse: https://github.com/eclipse/buildship/issues/934
-        options.compilerArgs.addAll(arrayOf("--release", "8"))
+        if (name != "compileJava21Java") {
+            options.compilerArgs.addAll(arrayOf("--release", "8"))
+        }
+    }
+    
+    named<JavaCompile>("compileJava21Java") {
+        onlyIf { java21Home != null }
+        
+        options.isFork = true
+        options.forkOptions.javaHome = java21Home?.let { file(it) }
+        options.compilerArgs.addAll(arrayOf("--release", "21"))
     }
     
     // The bootJar task requires a main class, so we have to use the classic jar task to build the library.
+    // It is a multi-release jar: Java 21 and later load the classes of META-INF/versions/21 instead of the ones of
+    // the same name at the root.
     jar {
         enabled = true
+        
+        manifest {
+            attributes("Multi-Release" to "true")
+        }
+        
+        into("META-INF/versions/21") {
+            from(sourceSets["java21"].output)
+        }
+    }
+    
+    // The optional annotation processor for applications with custom controls.
+    // Usage: add the jar built by this task to the annotation processor path of the application.
+    val processorJar by registering(Jar::class) {
+        description = "Assembles a jar archive containing the GazeUI annotation processor."
+        group = "build"
+        
+        archiveClassifier.set("processor")
+        from(sourceSets["processor"].output)
+    }
+    
+    assemble {
+        dependsOn(processorJar)
     }
     
     test {
         useJUnitPlatform()
     }
+    
+    // Usage: gradle jmh [-PjmhIncludes=<regexp>]
+    // The GC profiler is always enabled because the allocation per operation (gc.alloc.rate.norm) is as important
+    // to us as the time per operation.
+    register<JavaExec>("jmh") {
+        description = "Runs the JMH benchmarks."
+        group = "verification"
+        
+        val resultsFile = file("$buildDir/reports/jmh/results.json")
+        
+        // The library jar instead of its classes directory, and the Java 21 JDK when there is one, so the benchmarks
+        // use the Java 21 layer of the library
+        classpath = files(jar) + sourceSets["jmh"].runtimeClasspath - sourceSets["main"].output
+        
+        if (java21Home != null) {
+            executable = "$java21Home/bin/java"
+        }
+        
+        main = "org.openjdk.jmh.Main"
+        args("-prof", "gc", "-rf", "json", "-rff", resultsFile)
+        
+        if (project.hasProperty("jmhIncludes")) {
+            args(project.property("jmhIncludes"))
+        }
+        
+        doFirst {
+            resultsFile.parentFile.mkdirs()
+        }
+    }
 }
\ No newline at end of file
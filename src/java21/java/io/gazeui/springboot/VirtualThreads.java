@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The Java 21 version of the class of the same name in src/main, packaged in the META-INF/versions/21 layer of the
+ * library jar. Both versions must have the same members.
+ */
+final class VirtualThreads {
+    
+    private VirtualThreads() {
+        // No instances allowed
+    }
+    
+    static boolean isSupported() {
+        return true;
+    }
+    
+    /**
+     * Creates an executor that runs each task in a new virtual thread.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        // Named threads, so the handlers of GazeUI can be told apart in the thread dumps
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gazeui-event-", 0).factory());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.gazeui.springboot.viewstate.InMemoryViewStateStore;
+import io.gazeui.ui.Button;
+import io.gazeui.ui.Label;
+import io.gazeui.ui.Window;
+
+/**
+ * A click on each of many sessions at the same time, with a handler that blocks (as a database query would), run on
+ * platform threads and on virtual threads (see {@link io.gazeui.springboot.annotation.EnableGazeUI#virtualThreads()}).
+ * The platform threads are a pool of the size of the Tomcat request pool, so the events beyond its size wait for a
+ * free thread.
+ * 
+ * The virtual threads require Java 21 or later and the Java 21 layer of the library (see the jmh task).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class EventExecutionBenchmarks {
+    
+    // The default maximum number of request threads of Tomcat
+    private static final int PLATFORM_THREAD_COUNT = 200;
+    
+    @Param({"platform", "virtual"})
+    public String threadKind;
+    
+    @Param({"100", "1000", "10000"})
+    public int sessionCount;
+    
+    @Param({"1", "10"})
+    public int blockingMillis;
+    
+    private ExecutorService executor;
+    private ViewState[] viewStates;
+    private String[] buttonIds;
+    
+    @Setup
+    public void setUp() {
+        if ("virtual".equals(this.threadKind)) {
+            this.executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        } else {
+            this.executor = Executors.newFixedThreadPool(PLATFORM_THREAD_COUNT);
+        }
+        
+        InMemoryViewStateStore viewStateStore = new InMemoryViewStateStore();
+        
+        this.viewStates = new ViewState[this.sessionCount];
+        this.buttonIds = new String[this.sessionCount];
+        
+        for (int i = 0; i < this.sessionCount; i++) {
+            BlockingWindow window = new BlockingWindow(this.blockingMillis);
+            
+            // One event per session needs no mailbox, so the benchmark locks the view state directly
+            this.viewStates[i] = new ViewState(viewStateStore, null);
+            this.viewStates[i].saveWindow(window);
+            this.buttonIds[i] = window.button.getClientId();
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+    
+    /**
+     * Each event is processed as the controller does with the clone change tracking: the view state is locked, and
+     * the changes made by the handler are rendered.
+     */
+    @Benchmark
+    public void processConcurrentUIEvents() {
+        CompletableFuture<?>[] completions = new CompletableFuture<?>[this.sessionCount];
+        
+        for (int i = 0; i < this.sessionCount; i++) {
+            ViewState viewState = this.viewStates[i];
+            String buttonId = this.buttonIds[i];
+            
+            completions[i] = CompletableFuture.supplyAsync(() -> processUIEvent(viewState, buttonId), this.executor);
+        }
+        
+        CompletableFuture.allOf(completions).join();
+    }
+    
+    private static String processUIEvent(ViewState viewState, String buttonId) {
+        Window viewStateWindow = viewState.loadWindow();
+        
+        viewState.getLock().lock();
+        
+        try {
+            Window previousViewStateWindow = viewStateWindow.clone();
+            
+            viewStateWindow.processUIEvent(buttonId, "Click");
+            viewState.saveWindow(viewStateWindow);
+            
+            return viewStateWindow.getRenderScript(previousViewStateWindow);
+        } finally {
+            viewState.getLock().unlock();
+        }
+    }
+    
+    private static class BlockingWindow extends Window {
+        
+        private final Label label = new Label("Label");
+        private final Button button = new Button("Button");
+        
+        public BlockingWindow(int blockingMillis) {
+            super("Benchmark");
+            
+            this.button.addOnClickHandler(e -> {
+                try {
+                    Thread.sleep(blockingMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                
+                this.label.setText("Changed".equals(this.label.getText()) ? "Label" : "Changed");
+            });
+            
+            this.getControls().add(this.label);
+            this.getControls().add(this.button);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot.viewstate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.gazeui.ui.Window;
+
+/**
+ * The load and the save of a window by each view state store, done by the controller on every UI event. The codec
+ * returns a prebuilt payload of the given size, so only the cost of the store itself is measured (the encoding and
+ * the decoding of the windows cost the same in every store).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+@State(Scope.Benchmark)
+public class ViewStateStoreBenchmarks {
+    
+    // Enough view states to spread the accesses, but not so many that the files fill the temporary directory
+    private static final int VIEW_STATE_COUNT = 1000;
+    
+    @Param({"inMemory", "offHeap", "file"})
+    public String storeKind;
+    
+    @Param({"1024", "65536"})
+    public int payloadSize;
+    
+    private Path directory;
+    private ViewStateStore store;
+    private Window window;
+    private String[] keys;
+    
+    @Setup
+    public void setUp() throws IOException {
+        this.window = new BenchmarkWindow();
+        
+        WindowCodec codec = new FixedPayloadCodec(new byte[this.payloadSize], this.window);
+        
+        if ("offHeap".equals(this.storeKind)) {
+            this.store = new OffHeapViewStateStore(codec, (long)this.payloadSize * VIEW_STATE_COUNT);
+        } else if ("file".equals(this.storeKind)) {
+            this.directory = Files.createTempDirectory("gazeui-view-states");
+            this.store = new FileViewStateStore(codec, this.directory);
+        } else {
+            this.store = new InMemoryViewStateStore();
+        }
+        
+        this.keys = new String[VIEW_STATE_COUNT];
+        
+        for (int i = 0; i < VIEW_STATE_COUNT; i++) {
+            this.keys[i] = "view-state-" + i;
+            this.store.save(this.keys[i], this.window);
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        if (this.directory != null) {
+            try (Stream<Path> files = Files.walk(this.directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                    try {
+                        Files.delete(file);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        }
+    }
+    
+    private String getRandomKey() {
+        return this.keys[ThreadLocalRandom.current().nextInt(VIEW_STATE_COUNT)];
+    }
+    
+    @Benchmark
+    public Window load() {
+        return this.store.load(this.getRandomKey());
+    }
+    
+    @Benchmark
+    public void save() {
+        this.store.save(this.getRandomKey(), this.window);
+    }
+    
+    private static final class FixedPayloadCodec implements WindowCodec {
+        
+        private final byte[] payload;
+        private final Window window;
+        
+        FixedPayloadCodec(byte[] payload, Window window) {
+            this.payload = payload;
+            this.window = window;
+        }
+        
+        @Override
+        public byte[] encode(Window window) {
+            return this.payload;
+        }
+        
+        @Override
+        public Window decode(byte[] bytes) {
+            return this.window;
+        }
+    }
+    
+    private static class BenchmarkWindow extends Window {
+        
+        public BenchmarkWindow() {
+            super("Benchmark");
+        }
+    }
+}
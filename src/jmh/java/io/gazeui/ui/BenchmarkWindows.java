@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui;
+
+import io.gazeui.ui.event.EventArgs;
+import io.gazeui.ui.event.EventHandler;
+
+final class BenchmarkWindows {
+    
+    // Big trees are split in containers of this size, so they have some depth instead of being a single huge list
+    static final int CONTAINER_SIZE = 100;
+    
+    // A single instance for all the buttons, so it can be registered in the codecs
+    static final EventHandler<EventArgs> CLICK_HANDLER = e -> { };
+    
+    private BenchmarkWindows() {
+        // No instances allowed
+    }
+    
+    /**
+     * Creates a window with the given number of labels and buttons (half of each), grouped in containers of
+     * {@value #CONTAINER_SIZE} controls. All buttons have a click handler.
+     */
+    static Window createWindow(int controlCount) {
+        Window window = new BenchmarkWindow();
+        ContainerControl container = null;
+        
+        for (int i = 0; i < controlCount; i++) {
+            if (i % CONTAINER_SIZE == 0) {
+                container = new ContainerControl();
+                window.getControls().add(container);
+            }
+            
+            if (i % 2 == 0) {
+                container.getControls().add(new Label("Label " + i));
+            } else {
+                Button button = new Button("Button " + i);
+                button.addOnClickHandler(CLICK_HANDLER);
+                
+                container.getControls().add(button);
+            }
+        }
+        
+        return window;
+    }
+    
+    /**
+     * Creates a container (without window) with the given number of labels as direct children.
+     */
+    static ContainerControl createFlatContainer(int childCount) {
+        ContainerControl container = new ContainerControl();
+        
+        for (int i = 0; i < childCount; i++) {
+            container.getControls().add(new Label("Label " + i));
+        }
+        
+        return container;
+    }
+    
+    /**
+     * Returns the label located deepest at the end of the window, the worst case for depth-first searches.
+     */
+    static Label getLastLabel(Window window) {
+        return getLastControl(window, Label.class);
+    }
+    
+    /**
+     * Returns the button located deepest at the end of the window, the worst case for depth-first searches.
+     */
+    static Button getLastButton(Window window) {
+        return getLastControl(window, Button.class);
+    }
+    
+    private static <T extends Control> T getLastControl(Window window, Class<T> controlClass) {
+        ContainerControl container = window;
+        
+        while (true) {
+            Control lastControl = container.getControls().get(container.getControls().size() - 1);
+            
+            if (lastControl instanceof ContainerControl) {
+                container = (ContainerControl)lastControl;
+            } else {
+                for (int i = container.getControls().size() - 1; i >= 0; i--) {
+                    if (controlClass.isInstance(container.getControls().get(i))) {
+                        return controlClass.cast(container.getControls().get(i));
+                    }
+                }
+                
+                throw new IllegalStateException("The window has no " + controlClass.getSimpleName());
+            }
+        }
+    }
+    
+    @SuppressWarnings("serial")
+    static class BenchmarkWindow extends Window {
+        
+        public BenchmarkWindow() {
+            super("Benchmark");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The update of a container with many direct children, both when only the children were updated and when children
+ * were added, removed and moved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ContainerControlBenchmarks {
+    
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int childCount;
+    
+    private ContainerControl sameStructureContainer;
+    private ContainerControl sameStructurePreviousContainer;
+    private ContainerControl changedStructureContainer;
+    private ContainerControl changedStructurePreviousContainer;
+    
+    @Setup
+    public void setUp() {
+        Window window = BenchmarkWindows.createWindow(0);
+        
+        this.sameStructureContainer = BenchmarkWindows.createFlatContainer(this.childCount);
+        window.getControls().add(this.sameStructureContainer);
+        this.sameStructurePreviousContainer = this.sameStructureContainer.clone();
+        
+        ((Label)this.sameStructureContainer.getControls().get(this.childCount / 2)).setText("Changed");
+        
+        this.changedStructureContainer = BenchmarkWindows.createFlatContainer(this.childCount);
+        window.getControls().add(this.changedStructureContainer);
+        this.changedStructurePreviousContainer = this.changedStructureContainer.clone();
+        
+        // One control moved, one removed and one added
+        List<Control> controls = this.changedStructureContainer.getControls();
+        controls.add(0, controls.get(controls.size() - 1));
+        controls.remove(controls.size() / 2);
+        controls.add(new Label("Added"));
+    }
+    
+    @Benchmark
+    public String sameStructureUpdate() {
+        return this.sameStructureContainer.getRenderScript(this.sameStructurePreviousContainer);
+    }
+    
+    @Benchmark
+    public String changedStructureUpdate() {
+        return this.changedStructureContainer.getRenderScript(this.changedStructurePreviousContainer);
+    }
+}
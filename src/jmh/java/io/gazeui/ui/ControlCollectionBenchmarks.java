@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ControlCollectionBenchmarks {
+    
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int controlCount;
+    
+    private List<Control> controls;
+    
+    @Setup
+    public void setUp() {
+        ContainerControl container = BenchmarkWindows.createFlatContainer(this.controlCount);
+        BenchmarkWindows.createWindow(0).getControls().add(container);
+        
+        this.controls = container.getControls();
+    }
+    
+    @Benchmark
+    public ContainerControl add() {
+        // The container is added to the window first, so every add also generates the client ID of the control
+        ContainerControl container = new ContainerControl();
+        BenchmarkWindows.createWindow(0).getControls().add(container);
+        
+        for (int i = 0; i < this.controlCount; i++) {
+            container.getControls().add(new Label());
+        }
+        
+        return container;
+    }
+    
+    @Benchmark
+    public List<Control> removeFirstAndAppend() {
+        // Adding the control back keeps the collection size stable between invocations
+        Control control = this.controls.remove(0);
+        this.controls.add(control);
+        
+        return this.controls;
+    }
+    
+    @Benchmark
+    public List<Control> moveLastToFirst() {
+        this.controls.add(0, this.controls.get(this.controls.size() - 1));
+        
+        return this.controls;
+    }
+}
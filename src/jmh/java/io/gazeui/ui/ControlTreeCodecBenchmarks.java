@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The encoding and the decoding of a window by the {@link ControlTreeCodec}, against the Java serialization of the
+ * same window. The encoded bytes per control of both are printed by the setup, as they are not a time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ControlTreeCodecBenchmarks {
+    
+    @Param({"100", "1000", "10000"})
+    public int controlCount;
+    
+    private ControlTreeCodec codec;
+    private Window window;
+    private byte[] encodedWindow;
+    private byte[] serializedWindow;
+    
+    @Setup
+    public void setUp() throws IOException {
+        this.codec = new ControlTreeCodec()
+                .registerControlType(BenchmarkWindows.BenchmarkWindow.class, BenchmarkWindows.BenchmarkWindow::new)
+                .registerEventHandler("click", BenchmarkWindows.CLICK_HANDLER);
+        this.window = BenchmarkWindows.createWindow(this.controlCount);
+        this.encodedWindow = this.codec.encode(this.window);
+        this.serializedWindow = this.serialize();
+        
+        System.out.printf("%nBytes per control: binary codec %.1f, Java serialization %.1f%n",
+                (double)this.encodedWindow.length / this.controlCount,
+                (double)this.serializedWindow.length / this.controlCount);
+    }
+    
+    @Benchmark
+    public byte[] encode() {
+        return this.codec.encode(this.window);
+    }
+    
+    @Benchmark
+    public Window decode() {
+        return this.codec.decode(this.encodedWindow);
+    }
+    
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this.window);
+        }
+        
+        return bytes.toByteArray();
+    }
+    
+    @Benchmark
+    public Window deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(this.serializedWindow))) {
+            return (Window)in.readObject();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The operations made by the GazeUI controller on every request: the full render of a new window, the clone of the
+ * window before an event and the diff between the window before and after the event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class WindowBenchmarks {
+    
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int controlCount;
+    
+    private Window window;
+    private Window previousWindow;
+    private String lastLabelId;
+    private String lastButtonId;
+    private Window changeJournalWindow;
+    private Label changeJournalLabel;
+    private Window snapshotWindow;
+    private Label snapshotLabel;
+    
+    @Setup
+    public void setUp() {
+        this.window = BenchmarkWindows.createWindow(this.controlCount);
+        this.previousWindow = this.window.clone();
+        
+        // A typical event: a handler changing the text of a single label
+        BenchmarkWindows.getLastLabel(this.window).setText("Changed");
+        this.lastLabelId = BenchmarkWindows.getLastLabel(this.window).getClientId();
+        this.lastButtonId = BenchmarkWindows.getLastButton(this.window).getClientId();
+        
+        this.changeJournalWindow = BenchmarkWindows.createWindow(this.controlCount);
+        this.changeJournalLabel = BenchmarkWindows.getLastLabel(this.changeJournalWindow);
+        this.changeJournalWindow.startChangeJournal();
+        
+        this.snapshotWindow = BenchmarkWindows.createWindow(this.controlCount);
+        this.snapshotLabel = BenchmarkWindows.getLastLabel(this.snapshotWindow);
+        this.snapshotWindow.takeSnapshot();
+    }
+    
+    @Benchmark
+    public String createRenderScript() {
+        return this.window.getRenderScript(null);
+    }
+    
+    /**
+     * The same render of {@link #createRenderScript()}, streamed to an output that discards the script, as the
+     * response writer does after sending it. The difference in allocation is the cost of building the string.
+     * 
+     * What is left (gc.alloc.rate.norm divided by controlCount) is the allocation per rendered control, which should
+     * be close to zero: labels and buttons are written in fragments, and only the containers create a string.
+     */
+    @Benchmark
+    public void writeCreateRenderScript() throws IOException {
+        this.window.writeRenderScript(null, DiscardingAppendable.INSTANCE);
+    }
+    
+    /**
+     * The same render of {@link #writeCreateRenderScript()}, in the opcodes render format. Each operation is written
+     * as a few small operands, instead of the statements that the client would parse and run.
+     */
+    @Benchmark
+    public void writeCreateOpcodes() throws IOException {
+        RenderWriter writer = RenderWriter.forOpcodes(DiscardingAppendable.INSTANCE);
+        
+        this.window.writeRenderScript(null, writer);
+        writer.finish();
+    }
+    
+    @Benchmark
+    public String updateRenderScript() {
+        return this.window.getRenderScript(this.previousWindow);
+    }
+    
+    /**
+     * The search for the target of an event, using the last control of the window as the worst case of a tree walk.
+     */
+    @Benchmark
+    public Control findControlById() {
+        return this.window.findControlById(this.lastLabelId);
+    }
+    
+    /**
+     * A click on the last button of the window: the search for the target and the dispatch to its event method.
+     */
+    @Benchmark
+    public void processUIEvent() {
+        this.window.processUIEvent(this.lastButtonId, "Click");
+    }
+    
+    @Benchmark
+    public Window cloneWindow() {
+        return this.window.clone();
+    }
+    
+    /**
+     * The same event of {@link #updateRenderScript()}, but tracked by the change journal, so there is no clone to be
+     * taken before the event. The change itself is included, because that is where the journal does its work.
+     */
+    @Benchmark
+    public String changeJournalUpdateRenderScript() {
+        this.changeJournalLabel.setText("Changed".equals(this.changeJournalLabel.getText()) ? "Label" : "Changed");
+        
+        return this.changeJournalWindow.getChangeJournalRenderScript();
+    }
+    
+    /**
+     * The same event of {@link #updateRenderScript()}, with a snapshot taken before the change instead of a clone.
+     * Only the path from the changed label to the window is copied, and the unchanged containers are skipped.
+     */
+    @Benchmark
+    public String snapshotUpdateRenderScript() {
+        WindowSnapshot snapshot = this.snapshotWindow.takeSnapshot();
+        this.snapshotLabel.setText("Changed".equals(this.snapshotLabel.getText()) ? "Label" : "Changed");
+        
+        return this.snapshotWindow.getRenderScriptSince(snapshot);
+    }
+    
+    private static final class DiscardingAppendable implements Appendable {
+        
+        static final DiscardingAppendable INSTANCE = new DiscardingAppendable();
+        
+        @Override
+        public Appendable append(CharSequence csq) {
+            return this;
+        }
+        
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return this;
+        }
+        
+        @Override
+        public Appendable append(char c) {
+            return this;
+        }
+    }
+}
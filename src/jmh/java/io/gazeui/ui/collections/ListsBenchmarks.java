@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ListsBenchmarks {
+    
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+    
+    private Comparator<Integer> comparator;
+    private List<Integer> list;
+    private List<Integer> similarList;
+    private List<Integer> shuffledList;
+    
+    @Setup
+    public void setUp() {
+        this.comparator = Comparator.naturalOrder();
+        this.list = new ArrayList<>(this.size);
+        
+        for (int i = 0; i < this.size; i++) {
+            this.list.add(i);
+        }
+        
+        // One element moved, one removed and one added
+        this.similarList = new ArrayList<>(this.list);
+        this.similarList.add(0, this.similarList.remove(this.size - 1));
+        this.similarList.remove(this.size / 2);
+        this.similarList.add(this.size);
+        
+        // Fixed seed, so all runs compare the same lists
+        this.shuffledList = new ArrayList<>(this.list);
+        Collections.shuffle(this.shuffledList, new Random(42));
+    }
+    
+    @Benchmark
+    public List<Integer> longestCommonSubsequenceSimilarLists() {
+        return Lists.longestCommonSubsequence(this.similarList, this.list, this.comparator);
+    }
+    
+    @Benchmark
+    public List<Integer> longestCommonSubsequenceShuffledLists() {
+        return Lists.longestCommonSubsequence(this.shuffledList, this.list, this.comparator);
+    }
+}
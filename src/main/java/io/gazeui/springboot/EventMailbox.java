@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the batches of UI events of a session one at a time, in the order of the sequence numbers given by the page,
+ * so the page can send a batch before the response of the previous one arrives. A batch runs only after the batches
+ * before it complete, including their asynchronous events. Each session has its own mailbox, so the batches of
+ * different sessions run in parallel.
+ * 
+ * A batch that arrives before the ones preceding it waits for them, up to {@value #GAP_TIMEOUT_MILLIS} ms. After
+ * that, the missing batches (lost with a broken connection, for example) are skipped.
+ * 
+ * The server push of the page runs through the mailbox too, as batches without a sequence number (see
+ * {@link #execute(Supplier)}), so its renders never interleave with the renders of a batch of UI events.
+ */
+final class EventMailbox {
+    
+    static final long GAP_TIMEOUT_MILLIS = 5000;
+    
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    // The batches that did not run yet, by sequence number. This and the fields below are guarded by the mailbox.
+    private final SortedMap<Long, Batch<?>> waitingBatches = new TreeMap<>();
+    private final Queue<Batch<?>> waitingUnnumberedBatches = new ArrayDeque<>();
+    private long nextSequenceNumber;
+    private boolean isRunning;
+    private ScheduledFuture<?> gapTimeout;
+    
+    /**
+     * @param executor Runs the batches that have to wait for their turn.
+     * @param scheduler Runs the timeouts of the missing batches.
+     */
+    EventMailbox(Executor executor, ScheduledExecutorService scheduler) {
+        this(executor, scheduler, 0);
+    }
+    
+    /**
+     * @param nextSequenceNumber The sequence number of the first batch, for a page whose previous batches were run by
+     *        another mailbox (before its session was persisted, for example).
+     */
+    EventMailbox(Executor executor, ScheduledExecutorService scheduler, long nextSequenceNumber) {
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.nextSequenceNumber = nextSequenceNumber;
+    }
+    
+    /**
+     * The sequence number of the next batch to run, so another mailbox can continue the sequence.
+     */
+    synchronized long getNextSequenceNumber() {
+        return this.nextSequenceNumber;
+    }
+    
+    /**
+     * Runs the given batch after the batches with lower sequence numbers. The batch runs in the calling thread if
+     * its turn has already come, and otherwise in the executor of the mailbox.
+     * 
+     * @return The completion of the batch, which fails if the sequence number was already used.
+     */
+    <T> CompletableFuture<T> submit(long sequenceNumber, Supplier<CompletableFuture<T>> batchSupplier) {
+        Batch<T> batch = new Batch<>(batchSupplier);
+        Batch<?> batchToRun;
+        
+        synchronized (this) {
+            if (sequenceNumber < this.nextSequenceNumber || this.waitingBatches.containsKey(sequenceNumber)) {
+                batch.completion.completeExceptionally(new IllegalArgumentException(
+                        "The sequence number " + sequenceNumber + " was already used"));
+                
+                return batch.completion;
+            }
+            
+            this.waitingBatches.put(sequenceNumber, batch);
+            batchToRun = this.takeNextBatch();
+        }
+        
+        if (batchToRun != null) {
+            batchToRun.run();
+        }
+        
+        return batch.completion;
+    }
+    
+    /**
+     * Runs the given batch, which has no sequence number, as soon as the running batch (if any) completes. It does
+     * not wait for the missing batches of the sequence.
+     * 
+     * @return The completion of the batch.
+     */
+    <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> batchSupplier) {
+        Batch<T> batch = new Batch<>(batchSupplier);
+        Batch<?> batchToRun;
+        
+        synchronized (this) {
+            this.waitingUnnumberedBatches.add(batch);
+            batchToRun = this.takeNextBatch();
+        }
+        
+        if (batchToRun != null) {
+            batchToRun.run();
+        }
+        
+        return batch.completion;
+    }
+    
+    // Must be called with the mailbox locked. Returns the batch whose turn has come, if the mailbox is idle.
+    private Batch<?> takeNextBatch() {
+        if (this.isRunning) {
+            return null;
+        }
+        
+        if (!this.waitingUnnumberedBatches.isEmpty()) {
+            this.isRunning = true;
+            
+            return this.waitingUnnumberedBatches.remove();
+        }
+        
+        if (this.waitingBatches.isEmpty()) {
+            return null;
+        }
+        
+        long firstSequenceNumber = this.waitingBatches.firstKey();
+        
+        if (firstSequenceNumber != this.nextSequenceNumber) {
+            if (this.gapTimeout == null) {
+                this.gapTimeout = this.scheduler.schedule(this::skipGap, GAP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            
+            return null;
+        }
+        
+        this.cancelGapTimeout();
+        this.isRunning = true;
+        this.nextSequenceNumber = firstSequenceNumber + 1;
+        
+        return this.waitingBatches.remove(firstSequenceNumber);
+    }
+    
+    private void cancelGapTimeout() {
+        if (this.gapTimeout != null) {
+            this.gapTimeout.cancel(false);
+            this.gapTimeout = null;
+        }
+    }
+    
+    private void skipGap() {
+        Batch<?> batchToRun;
+        
+        synchronized (this) {
+            this.gapTimeout = null;
+            
+            if (!this.isRunning && !this.waitingBatches.isEmpty()) {
+                this.nextSequenceNumber = this.waitingBatches.firstKey();
+            }
+            
+            batchToRun = this.takeNextBatch();
+        }
+        
+        if (batchToRun != null) {
+            this.executor.execute(batchToRun::run);
+        }
+    }
+    
+    private void batchCompleted() {
+        Batch<?> batchToRun;
+        
+        synchronized (this) {
+            this.isRunning = false;
+            batchToRun = this.takeNextBatch();
+        }
+        
+        if (batchToRun != null) {
+            this.executor.execute(batchToRun::run);
+        }
+    }
+    
+    private final class Batch<T> {
+        
+        private final Supplier<CompletableFuture<T>> supplier;
+        private final CompletableFuture<T> completion = new CompletableFuture<>();
+        
+        Batch(Supplier<CompletableFuture<T>> supplier) {
+            this.supplier = supplier;
+        }
+        
+        void run() {
+            CompletableFuture<T> result;
+            
+            try {
+                result = this.supplier.get();
+            } catch (Throwable ex) {
+                // The mailbox must go on after a failed batch
+                result = new CompletableFuture<>();
+                result.completeExceptionally(ex);
+            }
+            
+            result.whenComplete((value, ex) -> {
+                // The completion is handled (the response is sent, for example) before the next batch starts
+                if (ex != null) {
+                    this.completion.completeExceptionally(ex);
+                } else {
+                    this.completion.complete(value);
+                }
+                
+                EventMailbox.this.batchCompleted();
+            });
+        }
+    }
+}
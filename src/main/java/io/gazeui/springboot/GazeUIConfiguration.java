@@ -25,7 +25,12 @@
 package io.gazeui.springboot;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,9 +41,14 @@ import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.socket.server.support.WebSocketHttpRequestHandler;
 
+import io.gazeui.springboot.annotation.ChangeTracking;
 import io.gazeui.springboot.annotation.EnableGazeUI;
+import io.gazeui.springboot.annotation.RenderFormat;
 import io.gazeui.springboot.http.MediaTypeExtensions;
+import io.gazeui.springboot.viewstate.InMemoryViewStateStore;
+import io.gazeui.springboot.viewstate.ViewStateStore;
 import io.gazeui.ui.Window;
 
 @Configuration
@@ -47,17 +57,35 @@ public class GazeUIConfiguration {
     
     public static final String CREATE_INITIAL_UI_URL_PATH = "create-initial-ui";
     public static final String PROCESS_SERVER_UI_EVENT_URL_PATH = "process-server-ui-event";
+    public static final String CLIENT_RUNTIME_URL_PATH_PREFIX = "gazeui-runtime-";
+    public static final String WEB_SOCKET_URL_PATH = "ui-event-socket";
+    public static final String UI_UPDATES_URL_PATH = "ui-updates";
+    public static final String SESSION_KEEP_ALIVE_URL_PATH = "keep-session-alive";
+    // The name of an optional Executor bean that renders the changes of the asynchronous events
+    public static final String ASYNC_EVENT_EXECUTOR_BEAN_NAME = "gazeUIAsyncEventExecutor";
+    // The name of an optional ViewStateStore bean that keeps the windows of the sessions
+    public static final String VIEW_STATE_STORE_BEAN_NAME = "gazeUIViewStateStore";
     
+    private final ApplicationContext applicationContext;
     private final EnableGazeUI enableGazeUIAnnotation;
     private String htmlBaseUrl;
     
     @Autowired
     public GazeUIConfiguration(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+        
         // Get the first EnableGazeUI annotation and ignore the other ones
         String beanNameWithEnableGazeUI = applicationContext.getBeanNamesForAnnotation(EnableGazeUI.class)[0];
         this.enableGazeUIAnnotation = applicationContext.findAnnotationOnBean(beanNameWithEnableGazeUI, EnableGazeUI.class);
         
         this.setHtmlBaseUrl(this.enableGazeUIAnnotation.basePath());
+        
+        int maxPagesPerSession = this.enableGazeUIAnnotation.maxPagesPerSession();
+        
+        if (maxPagesPerSession < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum of pages per session must be positive: " + maxPagesPerSession);
+        }
     }
     
     private void setHtmlBaseUrl(String gazeUIBasePath) {
@@ -88,19 +116,79 @@ public class GazeUIConfiguration {
     public String getHtmlBaseUrl() {
         return this.htmlBaseUrl;
     }
+    
+    public ChangeTracking getChangeTracking() {
+        return this.enableGazeUIAnnotation.changeTracking();
+    }
+    
+    public RenderFormat getRenderFormat() {
+        return this.enableGazeUIAnnotation.renderFormat();
+    }
+    
+    public boolean isWebSocketEnabled() {
+        return this.enableGazeUIAnnotation.webSocket();
+    }
+    
+    public boolean isServerPushEnabled() {
+        return this.enableGazeUIAnnotation.serverPush();
+    }
+    
+    public boolean isVirtualThreadsEnabled() {
+        return this.enableGazeUIAnnotation.virtualThreads();
+    }
+    
+    public int getMaxPagesPerSession() {
+        return this.enableGazeUIAnnotation.maxPagesPerSession();
+    }
+    
+    public boolean isPrototypeMainWindowEnabled() {
+        return this.enableGazeUIAnnotation.prototypeMainWindow();
+    }
+    
+    public boolean isServerSideRenderingEnabled() {
+        return this.enableGazeUIAnnotation.serverSideRendering();
+    }
+    
+    /**
+     * The executor bean named {@value #ASYNC_EVENT_EXECUTOR_BEAN_NAME} or, if there is none, the common fork-join
+     * pool. Rendering is quick, so the common pool is fine unless the event tasks block.
+     */
+    public Executor getAsyncEventExecutor() {
+        if (this.applicationContext.containsBean(ASYNC_EVENT_EXECUTOR_BEAN_NAME)) {
+            return this.applicationContext.getBean(ASYNC_EVENT_EXECUTOR_BEAN_NAME, Executor.class);
+        } else {
+            return ForkJoinPool.commonPool();
+        }
+    }
+    
+    /**
+     * The view state store bean named {@value #VIEW_STATE_STORE_BEAN_NAME} or, if there is none, a new store that
+     * keeps the windows on the heap.
+     */
+    public ViewStateStore getViewStateStore() {
+        if (this.applicationContext.containsBean(VIEW_STATE_STORE_BEAN_NAME)) {
+            return this.applicationContext.getBean(VIEW_STATE_STORE_BEAN_NAME, ViewStateStore.class);
+        } else {
+            return new InMemoryViewStateStore();
+        }
+    }
 
     @Autowired
     public void setDynamicHandlerMappings(RequestMappingHandlerMapping mapping, GazeUIController gazeUIController) {
         Method getInitialHtmlMethod;
+        Method getClientRuntimeMethod;
         Method getInitialUICreationScriptMethod;
         Method processServerUIEventMethod;
         
         try {
-            getInitialHtmlMethod = GazeUIController.class.getDeclaredMethod("getInitialHtml");
+            getInitialHtmlMethod = GazeUIController.class.getDeclaredMethod(
+                    "getInitialHtml", HttpServletRequest.class, HttpSession.class, HttpServletResponse.class);
+            getClientRuntimeMethod = GazeUIController.class.getDeclaredMethod(
+                    "getClientRuntime", HttpServletRequest.class, HttpServletResponse.class);
             getInitialUICreationScriptMethod = GazeUIController.class.getDeclaredMethod(
-                    "getInitialUICreationScript", HttpSession.class);
+                    "getInitialUICreationScript", HttpSession.class, HttpServletResponse.class);
             processServerUIEventMethod = GazeUIController.class.getDeclaredMethod(
-                    "processServerUIEvent", ServerUIEventInfo.class, HttpSession.class);
+                    "processServerUIEvent", ServerUIEventBatch.class, HttpSession.class, HttpServletResponse.class);
         } catch (NoSuchMethodException | SecurityException ex) {
             // Never happens, once the methods will always be declared
             throw new RuntimeException(ex);
@@ -112,6 +200,14 @@ public class GazeUIConfiguration {
                 .produces(MediaType.TEXT_HTML_VALUE)
                 .build();
         
+        // Only the current version of the runtime is served. A page with an older version will get a new one when
+        // reloaded, because the HTML is always revalidated.
+        RequestMappingInfo getClientRuntimeMappingInfo = RequestMappingInfo
+                .paths(this.enableGazeUIAnnotation.basePath() + "/" + gazeUIController.getClientRuntimeUrlPath())
+                .methods(RequestMethod.GET)
+                .produces(MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE)
+                .build();
+        
         RequestMappingInfo getInitialUICreationScriptMappingInfo = RequestMappingInfo
                 .paths(this.enableGazeUIAnnotation.basePath() + "/" + CREATE_INITIAL_UI_URL_PATH)
                 .methods(RequestMethod.GET)
@@ -122,11 +218,89 @@ public class GazeUIConfiguration {
                 .paths(this.enableGazeUIAnnotation.basePath() + "/" + PROCESS_SERVER_UI_EVENT_URL_PATH)
                 .methods(RequestMethod.POST)
                 .consumes(MediaType.APPLICATION_JSON_VALUE)
-                .produces(MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE)
+                .produces(MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE, MediaType.APPLICATION_JSON_VALUE)
                 .build();
         
         mapping.registerMapping(getInitialHtmlMappingInfo, gazeUIController, getInitialHtmlMethod);
-        mapping.registerMapping(getInitialUICreationScriptMappingInfo, gazeUIController, getInitialUICreationScriptMethod);
+        mapping.registerMapping(getClientRuntimeMappingInfo, gazeUIController, getClientRuntimeMethod);
+        
+        if (!this.isServerSideRenderingEnabled()) {
+            // The server rendered pages have their UI in the HTML
+            mapping.registerMapping(getInitialUICreationScriptMappingInfo, gazeUIController,
+                    getInitialUICreationScriptMethod);
+        }
+        
         mapping.registerMapping(processServerUIEventMappingInfo, gazeUIController, processServerUIEventMethod);
+        
+        if (this.isWebSocketEnabled()) {
+            this.registerWebSocketMapping(mapping, gazeUIController);
+        }
+        
+        if (this.isServerPushEnabled()) {
+            this.registerServerPushMapping(mapping, gazeUIController);
+        }
+    }
+    
+    private void registerServerPushMapping(RequestMappingHandlerMapping mapping, GazeUIController gazeUIController) {
+        Method subscribeToUIUpdatesMethod;
+        
+        try {
+            subscribeToUIUpdatesMethod = GazeUIController.class.getDeclaredMethod(
+                    "subscribeToUIUpdates", String.class, HttpSession.class, HttpServletResponse.class);
+        } catch (NoSuchMethodException | SecurityException ex) {
+            // Never happens, once the method will always be declared
+            throw new RuntimeException(ex);
+        }
+        
+        RequestMappingInfo subscribeToUIUpdatesMappingInfo = RequestMappingInfo
+                .paths(this.enableGazeUIAnnotation.basePath() + "/" + UI_UPDATES_URL_PATH)
+                .methods(RequestMethod.GET)
+                .produces(MediaType.TEXT_EVENT_STREAM_VALUE)
+                .build();
+        
+        mapping.registerMapping(subscribeToUIUpdatesMappingInfo, gazeUIController, subscribeToUIUpdatesMethod);
+    }
+    
+    private void registerWebSocketMapping(RequestMappingHandlerMapping mapping, GazeUIController gazeUIController) {
+        // The WebSocket handshake is a GET request handled by a HttpRequestHandler, so it is mapped like the other
+        // GazeUI requests, without enabling the WebSocket support of the whole application
+        GazeUIWebSocketHandler webSocketHandler = new GazeUIWebSocketHandler(gazeUIController);
+        WebSocketHttpRequestHandler webSocketRequestHandler = new WebSocketHttpRequestHandler(webSocketHandler);
+        webSocketRequestHandler.setHandshakeInterceptors(Collections.singletonList(webSocketHandler));
+        webSocketRequestHandler.start();
+        
+        Method handleRequestMethod;
+        
+        try {
+            handleRequestMethod = WebSocketHttpRequestHandler.class.getMethod(
+                    "handleRequest", HttpServletRequest.class, HttpServletResponse.class);
+        } catch (NoSuchMethodException | SecurityException ex) {
+            // Never happens, once the method is part of the HttpRequestHandler interface
+            throw new RuntimeException(ex);
+        }
+        
+        RequestMappingInfo webSocketMappingInfo = RequestMappingInfo
+                .paths(this.enableGazeUIAnnotation.basePath() + "/" + WEB_SOCKET_URL_PATH)
+                .methods(RequestMethod.GET)
+                .build();
+        
+        mapping.registerMapping(webSocketMappingInfo, webSocketRequestHandler, handleRequestMethod);
+        
+        Method keepSessionAliveMethod;
+        
+        try {
+            keepSessionAliveMethod = GazeUIController.class.getDeclaredMethod(
+                    "keepSessionAlive", HttpServletRequest.class, HttpServletResponse.class);
+        } catch (NoSuchMethodException | SecurityException ex) {
+            // Never happens, once the method will always be declared
+            throw new RuntimeException(ex);
+        }
+        
+        RequestMappingInfo keepSessionAliveMappingInfo = RequestMappingInfo
+                .paths(this.enableGazeUIAnnotation.basePath() + "/" + SESSION_KEEP_ALIVE_URL_PATH)
+                .methods(RequestMethod.GET)
+                .build();
+        
+        mapping.registerMapping(keepSessionAliveMappingInfo, gazeUIController, keepSessionAliveMethod);
     }
 }
\ No newline at end of file
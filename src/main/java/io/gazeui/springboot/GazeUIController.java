@@ -24,216 +24,1226 @@
 
 package io.gazeui.springboot;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import io.gazeui.springboot.annotation.ChangeTracking;
+import io.gazeui.springboot.annotation.RenderFormat;
+import io.gazeui.springboot.http.MediaTypeExtensions;
+import io.gazeui.springboot.http.StaticContent;
+import io.gazeui.springboot.viewstate.FileViewStateStore;
+import io.gazeui.springboot.viewstate.OffHeapViewStateStore;
+import io.gazeui.springboot.viewstate.ViewStateStore;
+import io.gazeui.ui.RenderWriter;
 import io.gazeui.ui.Window;
+import io.gazeui.ui.WindowSnapshot;
+import io.gazeui.ui.text.Strings;
 
 @RestController
-public class GazeUIController {
+public class GazeUIController implements DisposableBean {
+    
+    // The number of a render of no changes, which is not sent to the page
+    static final long NO_RENDER = 0;
+    // The header of the responses of the UI events with the number of their render
+    static final String RENDER_NUMBER_HEADER = "GazeUI-Render-Number";
+    // Shorter than any sensible session timeout, and long enough to cost nothing to a page used through the WebSocket
+    static final long SESSION_KEEP_ALIVE_INTERVAL_MILLIS = 60_000;
     
     private GazeUIConfiguration gazeUIConfiguration;
-    private String initialHtml;
+    // Times the server push and the timeouts of the event mailboxes, which only hand the work to the executors
+    private ScheduledExecutorService scheduler;
+    // Runs the UI events on virtual threads, null when they run on the request threads
+    private ExecutorService virtualThreadExecutor;
+    // Renders the changes of the asynchronous events when they complete
+    private Executor asyncEventExecutor;
+    private ViewStateStore viewStateStore;
+    private StaticContent clientRuntime;
+    private StaticContent initialHtml;
+    // The initial render of the prototype main window (a script, or the markup of the body with the server-side
+    // rendering) and its title, null when it is not enabled
+    private byte[] prototypeMainWindowRender;
+    private String prototypeMainWindowTitle;
+    // The resources of the head of the server rendered pages, null when the server-side rendering is not enabled
+    private String serverRenderedHtmlHeadResources;
     
     @Autowired
     public void setGazeUIConfiguration(GazeUIConfiguration gazeUIConfiguration) {
         // Using a setter injection to avoid a dependency cycle
         this.gazeUIConfiguration = gazeUIConfiguration;
+        
+        // The initial HTML and the client runtime depend only on the configuration, so they are built (and
+        // compressed) at startup, before the controller is published to the request threads by the application
+        // context. The runtime comes first, because the HTML refers to its URL.
+        this.clientRuntime = StaticContent.immutable(
+                MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE, this.createClientRuntime());
+        this.viewStateStore = gazeUIConfiguration.getViewStateStore();
+        
+        // Checked here, because the tasks would be silently lost on the copies of the windows made by these stores
+        if (gazeUIConfiguration.isServerPushEnabled() && (this.viewStateStore instanceof OffHeapViewStateStore ||
+                this.viewStateStore instanceof FileViewStateStore)) {
+            throw new IllegalStateException("The server push requires a view state store that keeps the windows on " +
+                    "the heap, such as the InMemoryViewStateStore or the SpillingViewStateStore, instead of a " +
+                    this.viewStateStore.getClass().getSimpleName());
+        }
+        
+        if (gazeUIConfiguration.isServerSideRenderingEnabled()) {
+            // Every page is rendered with its own window, so only its head can be built at startup
+            StringBuilder sbHeadResources = new StringBuilder();
+            this.appendHtmlHeadResources(sbHeadResources);
+            this.serverRenderedHtmlHeadResources = sbHeadResources.toString();
+        } else {
+            this.initialHtml = StaticContent.of(MediaType.TEXT_HTML_VALUE, this.createInitialHtml());
+        }
+        
+        if (gazeUIConfiguration.isPrototypeMainWindowEnabled()) {
+            this.createPrototypeMainWindowRender();
+        }
+        
+        if (gazeUIConfiguration.isVirtualThreadsEnabled()) {
+            // Created here, so an unsupported JDK fails the startup instead of the first event
+            this.virtualThreadExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            this.asyncEventExecutor = this.virtualThreadExecutor;
+        } else {
+            this.asyncEventExecutor = gazeUIConfiguration.getAsyncEventExecutor();
+        }
+        
+        // A single thread is enough for the timers, which are almost always idle. The thread is only started when
+        // there is something to run, and numbered in case it is replaced after a failure.
+        AtomicInteger schedulerThreadCount = new AtomicInteger();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gazeui-scheduler-" + schedulerThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+    }
+    
+    @Override
+    public void destroy() {
+        this.scheduler.shutdownNow();
+        
+        if (this.virtualThreadExecutor != null) {
+            this.virtualThreadExecutor.shutdownNow();
+        }
+    }
+    
+    /**
+     * The path of the client runtime, relative to the GazeUI base path. It contains the hash of the runtime, so a
+     * new version has a new URL and the cached ones never have to be checked.
+     */
+    String getClientRuntimeUrlPath() {
+        return GazeUIConfiguration.CLIENT_RUNTIME_URL_PATH_PREFIX + this.clientRuntime.getContentHash() + ".js";
+    }
+    
+    private Window createMainWindow() {
+        try {
+            return this.gazeUIConfiguration.getMainWindowClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private void createPrototypeMainWindowRender() {
+        Window prototypeMainWindow = this.createMainWindow();
+        String prototypeMainWindowRender = this.renderPrototypeMainWindow(prototypeMainWindow);
+        
+        // The pages build their windows with the constructor too, so it must build the same window every time, which
+        // is checked once here instead of trusting the pages to show their own windows
+        Window checkMainWindow = this.createMainWindow();
+        
+        if (!prototypeMainWindowRender.equals(this.renderPrototypeMainWindow(checkMainWindow)) ||
+                !prototypeMainWindow.getTitle().equals(checkMainWindow.getTitle())) {
+            throw new IllegalStateException("The main window " + this.gazeUIConfiguration.getMainWindowClass() +
+                    " can not be a prototype, because two instances of it were rendered differently. Its constructor" +
+                    " must not depend on the user or on the time, for example.");
+        }
+        
+        this.prototypeMainWindowRender = prototypeMainWindowRender.getBytes(StandardCharsets.UTF_8);
+        // Read after the render, which gives a title to the windows without one
+        this.prototypeMainWindowTitle = prototypeMainWindow.getTitle();
+    }
+    
+    private String renderPrototypeMainWindow(Window prototypeMainWindow) {
+        StringWriter writer = new StringWriter();
+        
+        try {
+            if (this.gazeUIConfiguration.isServerSideRenderingEnabled()) {
+                this.writeInitialHtml(prototypeMainWindow, writer);
+            } else {
+                this.writeInitialRenderScript(prototypeMainWindow, writer);
+            }
+        } catch (IOException ex) {
+            // Never thrown by a StringWriter
+            throw new UncheckedIOException(ex);
+        }
+        
+        return writer.toString();
+    }
+    
+    /**
+     * Builds the main window of a page that got the render of the prototype main window. The pending tasks were also
+     * run on the prototype before its render, so they are run here to reach the same state.
+     */
+    private Window createPageMainWindow() {
+        Window window = this.createMainWindow();
+        
+        window.runPendingTasks();
+        
+        if (this.gazeUIConfiguration.getChangeTracking() == ChangeTracking.CHANGE_JOURNAL) {
+            window.startChangeJournal();
+        }
+        
+        return window;
+    }
+    
+    /**
+     * Creates the view state of a new page, whose window is built by the given factory on its first load, or saved by
+     * the caller if the factory is null.
+     */
+    private ViewState createViewState(Supplier<Window> windowFactory) {
+        return new ViewState(this.viewStateStore, new EventMailbox(this.asyncEventExecutor, this.scheduler),
+                this.gazeUIConfiguration.getChangeTracking() == ChangeTracking.CHANGE_JOURNAL, windowFactory);
+    }
+    
+    private void writeInitialRenderScript(Window window, Writer writer) throws IOException {
+        window.runPendingTasks();
+        
+        if (this.gazeUIConfiguration.getRenderFormat() == RenderFormat.OPCODES) {
+            // The JSON array is also a JavaScript expression, so the patch can be applied by this script file
+            RenderWriter patchWriter = RenderWriter.forOpcodes(writer);
+            
+            writer.write("applyPatch(");
+            window.writeRenderScript(null, patchWriter);
+            patchWriter.finish();
+            writer.write(");");
+        } else {
+            // Here we have to use a closure to limit the scope of the render script to be executed, once the
+            // overall code will be executed as the content of a JavaScript file.
+            writer.write("(function() {\n");
+            window.writeRenderScript(null, writer);
+            writer.write("})();");
+        }
+    }
+    
+    private void writeInitialHtml(Window window, Appendable out) throws IOException {
+        window.runPendingTasks();
+        
+        RenderWriter htmlWriter = RenderWriter.forHtml(out);
+        
+        window.writeRenderScript(null, htmlWriter);
+        htmlWriter.finish();
     }
     
     //@GetMapping(produces = MediaType.TEXT_HTML_VALUE)
-    public String getInitialHtml() {
-        if (this.initialHtml == null) {
-            StringBuilder sbInitialHtml = new StringBuilder();
-            
-            // Regarding the title tag, The HTML 5.2 specification says¹:
-            // 
-            //    1. If the document is an iframe srcdoc document or if title information is available from a
-            //       higher-level protocol: Zero or more elements of metadata content, of which no more than one is a
-            //       title element and no more than one is a base element.
-            //       Otherwise: One or more elements of metadata content, of which exactly one is a title element and no
-            //       more than one is a base element.
-            //    2. The title element is a required child in most situations, but when a higher-level protocol provides
-            //       title information, e.g., in the Subject line of an e-mail when HTML is used as an e-mail authoring
-            //       format, the title element can be omitted.
-            //    3. If it’s reasonable for the Document to have no title, then the title element is probably not
-            //       required. See the head element’s content model for a description of when the element is required.
-            //    
-            //    Although it is not so clear to us if according to the specification the title is required, we are
-            //    considering it required because the W3C Validator will give an error if no title tag is found.
-            //    Beyond that, the specification enforces that the title element must contain at least one non-whitespace
-            //    character². One solution to this is to deliver upfront the title content in the HTML below, but to
-            //    achieve this we would have to instantiate the main window class (a possible heavy operation) here
-            //    in this method to get its title, and this could result in a high waiting time for the user get any
-            //    content. Although this HTML will give an error when checked by the W3C Validator regarding the title
-            //    be empty, we are favoring performance.
-            //    
-            //      [1]: https://www.w3.org/TR/html52/document-metadata.html#document-metadata
-            //      [2]: https://www.w3.org/TR/html52/document-metadata.html#the-title-element
-            //      [3]: https://stackoverflow.com/a/28688879/2160765
-            sbInitialHtml.append(
-                    "<!DOCTYPE html>\n" + 
-                    "<html>\n" + 
-                    "<head>\n" + 
-                    "  <meta charset='UTF-8'>\n" + 
-                    "  <title></title>\n");
-            
-            if (this.gazeUIConfiguration.getHtmlBaseUrl() != null) {
-                // A base element is necessary when the GazeUI base path does not end in '/'
-                sbInitialHtml.append(String.format("  <base href='%s'>\n", this.gazeUIConfiguration.getHtmlBaseUrl()));
+    public void getInitialHtml(HttpServletRequest request, HttpSession session, HttpServletResponse response)
+            throws IOException {
+        
+        if (this.serverRenderedHtmlHeadResources != null) {
+            this.getServerRenderedHtml(session, response);
+        } else {
+            this.initialHtml.write(request, response);
+        }
+    }
+    
+    /**
+     * Renders the main window of a new page as the HTML markup of its body, so the browser shows it as soon as the
+     * page is parsed, without waiting for the client runtime and the initial UI creation script. The client runtime
+     * only adds the event listeners, which are listed in the markup.
+     */
+    private void getServerRenderedHtml(HttpSession session, HttpServletResponse response) throws IOException {
+        ViewState viewState;
+        String title;
+        byte[] bodyMarkup;
+        
+        if (this.prototypeMainWindowRender != null) {
+            viewState = this.createViewState(this::createPageMainWindow);
+            title = this.prototypeMainWindowTitle;
+            bodyMarkup = this.prototypeMainWindowRender;
+        } else {
+            viewState = this.createViewState(null);
+            
+            Window viewStateWindow = this.createMainWindow();
+            // The title is only known after the render, which must come before it in the page
+            StringBuilder sbBodyMarkup = new StringBuilder();
+            
+            // The window can also be changed by the server push, so it is locked while it is processed
+            viewState.getLock().lock();
+            
+            try {
+                this.writeInitialHtml(viewStateWindow, sbBodyMarkup);
+                
+                if (this.gazeUIConfiguration.getChangeTracking() == ChangeTracking.CHANGE_JOURNAL) {
+                    // The client has now the current state of the window, so only the changes from now on matter
+                    viewStateWindow.startChangeJournal();
+                }
+                
+                viewState.saveWindow(viewStateWindow);
+            } finally {
+                viewState.getLock().unlock();
             }
             
-            // The defer attribute allows the script to be executed after the document has been parsed.
-            // This is necessary because the page contents must be available in order to the script be correctly
-            // executed.
-            sbInitialHtml.append(String.format("  <script defer src='%s'></script>\n",
-                    GazeUIConfiguration.CREATE_INITIAL_UI_URL_PATH));
-            
-            // The 'no-store' cache mode bypass the cache completely.
-            sbInitialHtml.append(
-                    "  <script>\n" + 
-                    "    async function processServerUIEvent(controlId, eventName) {\n" + 
-                    "        let eventInfo = {\n" + 
-                    "            controlId: controlId,\n" + 
-                    "            eventName: eventName\n" + 
-                    "        };\n" + 
-                    "        \n" + 
-                    "        let fetchOptions = {\n" + 
-                    "            method: 'POST',\n" + 
-                    "            cache: 'no-store',\n" + 
-                    "            headers: {\n" + 
-                    "                'Content-Type': 'application/json'\n" + 
-                    "            },\n" + 
-                    "            body: JSON.stringify(eventInfo)\n" + 
-                    "        };\n" + 
-                    "        \n");
-            
-            sbInitialHtml.append(String.format("        let response = await fetch('%s', fetchOptions);\n",
-                    GazeUIConfiguration.PROCESS_SERVER_UI_EVENT_URL_PATH));
-            
-            // 1. We are using the 'response.body' property because, at Dec/2019, it has 73.94% of global usage¹, while the
-            //    'response.text()' method has only 36.71%².
-            // 
-            //      [1]: https://caniuse.com/#feat=mdn-api_body_body
-            //      [2]: https://caniuse.com/#feat=mdn-api_body_text
-            // 
-            // 2. According to the MDN website, you should never use 'eval()', but 'window.Function()' instead.
-            //    See https://developer.mozilla.org/en-US/docs/Web/JavaScript/Reference/Global_Objects/eval for details.
-            // 
-            // 3. We have to observe two special cases when dealing with event handlers and nested controls:
-            // 
-            //    3.1. If there is one ancestor control with an event handler and one descendant without it,
-            //         the event will be fired on the ancestor control if the descendant control is stimulated.
-            //    3.2. If both the ancestor and descendant controls have event handlers, the event will be fired
-            //         on both controls when the descendant control is stimulated.
-            //    
-            //    We deal with these two special cases checking if 'target' and 'currentTarget' are the same.
-            //    We also use 'stopImmediatePropagation' just to certify that no other events will run for the same action.
-            //    See the following link for more detail about event order:
-            //    
-            //      [1]: https://www.quirksmode.org/js/events_order.html
-            sbInitialHtml.append(
-                    "        let responseText = await getTextFromStream(response.body);\n" + 
-                    "        \n" + 
-                    "        executeJavaScriptCode(responseText);\n" + 
-                    "    }\n" + 
-                    "    \n" + 
-                    "    async function getTextFromStream(readableStream) {\n" + 
-                    "        let reader = readableStream.getReader();\n" + 
-                    "        let utf8Decoder = new TextDecoder();\n" + 
-                    "        let nextChunk;\n" + 
-                    "        \n" + 
-                    "        let resultStr = '';\n" + 
-                    "        \n" + 
-                    "        while (!(nextChunk = await reader.read()).done) {\n" + 
-                    "            let partialData = nextChunk.value;\n" + 
-                    "            resultStr += utf8Decoder.decode(partialData);\n" + 
-                    "        }\n" + 
-                    "        \n" + 
-                    "        return resultStr;\n" + 
-                    "    }\n" + 
-                    "    \n" + 
-                    "    function executeJavaScriptCode(code) {\n" + 
-                    "        return Function(code)();\n" + 
-                    "    }\n" + 
-                    "    \n" + 
-                    "    async function onClickHandler(mouseEvent) {\n" + 
-                    "        if (mouseEvent.target == mouseEvent.currentTarget) {\n" + 
-                    "            mouseEvent.stopImmediatePropagation();\n" + 
-                    "            await processServerUIEvent(mouseEvent.target.id, 'Click');\n" + 
-                    "        }\n" + 
+            title = viewStateWindow.getTitle();
+            bodyMarkup = sbBodyMarkup.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        
+        SessionViewStates.add(session, viewState, this.gazeUIConfiguration.getMaxPagesPerSession());
+        
+        StringBuilder sbHead = new StringBuilder();
+        
+        sbHead.append(
+                "<!DOCTYPE html>\n" + 
+                "<html>\n" + 
+                "<head>\n" + 
+                "  <meta charset='UTF-8'>\n" + 
+                "  <title>");
+        Strings.appendHtmlEscaped(title, sbHead);
+        sbHead.append("</title>\n");
+        sbHead.append(this.serverRenderedHtmlHeadResources);
+        
+        // The token is a UUID, so it does not need to be escaped
+        sbHead.append(
+                "</head>\n" + 
+                "<body data-page-token='" + viewState.getPageToken() + "'>\n");
+        
+        response.setContentType(MediaType.TEXT_HTML_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        // Every page has its own token, so it must never be reused from a cache
+        response.setHeader("Cache-Control", "no-store");
+        
+        // The markup is written as bytes, so the cached render of the prototype does not need to be encoded again
+        OutputStream outputStream = response.getOutputStream();
+        
+        outputStream.write(sbHead.toString().getBytes(StandardCharsets.UTF_8));
+        outputStream.write(bodyMarkup);
+        outputStream.write(("\n" + 
+                "</body>\n" + 
+                "</html>").getBytes(StandardCharsets.UTF_8));
+    }
+    
+    //@GetMapping(path = "/gazeui-runtime-{hash}.js", produces = MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE)
+    public void getClientRuntime(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        this.clientRuntime.write(request, response);
+    }
+    
+    private String createInitialHtml() {
+        StringBuilder sbInitialHtml = new StringBuilder();
+        
+        // Regarding the title tag, The HTML 5.2 specification says¹:
+        // 
+        //    1. If the document is an iframe srcdoc document or if title information is available from a
+        //       higher-level protocol: Zero or more elements of metadata content, of which no more than one is a
+        //       title element and no more than one is a base element.
+        //       Otherwise: One or more elements of metadata content, of which exactly one is a title element and no
+        //       more than one is a base element.
+        //    2. The title element is a required child in most situations, but when a higher-level protocol provides
+        //       title information, e.g., in the Subject line of an e-mail when HTML is used as an e-mail authoring
+        //       format, the title element can be omitted.
+        //    3. If it’s reasonable for the Document to have no title, then the title element is probably not
+        //       required. See the head element’s content model for a description of when the element is required.
+        //    
+        //    Although it is not so clear to us if according to the specification the title is required, we are
+        //    considering it required because the W3C Validator will give an error if no title tag is found.
+        //    Beyond that, the specification enforces that the title element must contain at least one non-whitespace
+        //    character². One solution to this is to deliver upfront the title content in the HTML below, but to
+        //    achieve this we would have to instantiate the main window class (a possible heavy operation) here
+        //    in this method to get its title, and this could result in a high waiting time for the user get any
+        //    content. Although this HTML will give an error when checked by the W3C Validator regarding the title
+        //    be empty, we are favoring performance.
+        //    
+        //      [1]: https://www.w3.org/TR/html52/document-metadata.html#document-metadata
+        //      [2]: https://www.w3.org/TR/html52/document-metadata.html#the-title-element
+        //      [3]: https://stackoverflow.com/a/28688879/2160765
+        sbInitialHtml.append(
+                "<!DOCTYPE html>\n" + 
+                "<html>\n" + 
+                "<head>\n" + 
+                "  <meta charset='UTF-8'>\n" + 
+                "  <title></title>\n");
+        
+        this.appendHtmlHeadResources(sbInitialHtml);
+        
+        // The deferred scripts are executed in order, so the runtime is ready when the UI is created
+        sbInitialHtml.append(String.format("  <script defer src='%s'></script>\n",
+                GazeUIConfiguration.CREATE_INITIAL_UI_URL_PATH));
+        
+        sbInitialHtml.append(
+                "</head>\n" + 
+                "<body>\n" + 
+                "</body>\n" + 
+                "</html>");
+        
+        return sbInitialHtml.toString();
+    }
+    
+    /**
+     * Appends the elements of the head that all the pages have, after the title.
+     */
+    private void appendHtmlHeadResources(StringBuilder sbHtml) {
+        if (this.gazeUIConfiguration.getHtmlBaseUrl() != null) {
+            // A base element is necessary when the GazeUI base path does not end in '/'
+            sbHtml.append(String.format("  <base href='%s'>\n", this.gazeUIConfiguration.getHtmlBaseUrl()));
+        }
+        
+        // The defer attribute allows the script to be executed after the document has been parsed.
+        // This is necessary because the page contents must be available in order to the script be correctly
+        // executed.
+        sbHtml.append(String.format("  <script defer src='%s'></script>\n", this.getClientRuntimeUrlPath()));
+    }
+    
+    private String createClientRuntime() {
+        StringBuilder sbClientRuntime = new StringBuilder();
+        
+        // When enabled, the UI events are sent through a WebSocket, which is connected on the first event (the
+        // session is created by the initial UI creation). The server answers every batch of events, even when there
+        // is nothing to render, and each answer starts with the sequence number of its batch in a line of its own,
+        // followed by the number of its render, if anything was rendered.
+        // If the WebSocket can not be connected, the events are sent by fetch. If the connection is closed, the next
+        // event connects again, and the events without a response fail (they may not have been processed). The
+        // render scripts start with the 'use strict' directive, so only the patches start with '['.
+        sbClientRuntime.append(String.format("const webSocketUrlPath = %s;\n",
+                this.gazeUIConfiguration.isWebSocketEnabled() ?
+                        "'" + GazeUIConfiguration.WEB_SOCKET_URL_PATH + "'" : "null"));
+        
+        // The WebSocket messages do not count as accesses to the HTTP session, so a page that only sends events
+        // through the socket also requests the session keep-alive, at most once per interval, while it is used. An
+        // idle page lets the session expire, as it would without the socket.
+        sbClientRuntime.append(String.format(
+                "const sessionKeepAliveUrlPath = '%s';\n" + 
+                "const sessionKeepAliveIntervalMillis = %d;\n" + 
+                "let lastSessionKeepAliveTime = Date.now();\n" + 
+                "\n" + 
+                "function keepSessionAlive() {\n" + 
+                "    if (Date.now() - lastSessionKeepAliveTime >= sessionKeepAliveIntervalMillis) {\n" + 
+                "        lastSessionKeepAliveTime = Date.now();\n" + 
+                "        // A failure is noticed by the next event, if the session is gone\n" + 
+                "        fetch(sessionKeepAliveUrlPath, { cache: 'no-store' }).catch(() => { });\n" + 
+                "    }\n" + 
+                "}\n",
+                GazeUIConfiguration.SESSION_KEEP_ALIVE_URL_PATH, SESSION_KEEP_ALIVE_INTERVAL_MILLIS));
+        
+        // The token of the page is set by the initial UI creation script. It identifies the view state of the page
+        // among the ones of its session in every request.
+        sbClientRuntime.append(
+                "let pageToken = null;\n" + 
+                "const pendingWebSocketResponses = new Map();\n" + 
+                "let webSocketPromise = null;\n" + 
+                "\n" + 
+                "function getWebSocket() {\n" + 
+                "    if (webSocketPromise === null) {\n" + 
+                "        webSocketPromise = new Promise(resolve => {\n" + 
+                "            if (webSocketUrlPath === null || typeof WebSocket !== 'function') {\n" + 
+                "                resolve(null);\n" + 
+                "                return;\n" + 
+                "            }\n" + 
+                "            \n" + 
+                "            let url = new URL(webSocketUrlPath, document.baseURI);\n" + 
+                "            url.protocol = url.protocol === 'https:' ? 'wss:' : 'ws:';\n" + 
+                "            \n" + 
+                "            let webSocket = new WebSocket(url.href);\n" + 
+                "            let isOpen = false;\n" + 
+                "            \n" + 
+                "            webSocket.onopen = () => {\n" + 
+                "                isOpen = true;\n" + 
+                "                resolve(webSocket);\n" + 
+                "            };\n" + 
+                "            \n" + 
+                "            webSocket.onmessage = messageEvent => {\n" + 
+                "                let lineEnd = messageEvent.data.indexOf('\\n');\n" + 
+                "                let numbers = messageEvent.data.substring(0, lineEnd).split(' ');\n" + 
+                "                let sequenceNumber = Number(numbers[0]);\n" + 
+                "                let pendingResponse = pendingWebSocketResponses.get(sequenceNumber);\n" + 
+                "                \n" + 
+                "                if (pendingResponse) {\n" + 
+                "                    pendingWebSocketResponses.delete(sequenceNumber);\n" + 
+                "                    pendingResponse.resolve({\n" + 
+                "                        text: messageEvent.data.substring(lineEnd + 1),\n" + 
+                "                        renderNumber: Number(numbers[1] || 0)\n" + 
+                "                    });\n" + 
+                "                }\n" + 
+                "            };\n" + 
+                "            \n" + 
+                "            webSocket.onclose = closeEvent => {\n" + 
+                "                if (closeEvent.code === 4410) {\n" + 
+                "                    location.reload();\n" + 
+                "                }\n" + 
+                "                \n" + 
+                "                if (isOpen) {\n" + 
+                "                    webSocketPromise = null;\n" + 
+                "                    \n" + 
+                "                    for (let pendingResponse of pendingWebSocketResponses.values()) {\n" + 
+                "                        pendingResponse.reject(new Error('The WebSocket connection was closed'));\n" + 
+                "                    }\n" + 
+                "                    \n" + 
+                "                    pendingWebSocketResponses.clear();\n" + 
+                "                } else {\n" + 
+                "                    resolve(null);\n" + 
+                "                }\n" + 
+                "            };\n" + 
+                "        });\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    return webSocketPromise;\n" + 
+                "}\n" + 
+                "\n");
+        
+        // The events raised within one animation frame, or while the maximum of batches are waiting for their
+        // responses, are sent together. The server processes them in order and answers with the render script of all
+        // of them, so fast clicks and gestures that raise several events cost a single round trip.
+        // The batches are numbered, so the server processes them in order even when they arrive out of order, and
+        // their responses are applied in the same order, even when they arrive out of order.
+        sbClientRuntime.append(
+                "const maxPendingUIEventBatches = 4;\n" + 
+                "let pendingUIEvents = [];\n" + 
+                "let pendingUIEventBatchCount = 0;\n" + 
+                "let isSendScheduled = false;\n" + 
+                "let nextSequenceNumber = 0;\n" + 
+                "let lastResponseApplication = Promise.resolve();\n" + 
+                "\n" + 
+                "function processServerUIEvent(controlId, eventName) {\n" + 
+                "    pendingUIEvents.push({\n" + 
+                "        controlId: controlId,\n" + 
+                "        eventName: eventName\n" + 
+                "    });\n" + 
+                "    \n" + 
+                "    if (pendingUIEventBatchCount < maxPendingUIEventBatches && !isSendScheduled) {\n" + 
+                "        isSendScheduled = true;\n" + 
+                "        \n" + 
+                "        if (typeof requestAnimationFrame === 'function') {\n" + 
+                "            requestAnimationFrame(sendPendingUIEvents);\n" + 
+                "        } else {\n" + 
+                "            setTimeout(sendPendingUIEvents, 0);\n" + 
+                "        }\n" + 
+                "    }\n" + 
+                "}\n" + 
+                "\n" + 
+                "function sendPendingUIEvents() {\n" + 
+                "    isSendScheduled = false;\n" + 
+                "    \n" + 
+                "    if (pendingUIEventBatchCount >= maxPendingUIEventBatches || pendingUIEvents.length === 0) {\n" + 
+                "        return;\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    let eventBatch = {\n" + 
+                "        pageToken: pageToken,\n" + 
+                "        sequenceNumber: nextSequenceNumber++,\n" + 
+                "        events: pendingUIEvents\n" + 
+                "    };\n" + 
+                "    \n" + 
+                "    pendingUIEvents = [];\n" + 
+                "    pendingUIEventBatchCount++;\n" + 
+                "    \n" + 
+                "    let responsePromise = sendUIEvents(eventBatch);\n" + 
+                "    \n" + 
+                "    lastResponseApplication = lastResponseApplication\n" + 
+                "        .then(() => responsePromise)\n" + 
+                "        .then(response => applyRender(response.renderNumber, response.text, response.isPatch))\n" + 
+                "        .catch(error => console.error(error))\n" + 
+                "        .then(() => {\n" + 
+                "            pendingUIEventBatchCount--;\n" + 
+                "            \n" + 
+                "            // The events raised meanwhile have already waited for a round trip\n" + 
+                "            if (pendingUIEvents.length > 0) {\n" + 
+                "                sendPendingUIEvents();\n" + 
+                "            }\n" + 
+                "        });\n" + 
+                "}\n" + 
+                "\n" + 
+                "async function sendUIEvents(eventBatch) {\n" + 
+                "    let webSocket = await getWebSocket();\n" + 
+                "    \n" + 
+                "    if (webSocket !== null) {\n" + 
+                "        let answer = await new Promise((resolve, reject) => {\n" + 
+                "            let pendingResponse = { resolve: resolve, reject: reject };\n" + 
+                "            pendingWebSocketResponses.set(eventBatch.sequenceNumber, pendingResponse);\n" + 
+                "            webSocket.send(JSON.stringify(eventBatch));\n" + 
+                "            keepSessionAlive();\n" + 
+                "        });\n" + 
+                "        \n" + 
+                "        return {\n" + 
+                "            text: answer.text,\n" + 
+                "            isPatch: answer.text.startsWith('['),\n" + 
+                "            renderNumber: answer.renderNumber\n" + 
+                "        };\n" + 
+                "    }\n" + 
+                "    \n");
+        
+        // The 'no-store' cache mode bypass the cache completely.
+        sbClientRuntime.append(
+                "    let fetchOptions = {\n" + 
+                "        method: 'POST',\n" + 
+                "        cache: 'no-store',\n" + 
+                "        headers: {\n" + 
+                "            'Content-Type': 'application/json'\n" + 
+                "        },\n" + 
+                "        body: JSON.stringify(eventBatch)\n" + 
+                "    };\n" + 
+                "    \n");
+        
+        sbClientRuntime.append(String.format("    let response = await fetch('%s', fetchOptions);\n",
+                GazeUIConfiguration.PROCESS_SERVER_UI_EVENT_URL_PATH));
+        
+        // The 410 (Gone) status means that the view state of the page no longer exists in the server (the session
+        // has ended, for example), so the page is loaded again with a new one
+        sbClientRuntime.append(
+                "    \n" + 
+                "    if (response.status === 410) {\n" + 
+                "        location.reload();\n" + 
+                "        return { text: '', isPatch: false, renderNumber: 0 };\n" + 
+                "    }\n" + 
+                "    \n");
+        
+        // 1. We are using the 'response.body' property because, at Dec/2019, it has 73.94% of global usage¹, while the
+        //    'response.text()' method has only 36.71%².
+        // 
+        //      [1]: https://caniuse.com/#feat=mdn-api_body_body
+        //      [2]: https://caniuse.com/#feat=mdn-api_body_text
+        // 
+        // 2. According to the MDN website, you should never use 'eval()', but 'window.Function()' instead.
+        //    See https://developer.mozilla.org/en-US/docs/Web/JavaScript/Reference/Global_Objects/eval for details.
+        // 
+        // 3. We have to observe two special cases when dealing with event handlers and nested controls:
+        // 
+        //    3.1. If there is one ancestor control with an event handler and one descendant without it,
+        //         the event will be fired on the ancestor control if the descendant control is stimulated.
+        //    3.2. If both the ancestor and descendant controls have event handlers, the event will be fired
+        //         on both controls when the descendant control is stimulated.
+        //    
+        //    We deal with these two special cases checking if 'target' and 'currentTarget' are the same.
+        //    We also use 'stopImmediatePropagation' just to certify that no other events will run for the same action.
+        //    See the following link for more detail about event order:
+        //    
+        //      [1]: https://www.quirksmode.org/js/events_order.html
+        sbClientRuntime.append(
+                "    let responseText = await getTextFromStream(response.body);\n" + 
+                "    let contentType = response.headers.get('Content-Type') || '';\n" + 
+                "    \n" + 
+                "    return {\n" + 
+                "        text: responseText,\n" + 
+                "        isPatch: contentType.startsWith('application/json'),\n" + 
+                "        renderNumber: Number(response.headers.get('" + RENDER_NUMBER_HEADER + "'))\n" + 
+                "    };\n" + 
+                "}\n" + 
+                "\n");
+        
+        // The renders of the UI events and of the server push are numbered by the server in the order they were made
+        // (the initial render is the number 0), and applied in that order, whatever the order they arrive in. A render
+        // that does not arrive (lost with a broken connection, for example) leaves the page out of sync with the
+        // server, so the page is loaded again when the renders after it wait for too long.
+        sbClientRuntime.append(
+                "const renderGapTimeoutMillis = " + EventMailbox.GAP_TIMEOUT_MILLIS + ";\n" + 
+                "const waitingRenders = new Map();\n" + 
+                "let nextRenderNumber = 1;\n" + 
+                "let renderGapTimeout = null;\n" + 
+                "\n" + 
+                "function applyRender(renderNumber, responseText, isPatch) {\n" + 
+                "    if (!renderNumber || renderNumber < nextRenderNumber) {\n" + 
+                "        return;\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    waitingRenders.set(renderNumber, { text: responseText, isPatch: isPatch });\n" + 
+                "    \n" + 
+                "    let render;\n" + 
+                "    \n" + 
+                "    while ((render = waitingRenders.get(nextRenderNumber)) !== undefined) {\n" + 
+                "        waitingRenders.delete(nextRenderNumber++);\n" + 
+                "        \n" + 
+                "        try {\n" + 
+                "            applyResponse(render.text, render.isPatch);\n" + 
+                "        } catch (error) {\n" + 
+                "            console.error(error);\n" + 
+                "        }\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    clearTimeout(renderGapTimeout);\n" + 
+                "    renderGapTimeout = waitingRenders.size > 0 ?\n" + 
+                "        setTimeout(() => location.reload(), renderGapTimeoutMillis) : null;\n" + 
+                "}\n" + 
+                "\n" + 
+                "function applyResponse(responseText, isPatch) {\n" + 
+                "    if (!responseText) {\n" + 
+                "        return;\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    if (isPatch) {\n" + 
+                "        applyPatch(JSON.parse(responseText));\n" + 
+                "    } else {\n" + 
+                "        executeJavaScriptCode(responseText);\n" + 
+                "    }\n" + 
+                "}\n" + 
+                "\n" + 
+                "async function getTextFromStream(readableStream) {\n" + 
+                "    let reader = readableStream.getReader();\n" + 
+                "    let utf8Decoder = new TextDecoder();\n" + 
+                "    let nextChunk;\n" + 
+                "    \n" + 
+                "    let resultStr = '';\n" + 
+                "    \n" + 
+                "    while (!(nextChunk = await reader.read()).done) {\n" + 
+                "        let partialData = nextChunk.value;\n" + 
+                "        resultStr += utf8Decoder.decode(partialData);\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    return resultStr;\n" + 
+                "}\n" + 
+                "\n" + 
+                "function subscribeToUIUpdates() {\n" + 
+                "    if (typeof EventSource !== 'function') {\n" + 
+                "        return;\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    let eventSource = new EventSource('" + GazeUIConfiguration.UI_UPDATES_URL_PATH +
+                        "?pageToken=' + encodeURIComponent(pageToken));\n" + 
+                "    \n" + 
+                "    eventSource.onmessage = messageEvent => {\n" + 
+                "        applyRender(Number(messageEvent.lastEventId), messageEvent.data,\n" + 
+                "            messageEvent.data.startsWith('['));\n" + 
+                "    };\n" + 
+                "}\n" + 
+                "\n" + 
+                "function executeJavaScriptCode(code) {\n" + 
+                "    return Function(code)();\n" + 
+                "}\n" + 
+                "\n" + 
+                "function onClickHandler(mouseEvent) {\n" + 
+                "    if (mouseEvent.target == mouseEvent.currentTarget) {\n" + 
+                "        mouseEvent.stopImmediatePropagation();\n" + 
+                "        processServerUIEvent(mouseEvent.target.id, 'Click');\n" + 
+                "    }\n" + 
+                "}\n" + 
+                "\n");
+        
+        // The interpreter of the opcodes render format (see io.gazeui.ui.OpcodeRenderWriter for the opcodes).
+        // Every operand is checked, so a malformed patch fails with an error instead of doing something else.
+        sbClientRuntime.append(
+                "const eventListeners = {\n" + 
+                "    click: onClickHandler\n" + 
+                "};\n" + 
+                "\n" + 
+                "const eventListenerOptions = {\n" + 
+                "    capture: false,\n" + 
+                "    passive: true\n" + 
+                "};\n" + 
+                "\n" + 
+                "function applyPatch(patch) {\n" + 
+                "    if (!Array.isArray(patch)) {\n" + 
+                "        throw new TypeError('The patch must be an array');\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    // The elements created by this patch, which may not be attached to the document yet\n" + 
+                "    let createdElements = new Map();\n" + 
+                "    let i = 0;\n" + 
+                "    \n" + 
+                "    function nextOperand() {\n" + 
+                "        if (i >= patch.length) {\n" + 
+                "            throw new RangeError('Missing operand at ' + i);\n" + 
+                "        }\n" + 
+                "        \n" + 
+                "        return patch[i++];\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    function nextString() {\n" + 
+                "        let operand = nextOperand();\n" + 
+                "        \n" + 
+                "        if (typeof operand !== 'string') {\n" + 
+                "            throw new TypeError('Expected a string at ' + (i - 1));\n" + 
+                "        }\n" + 
+                "        \n" + 
+                "        return operand;\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    function nextElement() {\n" + 
+                "        let id = nextOperand();\n" + 
+                "        \n" + 
+                "        if (id === null) {\n" + 
+                "            return document.body;\n" + 
+                "        }\n" + 
+                "        \n" + 
+                "        let element = createdElements.get(id) || document.getElementById(id);\n" + 
+                "        \n" + 
+                "        if (!element) {\n" + 
+                "            throw new RangeError('Element not found: ' + id);\n" + 
+                "        }\n" + 
+                "        \n" + 
+                "        return element;\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    function nextEventListener() {\n" + 
+                "        let eventType = nextString();\n" + 
+                "        \n" + 
+                "        if (!Object.prototype.hasOwnProperty.call(eventListeners, eventType)) {\n" + 
+                "            throw new RangeError('Unknown event type: ' + eventType);\n" + 
+                "        }\n" + 
+                "        \n" + 
+                "        return [eventType, eventListeners[eventType]];\n" + 
+                "    }\n" + 
+                "    \n" + 
+                "    while (i < patch.length) {\n" + 
+                "        let opcode = patch[i++];\n" + 
+                "        \n" + 
+                "        switch (opcode) {\n" + 
+                "            case 0: {\n" + 
+                "                let element = document.createElement(nextString());\n" + 
+                "                element.id = nextString();\n" + 
+                "                createdElements.set(element.id, element);\n" + 
+                "                break;\n" + 
+                "            }\n" + 
+                "            case 1: {\n" + 
+                "                let element = nextElement();\n" + 
+                "                element.textContent = nextString();\n" + 
+                "                break;\n" + 
+                "            }\n" + 
+                "            case 2: {\n" + 
+                "                let parent = nextElement();\n" + 
+                "                parent.appendChild(nextElement());\n" + 
+                "                break;\n" + 
+                "            }\n" + 
+                "            case 3: {\n" + 
+                "                let parent = nextElement();\n" + 
+                "                let child = nextElement();\n" + 
+                "                let reference = patch[i] === null ? (i++, null) : nextElement();\n" + 
+                "                parent.insertBefore(child, reference);\n" + 
+                "                break;\n" + 
+                "            }\n" + 
+                "            case 4:\n" + 
+                "                nextElement().remove();\n" + 
+                "                break;\n" + 
+                "            case 5: {\n" + 
+                "                let element = nextElement();\n" + 
+                "                let [eventType, eventListener] = nextEventListener();\n" + 
+                "                element.addEventListener(eventType, eventListener, eventListenerOptions);\n" + 
+                "                break;\n" + 
+                "            }\n" + 
+                "            case 6: {\n" + 
+                "                let element = nextElement();\n" + 
+                "                let [eventType, eventListener] = nextEventListener();\n" + 
+                "                element.removeEventListener(eventType, eventListener, eventListenerOptions);\n" + 
+                "                break;\n" + 
+                "            }\n" + 
+                "            case 7:\n" + 
+                "                document.title = nextString();\n" + 
+                "                break;\n" + 
+                "            case 8: {\n" + 
+                "                let result = executeJavaScriptCode(nextString());\n" + 
+                "                let id = nextOperand();\n" + 
+                "                \n" + 
+                "                if (id !== null) {\n" + 
+                "                    createdElements.set(id, result);\n" + 
+                "                }\n" + 
+                "                \n" + 
+                "                break;\n" + 
+                "            }\n" + 
+                "            default:\n" + 
+                "                throw new RangeError('Invalid opcode at ' + (i - 1) + ': ' + opcode);\n" + 
+                "        }\n" + 
+                "    }\n" + 
+                "}\n");
+        
+        if (this.gazeUIConfiguration.isServerSideRenderingEnabled()) {
+            // The page was rendered by the server, so there is no initial UI creation script. The token of the page
+            // and the event types of the elements are read from the markup instead (see io.gazeui.ui.HtmlRenderWriter
+            // for the attributes). The runtime is deferred, so it runs after the document has been parsed.
+            sbClientRuntime.append(
+                    "\n" + 
+                    "pageToken = document.body.dataset.pageToken;\n" + 
+                    "\n" + 
+                    "for (let element of document.querySelectorAll('[data-event-listeners]')) {\n" + 
+                    "    for (let eventType of element.dataset.eventListeners.split(' ')) {\n" + 
+                    "        element.addEventListener(eventType, eventListeners[eventType], eventListenerOptions);\n" + 
                     "    }\n" + 
-                    "  </script>\n" + 
-                    "</head>\n" + 
-                    "<body>\n" + 
-                    "</body>\n" + 
-                    "</html>");
+                    "}\n");
             
-            this.initialHtml = sbInitialHtml.toString();
+            if (this.gazeUIConfiguration.isServerPushEnabled()) {
+                sbClientRuntime.append("\nsubscribeToUIUpdates();\n");
+            }
         }
         
-        return this.initialHtml;
+        return sbClientRuntime.toString();
     }
     
     //@GetMapping(path = "/create-initial-ui", produces = MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE)
-    public String getInitialUICreationScript(HttpSession session) throws InstantiationException, IllegalAccessException,
-            IllegalArgumentException, InvocationTargetException, NoSuchMethodException, SecurityException {
+    public void getInitialUICreationScript(HttpSession session, HttpServletResponse response) throws IOException,
+            InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException,
+            NoSuchMethodException, SecurityException {
         
-        // TODO: Create a class that allows strongly typed access to session objects
-        Window viewStateWindow = (Window)session.getAttribute("viewState");
+        if (this.prototypeMainWindowRender != null) {
+            this.getPrototypeUICreationScript(session, response);
+            return;
+        }
         
-        if (viewStateWindow == null) {
-            Class<? extends Window> mainWindowClass = this.gazeUIConfiguration.getMainWindowClass();
-            viewStateWindow = mainWindowClass.getDeclaredConstructor().newInstance();
+        // Every page has its own view state, so the tabs of a session never share a window
+        ViewState viewState = this.createViewState(null);
+        
+        Class<? extends Window> mainWindowClass = this.gazeUIConfiguration.getMainWindowClass();
+        Window viewStateWindow = mainWindowClass.getDeclaredConstructor().newInstance();
+        
+        // The script of a big window can be large, so it is written directly to the response instead of being built
+        // in memory. The response writer is buffered by the servlet container.
+        response.setContentType(MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        
+        Writer writer = response.getWriter();
+        
+        writer.write("'use strict';\n");
+        writer.write("\n");
+        
+        // The token is a UUID, so it does not need to be escaped
+        writer.write("pageToken = '" + viewState.getPageToken() + "';\n");
+        
+        // The window can also be changed by the server push, so it is locked while it is processed
+        viewState.getLock().lock();
+        
+        try {
+            this.writeInitialRenderScript(viewStateWindow, writer);
             
-            session.setAttribute("viewState", viewStateWindow);
+            if (this.gazeUIConfiguration.getChangeTracking() == ChangeTracking.CHANGE_JOURNAL) {
+                // The client has now the current state of the window, so only the changes from now on matter
+                viewStateWindow.startChangeJournal();
+            }
+            
+            viewState.saveWindow(viewStateWindow);
+        } finally {
+            viewState.getLock().unlock();
+        }
+        
+        // Added once its window is saved, so the page can only be found with a window
+        SessionViewStates.add(session, viewState, this.gazeUIConfiguration.getMaxPagesPerSession());
+        
+        if (this.gazeUIConfiguration.isServerPushEnabled()) {
+            // Only now the client has the UI that the pushed changes will update
+            writer.write("\nsubscribeToUIUpdates();");
         }
+    }
+    
+    /**
+     * Serves the cached script of the prototype main window. The main window of the page is only built when the page
+     * needs it (see {@link ViewState#loadWindow()}).
+     */
+    private void getPrototypeUICreationScript(HttpSession session, HttpServletResponse response)
+            throws IOException {
+        
+        ViewState viewState = this.createViewState(this::createPageMainWindow);
         
-        final int extraTextLength = 34;
-        String renderScript = viewStateWindow.getRenderScript(null);
-        StringBuilder sbScript = new StringBuilder(renderScript.length() + extraTextLength);
+        SessionViewStates.add(session, viewState, this.gazeUIConfiguration.getMaxPagesPerSession());
         
-        // Here we have to use a closure to limit the scope of the render script to be executed, once the
-        // overall code will be executed as the content of a JavaScript file.
-        sbScript.append("'use strict';\n");
-        sbScript.append("\n");
-        sbScript.append("(function() {\n");
-        sbScript.append(renderScript);
-        sbScript.append("})();");
+        response.setContentType(MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
         
-        return sbScript.toString();
+        // The script is written as bytes, so the cached render does not need to be encoded again
+        OutputStream outputStream = response.getOutputStream();
+        
+        // The token is a UUID, so it does not need to be escaped
+        outputStream.write(("'use strict';\n\npageToken = '" + viewState.getPageToken() + "';\n")
+                .getBytes(StandardCharsets.UTF_8));
+        outputStream.write(this.prototypeMainWindowRender);
+        
+        if (this.gazeUIConfiguration.isServerPushEnabled()) {
+            outputStream.write("\nsubscribeToUIUpdates();".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    /**
+     * Only accesses the session of the page, which keeps it alive while the page sends its UI events through the
+     * WebSocket, whose messages are not requests to the servlet container.
+     */
+    //@GetMapping(path = "/keep-session-alive")
+    public void keepSessionAlive(HttpServletRequest request, HttpServletResponse response) {
+        // Getting the session is what marks it as accessed
+        request.getSession(false);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+    
+    //@GetMapping(path = "/ui-updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToUIUpdates(@RequestParam("pageToken") String pageToken, HttpSession session,
+            HttpServletResponse response) {
+        
+        ViewState viewState = this.getViewState(session, pageToken);
+        
+        if (viewState == null) {
+            // The session has expired, or the page was dropped from it. The 204 (No Content) status makes the client
+            // stop reconnecting.
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            return null;
+        }
+        
+        ServerPushChannel serverPushChannel = viewState.getServerPushChannel(
+                pageViewState -> new ServerPushChannel(
+                        this, pageViewState, this.scheduler, this.asyncEventExecutor));
+        
+        // The stream has no timeout (zero), because it is the only way to reach the client
+        SseEmitter emitter = new SseEmitter(0L);
+        serverPushChannel.subscribe(emitter);
+        
+        return emitter;
+    }
+    
+    /**
+     * Gets the view state of the page from the session, attaching it to the store and to a mailbox of this controller
+     * if it was read from a persisted or replicated session. Returns null if the page is not in the session.
+     */
+    private ViewState getViewState(HttpSession session, String pageToken) {
+        ViewState viewState = SessionViewStates.get(session, pageToken);
+        
+        if (viewState != null) {
+            viewState.attach(this.viewStateStore, nextSequenceNumber ->
+                    new EventMailbox(this.asyncEventExecutor, this.scheduler, nextSequenceNumber),
+                    this::createPageMainWindow);
+        }
+        
+        return viewState;
     }
     
     //@PostMapping(
     //        path = "/process-server-ui-event",
     //        consumes = MediaType.APPLICATION_JSON_VALUE,
     //        produces = MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE)
-    public String processServerUIEvent(@RequestBody ServerUIEventInfo serverUIEventInfo, HttpSession session) {
+    public DeferredResult<ResponseEntity<String>> processServerUIEvent(
+            @RequestBody ServerUIEventBatch serverUIEventBatch, HttpSession session, HttpServletResponse response)
+            throws IOException {
         
-        Window viewStateWindow = (Window)session.getAttribute("viewState");
-        Window previousViewStateWindow = viewStateWindow.clone();
+        // The update scripts are usually small, so they are written in memory. This way we know if there is
+        // something to send.
+        StringBuilder sbScript = new StringBuilder();
+        CompletableFuture<Long> rendering = this.processUIEvents(serverUIEventBatch, session, sbScript);
         
-        viewStateWindow.processUIEvent(serverUIEventInfo.getControlId(), serverUIEventInfo.getEventName());
+        if (rendering.isDone() && !rendering.isCompletedExceptionally()) {
+            // The synchronous events (the usual case) are answered right away, without the asynchronous request
+            // processing. The null result tells Spring that the response is already written.
+            long renderNumber = rendering.join();
+            
+            // The client runtime checks the content type to know how to apply the response
+            response.setContentType(this.getRenderMediaType());
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            
+            if (renderNumber != NO_RENDER) {
+                response.setHeader(RENDER_NUMBER_HEADER, String.valueOf(renderNumber));
+                response.getWriter().append(sbScript);
+            }
+            
+            return null;
+        }
+        
+        // The request thread is released while the asynchronous events are processed
+        DeferredResult<ResponseEntity<String>> deferredResult = new DeferredResult<>();
+        
+        rendering.whenComplete((renderNumber, ex) -> {
+            if (ex != null) {
+                deferredResult.setErrorResult(ex instanceof CompletionException ? ex.getCause() : ex);
+            } else {
+                ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(this.getRenderMediaType() + ";charset=UTF-8"));
+                
+                deferredResult.setResult(renderNumber == NO_RENDER ? responseBuilder.build() : responseBuilder
+                        .header(RENDER_NUMBER_HEADER, String.valueOf(renderNumber))
+                        .body(sbScript.toString()));
+            }
+        });
         
-        String renderScript = viewStateWindow.getRenderScript(previousViewStateWindow);
+        return deferredResult;
+    }
+    
+    /**
+     * Processes a batch of UI events, in order, on the window of the page that sent them, and writes the render script
+     * of all of them to the given output in the configured render format. This is the pipeline shared by all the
+     * transports of the UI events.
+     * 
+     * The batches of a session run one at a time, in the order of their sequence numbers (see {@link EventMailbox}),
+     * so a batch that has to wait for its turn is processed later, on the asynchronous event executor.
+     * 
+     * The events can be asynchronous (see {@link Window#processUIEventAsync(String, String)}). In that case, the
+     * changes made until they return are rendered right away, and the changes they schedule are rendered after them,
+     * on the asynchronous event executor, when all the events of the batch complete. The events of a batch do not
+     * wait for each other.
+     * 
+     * In the virtual-thread execution mode, the whole batch is processed on a new virtual thread, so the returned
+     * future is usually not done yet.
+     * 
+     * @return The number of the render (see {@link ViewState#nextRenderNumber()}), or {@link #NO_RENDER} if nothing
+     *         was rendered, when the events are processed.
+     */
+    CompletableFuture<Long> processUIEvents(ServerUIEventBatch serverUIEventBatch, HttpSession session,
+            StringBuilder sbScript) {
+        
+        ViewState viewState = this.getViewState(session, serverUIEventBatch.getPageToken());
+        List<ServerUIEventInfo> serverUIEventInfos = serverUIEventBatch.getEvents();
         
-        if (!renderScript.isEmpty()) {
-            final int extraTextLength = 15;
-            StringBuilder sbScript = new StringBuilder(renderScript.length() + extraTextLength);
+        if (viewState == null) {
+            CompletableFuture<Long> expiration = new CompletableFuture<>();
+            expiration.completeExceptionally(new ViewStateExpiredException());
             
-            // Here is not necessary to use a closure because this code will be already executed in a limited scope.
-            sbScript.append("'use strict';\n");
-            sbScript.append("\n");
-            sbScript.append(renderScript);
+            return expiration;
+        }
+        
+        return viewState.getEventMailbox().submit(serverUIEventBatch.getSequenceNumber(), () -> {
+            if (this.virtualThreadExecutor == null) {
+                return this.processUIEvents(serverUIEventInfos, viewState, sbScript);
+            }
             
-            return sbScript.toString();
+            // The calling thread is released right away, and a handler that blocks only blocks its virtual thread
+            return CompletableFuture.supplyAsync(
+                    () -> this.processUIEvents(serverUIEventInfos, viewState, sbScript), this.virtualThreadExecutor)
+                    .thenCompose(Function.identity());
+        });
+    }
+    
+    private CompletableFuture<Long> processUIEvents(List<ServerUIEventInfo> serverUIEventInfos,
+            ViewState viewState, StringBuilder sbScript) {
+        
+        // The window is kept until the whole batch completes, because the asynchronous events change this instance.
+        // The mailbox makes sure that no other batch loads it meanwhile.
+        Window viewStateWindow = viewState.loadWindow();
+        
+        if (viewStateWindow == null) {
+            throw new ViewStateExpiredException();
+        }
+        
+        CompletableFuture<Long> rendering;
+        
+        // Released even when an event fails, so the store does not keep the window in use forever
+        try {
+            rendering = this.processUIEvents(serverUIEventInfos, viewState, viewStateWindow, sbScript);
+        } catch (RuntimeException | Error ex) {
+            viewState.releaseWindow();
+            throw ex;
+        }
+        
+        return rendering.whenComplete((renderNumber, ex) -> viewState.releaseWindow());
+    }
+    
+    private CompletableFuture<Long> processUIEvents(List<ServerUIEventInfo> serverUIEventInfos,
+            ViewState viewState, Window viewStateWindow, StringBuilder sbScript) {
+        
+        RenderWriter renderWriter = this.createRenderWriter(sbScript);
+        List<CompletableFuture<?>> asyncEventCompletions = new ArrayList<>();
+        
+        try {
+            this.renderChanges(viewState, viewStateWindow, () -> {
+                // The tasks scheduled before the events run first, so the events find the window in its
+                // expected state
+                viewStateWindow.runPendingTasks();
+                
+                for (ServerUIEventInfo serverUIEventInfo : serverUIEventInfos) {
+                    CompletableFuture<?> eventCompletion = viewStateWindow.processUIEventAsync(
+                            serverUIEventInfo.getControlId(), serverUIEventInfo.getEventName()).toCompletableFuture();
+                    
+                    if (!eventCompletion.isDone() || eventCompletion.isCompletedExceptionally()) {
+                        asyncEventCompletions.add(eventCompletion);
+                    }
+                }
+            }, renderWriter);
+            
+            if (asyncEventCompletions.isEmpty()) {
+                viewState.saveWindow(viewStateWindow);
+                renderWriter.finish();
+                
+                return CompletableFuture.completedFuture(getRenderNumber(viewState, renderWriter));
+            }
+        } catch (IOException ex) {
+            // Never happens, once the script is written in memory
+            throw new UncheckedIOException(ex);
+        }
+        
+        return CompletableFuture.allOf(asyncEventCompletions.toArray(new CompletableFuture<?>[0])).thenApplyAsync(
+                v -> {
+                    try {
+                        this.renderChanges(viewState, viewStateWindow, viewStateWindow::runPendingTasks, renderWriter);
+                        viewState.saveWindow(viewStateWindow);
+                        renderWriter.finish();
+                    } catch (IOException ex) {
+                        // Never happens, once the script is written in memory
+                        throw new UncheckedIOException(ex);
+                    }
+                    
+                    return getRenderNumber(viewState, renderWriter);
+                }, this.asyncEventExecutor);
+    }
+    
+    /**
+     * Numbers a finished render, if anything was rendered. Must be called by the batches of the event mailbox.
+     */
+    static long getRenderNumber(ViewState viewState, RenderWriter renderWriter) {
+        return renderWriter.isEmpty() ? NO_RENDER : viewState.nextRenderNumber();
+    }
+    
+    /**
+     * Creates the writer of a render script in the configured render format.
+     */
+    RenderWriter createRenderWriter(StringBuilder sbScript) {
+        if (this.gazeUIConfiguration.getRenderFormat() == RenderFormat.OPCODES) {
+            return RenderWriter.forOpcodes(sbScript);
         } else {
-            return "";
+            // Here is not necessary to use a closure because this code will be already executed in a limited scope.
+            sbScript.append("'use strict';\n\n");
+            
+            return RenderWriter.forJavaScript(sbScript);
+        }
+    }
+    
+    private String getRenderMediaType() {
+        return this.gazeUIConfiguration.getRenderFormat() == RenderFormat.OPCODES ?
+                MediaType.APPLICATION_JSON_VALUE : MediaTypeExtensions.APPLICATION_JAVASCRIPT_VALUE;
+    }
+    
+    /**
+     * Makes the given changes to the window of the view state and writes their render script to the given writer,
+     * using the configured change tracking. The view state is locked meanwhile, so the changes of the UI events and of
+     * the server push do not mix.
+     * 
+     * The window is not saved: the caller saves it after its last render, and then releases it (see
+     * {@link ViewStateStore#release}), since some stores must not touch the window while it is being changed. A batch
+     * with asynchronous events does both only after their changes.
+     */
+    void renderChanges(ViewState viewState, Window viewStateWindow, Runnable changes, RenderWriter renderWriter)
+            throws IOException {
+        
+        viewState.getLock().lock();
+        
+        try {
+            if (this.gazeUIConfiguration.getChangeTracking() == ChangeTracking.CHANGE_JOURNAL) {
+                changes.run();
+                viewStateWindow.writeChangeJournalRenderScript(renderWriter);
+            } else if (this.gazeUIConfiguration.getChangeTracking() == ChangeTracking.SNAPSHOT) {
+                WindowSnapshot previousSnapshot = viewStateWindow.takeSnapshot();
+                
+                changes.run();
+                viewStateWindow.writeRenderScriptSince(previousSnapshot, renderWriter);
+            } else {
+                Window previousViewStateWindow = viewStateWindow.clone();
+                
+                changes.run();
+                viewStateWindow.writeRenderScript(previousViewStateWindow, renderWriter);
+            }
+        } finally {
+            viewState.getLock().unlock();
         }
     }
-}
\ No newline at end of file
+}
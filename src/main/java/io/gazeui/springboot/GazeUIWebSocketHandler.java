@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.springboot;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.servlet.http.HttpSession;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Receives the UI events sent through a WebSocket connection and answers each batch of them with its render script,
+ * using the same pipeline of the HTTP requests. The connection is bound to the HTTP session of the handshake, which
+ * holds the view state.
+ * 
+ * The messages do not count as accesses to the HTTP session, which the servlet API has no way to make. So the client
+ * runtime keeps the session alive with a light HTTP request, at most once a minute, while the page sends events
+ * through the socket (see {@link GazeUIController#keepSessionAlive}). An idle page still lets the session expire.
+ * 
+ * Each answer starts with the sequence number of its batch, in a line of its own, because the batches that wait for
+ * their turn (see {@link EventMailbox}) or have asynchronous events are answered from other threads, in no
+ * particular order.
+ */
+class GazeUIWebSocketHandler extends TextWebSocketHandler implements HandshakeInterceptor {
+    
+    private static final String HTTP_SESSION_ATTRIBUTE = "httpSession";
+    // The equivalent of the 410 (Gone) status of the HTTP requests, which makes the client load the page again
+    static final CloseStatus VIEW_STATE_EXPIRED = new CloseStatus(4410, "View state expired");
+    
+    private final GazeUIController gazeUIController;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    GazeUIWebSocketHandler(GazeUIController gazeUIController) {
+        this.gazeUIController = gazeUIController;
+    }
+    
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+            WebSocketHandler webSocketHandler, Map<String, Object> attributes) {
+        
+        // The session is created by the initial UI creation, so a connection without it has no view state
+        HttpSession httpSession = request instanceof ServletServerHttpRequest ?
+                ((ServletServerHttpRequest)request).getServletRequest().getSession(false) : null;
+        
+        if (httpSession == null) {
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+        
+        attributes.put(HTTP_SESSION_ATTRIBUTE, httpSession);
+        
+        return true;
+    }
+    
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+            WebSocketHandler webSocketHandler, Exception exception) {
+    }
+    
+    @Override
+    protected void handleTextMessage(WebSocketSession webSocketSession, TextMessage message) throws IOException {
+        HttpSession httpSession = (HttpSession)webSocketSession.getAttributes().get(HTTP_SESSION_ATTRIBUTE);
+        ServerUIEventBatch serverUIEventBatch = this.objectMapper.readValue(
+                message.getPayload(), ServerUIEventBatch.class);
+        
+        StringBuilder sbScript = new StringBuilder();
+        CompletableFuture<Long> rendering = this.gazeUIController.processUIEvents(
+                serverUIEventBatch, httpSession, sbScript);
+        
+        rendering.whenComplete((renderNumber, ex) -> {
+            try {
+                Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                
+                if (cause instanceof ViewStateExpiredException) {
+                    webSocketSession.close(VIEW_STATE_EXPIRED);
+                } else if (cause != null) {
+                    // The client fails the pending events when the connection is closed
+                    webSocketSession.close(CloseStatus.SERVER_ERROR);
+                } else {
+                    // Every batch of events is answered, even when there is nothing to render, because the client
+                    // waits for the answer of each batch. The number of the render follows the sequence number.
+                    String answer = renderNumber == GazeUIController.NO_RENDER ?
+                            serverUIEventBatch.getSequenceNumber() + "\n" :
+                            serverUIEventBatch.getSequenceNumber() + " " + renderNumber + "\n" + sbScript;
+                    
+                    // A WebSocket session does not support concurrent sends
+                    synchronized (webSocketSession) {
+                        webSocketSession.sendMessage(new TextMessage(answer));
+                    }
+                }
+            } catch (IOException ioEx) {
+                // The connection is already broken, which the client will notice
+            }
+        });
+    }
+}
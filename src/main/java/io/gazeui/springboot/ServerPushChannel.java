@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.springboot;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.gazeui.ui.RenderWriter;
+import io.gazeui.ui.Window;
+
+/**
+ * Pushes to the client the changes made by the tasks of {@link Window#invokeLater(Runnable)}, through the
+ * Server-Sent Events stream of the page. There is one channel per page, and each new stream (after a reconnection)
+ * replaces the previous one.
+ * 
+ * The tasks are kept by the window object, so the server push requires a view state store that keeps the windows on
+ * the heap, as the default one does. The controller refuses the stores of the library that copy the windows, and the
+ * spilling store never spills the windows with a listener of their tasks.
+ */
+class ServerPushChannel {
+    
+    // The time to wait for more tasks before running them, so the tasks scheduled close together are pushed as one
+    // net change
+    private static final long COALESCING_DELAY_MILLIS = 50;
+    
+    private final GazeUIController gazeUIController;
+    private final ViewState viewState;
+    private final ScheduledExecutorService scheduler;
+    // Renders the pushes, so they do not hold the scheduler thread
+    private final Executor executor;
+    // Null while there is no client connected
+    private volatile SseEmitter emitter;
+    
+    ServerPushChannel(GazeUIController gazeUIController, ViewState viewState, ScheduledExecutorService scheduler,
+            Executor executor) {
+        this.gazeUIController = gazeUIController;
+        this.viewState = viewState;
+        this.scheduler = scheduler;
+        this.executor = executor;
+    }
+    
+    void subscribe(SseEmitter emitter) {
+        SseEmitter previousEmitter = this.emitter;
+        this.emitter = emitter;
+        
+        if (previousEmitter != null) {
+            previousEmitter.complete();
+        }
+        
+        emitter.onCompletion(() -> this.unsubscribe(emitter));
+        emitter.onTimeout(() -> this.unsubscribe(emitter));
+        
+        // Through the mailbox, so the window is not in use by a batch of UI events
+        this.viewState.getEventMailbox().execute(this::listenToPendingTasks);
+    }
+    
+    private CompletableFuture<Void> listenToPendingTasks() {
+        Window viewStateWindow = this.viewState.loadWindow();
+        
+        if (viewStateWindow == null) {
+            // Evicted by the view state store, so the page will be loaded again on the next UI event
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        try {
+            viewStateWindow.setPendingTasksListener(this::schedulePush);
+            this.viewState.saveWindow(viewStateWindow);
+        } finally {
+            this.viewState.releaseWindow();
+        }
+        
+        // The tasks scheduled while no client was connected
+        if (viewStateWindow.hasPendingTasks()) {
+            this.schedulePush();
+        }
+        
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    /**
+     * Completes the current stream, if any. The page gets a 204 (No Content) status when it reconnects, because its
+     * view state is gone, which makes it stop reconnecting.
+     */
+    void close() {
+        SseEmitter emitter = this.emitter;
+        this.emitter = null;
+        
+        if (emitter != null) {
+            emitter.complete();
+        }
+    }
+    
+    private void unsubscribe(SseEmitter emitter) {
+        // Only if it was not replaced by a new stream yet
+        if (this.emitter == emitter) {
+            this.emitter = null;
+        }
+    }
+    
+    private void schedulePush() {
+        // Through the mailbox, so the render of the push is never made in the middle of a batch of UI events
+        this.scheduler.schedule(() -> this.executor.execute(() -> this.viewState.getEventMailbox().execute(this::push)),
+                COALESCING_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    private CompletableFuture<Void> push() {
+        SseEmitter emitter = this.emitter;
+        Window viewStateWindow = emitter != null ? this.viewState.loadWindow() : null;
+        
+        // Without a client, the tasks will run on the next UI event or subscription
+        if (viewStateWindow != null) {
+            try {
+                this.push(emitter, viewStateWindow);
+            } finally {
+                this.viewState.releaseWindow();
+            }
+        }
+        
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    private void push(SseEmitter emitter, Window viewStateWindow) {
+        try {
+            StringBuilder sbScript = new StringBuilder();
+            RenderWriter renderWriter = this.gazeUIController.createRenderWriter(sbScript);
+            
+            this.gazeUIController.renderChanges(
+                    this.viewState, viewStateWindow, viewStateWindow::runPendingTasks, renderWriter);
+            this.viewState.saveWindow(viewStateWindow);
+            renderWriter.finish();
+            
+            long renderNumber = GazeUIController.getRenderNumber(this.viewState, renderWriter);
+            
+            if (renderNumber != GazeUIController.NO_RENDER) {
+                // The client applies the renders of the push and of the UI events in the order of their numbers
+                SseEmitter.SseEventBuilder event = SseEmitter.event().id(String.valueOf(renderNumber));
+                
+                // The lines of an event are sent as separate data fields, which the client joins again with '\n'
+                for (String line : sbScript.toString().split("\n", -1)) {
+                    event.data(line);
+                }
+                
+                emitter.send(event);
+            }
+        } catch (IOException | RuntimeException ex) {
+            // The client reconnects after the stream is closed
+            emitter.completeWithError(ex);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.springboot;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+import org.springframework.web.util.WebUtils;
+
+/**
+ * The view states of the pages of a session, by their page tokens. Each page (a browser tab, or a tab reloaded) has
+ * its own window, so the events of a tab never run against a window that another tab rendered.
+ * 
+ * Only the most recently used pages are kept, up to the configured maximum, so the memory of a session is bounded
+ * however many tabs it opens. The window of a page that is dropped is evicted from the store, and the page is loaded
+ * again on its next UI event.
+ * 
+ * The view states are serializable, so the session can be persisted or replicated by the servlet container (see
+ * {@link ViewState}).
+ */
+@SuppressWarnings("serial")
+final class SessionViewStates implements HttpSessionBindingListener, Serializable {
+    
+    private static final String SESSION_ATTRIBUTE = "viewStates";
+    
+    private final int maxPages;
+    // In access order, so the first entry is the least recently used. Guarded by this object.
+    private final LinkedHashMap<String, ViewState> viewStatesByPageToken = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private SessionViewStates(int maxPages) {
+        this.maxPages = maxPages;
+    }
+    
+    /**
+     * Returns the view state of the page with the given token in the given session, or null if there is none (the
+     * page was dropped, or the session is not the one of the page).
+     */
+    static ViewState get(HttpSession session, String pageToken) {
+        SessionViewStates sessionViewStates = (SessionViewStates)session.getAttribute(SESSION_ATTRIBUTE);
+        
+        return sessionViewStates != null && pageToken != null ? sessionViewStates.get(pageToken) : null;
+    }
+    
+    /**
+     * Adds the view state of a new page to the given session, dropping the least recently used pages over the
+     * given maximum.
+     */
+    static void add(HttpSession session, ViewState viewState, int maxPages) {
+        SessionViewStates sessionViewStates;
+        
+        // Locked, so the first pages of a session opened at the same time (in two tabs, for example) do not create
+        // two lists, one of them overwriting the other along with its pages. The mutex of Spring is the same one
+        // used by the controllers synchronized on the session.
+        synchronized (WebUtils.getSessionMutex(session)) {
+            sessionViewStates = (SessionViewStates)session.getAttribute(SESSION_ATTRIBUTE);
+            
+            if (sessionViewStates == null) {
+                sessionViewStates = new SessionViewStates(maxPages);
+                session.setAttribute(SESSION_ATTRIBUTE, sessionViewStates);
+            }
+        }
+        
+        // Outside of the session lock, because the dropped pages are evicted from the store, which may be slow
+        sessionViewStates.add(viewState);
+    }
+    
+    private synchronized ViewState get(String pageToken) {
+        return this.viewStatesByPageToken.get(pageToken);
+    }
+    
+    private void add(ViewState viewState) {
+        List<ViewState> droppedViewStates = new ArrayList<>();
+        
+        synchronized (this) {
+            this.viewStatesByPageToken.put(viewState.getPageToken(), viewState);
+            
+            Iterator<ViewState> leastRecentlyUsedViewStates = this.viewStatesByPageToken.values().iterator();
+            
+            while (this.viewStatesByPageToken.size() > this.maxPages) {
+                droppedViewStates.add(leastRecentlyUsedViewStates.next());
+                leastRecentlyUsedViewStates.remove();
+            }
+        }
+        
+        // Evicted outside of the lock, because the store may be slow
+        for (ViewState droppedViewState : droppedViewStates) {
+            droppedViewState.evict();
+        }
+    }
+    
+    @Override
+    public void valueUnbound(HttpSessionBindingEvent event) {
+        // The session has ended (or the view states were removed from it)
+        List<ViewState> viewStates;
+        
+        synchronized (this) {
+            viewStates = new ArrayList<>(this.viewStatesByPageToken.values());
+            this.viewStatesByPageToken.clear();
+        }
+        
+        for (ViewState viewState : viewStates) {
+            viewState.evict();
+        }
+    }
+}
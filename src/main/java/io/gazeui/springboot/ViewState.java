@@ -0,0 +1,294 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import io.gazeui.springboot.viewstate.ViewStateStore;
+import io.gazeui.ui.Window;
+
+/**
+ * The state of the UI of a page: the key of its window in the view state store, the lock that keeps the UI events
+ * and the server push from changing the window at the same time, and the mailbox that runs the UI events in order.
+ * The window itself is kept by the store, which evicts it when the page is dropped from its session (see
+ * {@link SessionViewStates}).
+ * 
+ * The view states are serialized with their sessions (when the servlet container persists or replicates them)
+ * together with their windows, which are written by the Java serialization. A view state read from a session has no
+ * store and no mailbox, so it must be attached to the ones of the application (see
+ * {@link #attach(ViewStateStore, LongFunction, Supplier)}) before it is used. A session serialized while a batch of
+ * asynchronous UI events waits for them has the window of that page as it was between the renders of the batch.
+ */
+@SuppressWarnings("serial")
+final class ViewState implements Serializable {
+    
+    // Also the token that identifies the page in its requests. Not derived from the session id, which changes when the
+    // user logs in, for example.
+    private final String key = UUID.randomUUID().toString();
+    private transient volatile ViewStateStore viewStateStore;
+    // A lock instead of synchronized blocks, because a virtual thread blocked inside a synchronized block (in an
+    // event handler, for example) also blocks its carrier thread
+    private transient ReentrantLock lock = new ReentrantLock();
+    // Null until the view state is attached, when it was read from a session
+    private transient volatile EventMailbox eventMailbox;
+    // The window and the next sequence number of the mailbox read from a session, until the view state is attached
+    private transient Window detachedWindow;
+    private transient long detachedNextSequenceNumber;
+    // Set when the view state read from a session is of a prototype page whose window was not built yet
+    private transient boolean isDetachedWindowFactoryPending;
+    // The number of the last render sent to the page, which applies the renders in the order of their numbers
+    private final AtomicLong lastRenderNumber = new AtomicLong();
+    // Null while the page has not subscribed to the server push
+    private transient ServerPushChannel serverPushChannel;
+    // Builds the window on its first load, for the pages that got the initial script of the prototype main window.
+    // Null once the window is built, or when it was saved by the initial UI creation.
+    private transient volatile Supplier<Window> windowFactory;
+    // Whether the windows record their changes, whose journal is not kept by the stores that copy the windows
+    private final boolean isChangeJournalEnabled;
+    // Set when the page is gone, so the batches still running do not put its window back in the store, where nobody
+    // would ever evict it. Guarded by the lock.
+    private boolean isEvicted;
+    
+    ViewState(ViewStateStore viewStateStore, EventMailbox eventMailbox, boolean isChangeJournalEnabled) {
+        this(viewStateStore, eventMailbox, isChangeJournalEnabled, null);
+    }
+    
+    ViewState(ViewStateStore viewStateStore, EventMailbox eventMailbox, boolean isChangeJournalEnabled,
+            Supplier<Window> windowFactory) {
+        this.viewStateStore = viewStateStore;
+        this.eventMailbox = eventMailbox;
+        this.isChangeJournalEnabled = isChangeJournalEnabled;
+        this.windowFactory = windowFactory;
+    }
+    
+    String getPageToken() {
+        return this.key;
+    }
+    
+    /**
+     * Attaches the view state read from a session to the given store, putting its window back in it, and to a new
+     * mailbox, created from the next sequence number of the page. A prototype page that had not built its window gets
+     * the given window factory instead. Does nothing if the view state is already attached.
+     */
+    void attach(ViewStateStore viewStateStore, LongFunction<EventMailbox> eventMailboxFactory,
+            Supplier<Window> windowFactory) {
+        if (this.eventMailbox != null) {
+            return;
+        }
+        
+        this.lock.lock();
+        
+        try {
+            if (this.eventMailbox == null) {
+                this.viewStateStore = viewStateStore;
+                
+                if (this.isDetachedWindowFactoryPending) {
+                    this.windowFactory = windowFactory;
+                    this.isDetachedWindowFactoryPending = false;
+                } else if (this.detachedWindow != null) {
+                    this.saveWindow(this.detachedWindow);
+                    this.detachedWindow = null;
+                }
+                
+                // The last one, because it tells the other threads that the view state is attached
+                this.eventMailbox = eventMailboxFactory.apply(this.detachedNextSequenceNumber);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the window of the view state, building it if it was not built yet, or null if the store has evicted it.
+     * A returned window must be released (see {@link #releaseWindow()}) once it is no longer used.
+     * With the change journal, a window decoded by the store (or read from a session) gets its journal started,
+     * since its state is the one of the last render, which the page already has.
+     */
+    Window loadWindow() {
+        Window window = this.viewStateStore.load(this.key);
+        
+        if (window == null && this.windowFactory != null) {
+            // The UI events and the server push may load the window at the same time, but only one of them builds it
+            this.lock.lock();
+            
+            try {
+                Supplier<Window> windowFactory = this.windowFactory;
+                
+                if (windowFactory != null) {
+                    this.saveWindow(windowFactory.get());
+                    this.windowFactory = null;
+                    // Loaded, so the built window is also in use for the store
+                    window = this.viewStateStore.load(this.key);
+                } else {
+                    window = this.viewStateStore.load(this.key);
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+        
+        if (window != null && this.isChangeJournalEnabled && !window.isChangeJournalStarted()) {
+            window.startChangeJournal();
+        }
+        
+        return window;
+    }
+    
+    /**
+     * Saves the window in the store, unless the view state was evicted.
+     */
+    void saveWindow(Window window) {
+        this.lock.lock();
+        
+        try {
+            if (!this.isEvicted) {
+                this.viewStateStore.save(this.key, window);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * Tells the store that the window returned by {@link #loadWindow()} is no longer in use, whether it was saved or
+     * not. Each load is released once.
+     */
+    void releaseWindow() {
+        this.viewStateStore.release(this.key);
+    }
+    
+    ReentrantLock getLock() {
+        return this.lock;
+    }
+    
+    EventMailbox getEventMailbox() {
+        return this.eventMailbox;
+    }
+    
+    /**
+     * Returns the number of a new render of the changes of the window. The initial render is the number 0. Must be
+     * called by the batches of the event mailbox only, so the numbers follow the order of the renders.
+     */
+    long nextRenderNumber() {
+        return this.lastRenderNumber.incrementAndGet();
+    }
+    
+    synchronized ServerPushChannel getServerPushChannel(Function<ViewState, ServerPushChannel> channelFactory) {
+        if (this.serverPushChannel == null) {
+            this.serverPushChannel = channelFactory.apply(this);
+        }
+        
+        return this.serverPushChannel;
+    }
+    
+    /**
+     * Discards the window of the view state, and closes its server push stream (if any), which makes the page stop
+     * reconnecting. The window is not saved anymore after that, even by the batches of UI events still running.
+     */
+    void evict() {
+        ServerPushChannel serverPushChannel;
+        
+        synchronized (this) {
+            serverPushChannel = this.serverPushChannel;
+        }
+        
+        if (serverPushChannel != null) {
+            serverPushChannel.close();
+        }
+        
+        // Under the lock, so a batch which is saving the window finishes before it is evicted
+        this.lock.lock();
+        
+        try {
+            this.isEvicted = true;
+            // The page is gone, so its window must not be built anymore
+            this.windowFactory = null;
+            this.detachedWindow = null;
+            this.isDetachedWindowFactoryPending = false;
+            
+            // Not attached yet when the view state was read from a session and never used
+            if (this.viewStateStore != null) {
+                this.viewStateStore.evict(this.key);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // Locked, so the window is not written in the middle of a render, where the UI events, their scheduled tasks
+        // and the server push change it. It is not written through the mailbox, though, because the container
+        // serializes the session on its own thread and can not wait for the batches. So a batch with asynchronous
+        // events still waiting for them may be written halfway: with the changes of its first render, which the page
+        // did not get yet, and without the ones of its tasks. And an asynchronous event method that breaks the rule
+        // of changing the window only until it returns (see Window#processUIEventAsync) may change it meanwhile.
+        this.lock.lock();
+        
+        try {
+            out.defaultWriteObject();
+            
+            if (this.viewStateStore != null) {
+                out.writeLong(this.eventMailbox != null ? this.eventMailbox.getNextSequenceNumber() : 0);
+                // A prototype page is written without building its window, whose factory is not serializable, but is
+                // given again when the view state is attached
+                out.writeBoolean(!this.isEvicted && this.windowFactory != null);
+                
+                if (this.isEvicted || this.windowFactory != null) {
+                    out.writeObject(null);
+                } else {
+                    try {
+                        out.writeObject(this.loadWindow());
+                    } finally {
+                        this.releaseWindow();
+                    }
+                }
+            } else {
+                out.writeLong(this.detachedNextSequenceNumber);
+                out.writeBoolean(this.isDetachedWindowFactoryPending);
+                out.writeObject(this.detachedWindow);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        
+        this.lock = new ReentrantLock();
+        this.detachedNextSequenceNumber = in.readLong();
+        this.isDetachedWindowFactoryPending = in.readBoolean();
+        this.detachedWindow = (Window)in.readObject();
+    }
+}
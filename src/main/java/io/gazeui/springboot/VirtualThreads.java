@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the executor of the virtual-thread execution mode (see
+ * {@link io.gazeui.springboot.annotation.EnableGazeUI#virtualThreads()}).
+ * 
+ * Virtual threads exist only since Java 21, so this is the version of the class for the older JDKs, where the mode
+ * is not supported. The library jar is a multi-release jar, and its Java 21 layer (built from src/java21) replaces
+ * this class with one that creates virtual threads.
+ */
+final class VirtualThreads {
+    
+    private VirtualThreads() {
+        // No instances allowed
+    }
+    
+    static boolean isSupported() {
+        return false;
+    }
+    
+    /**
+     * Creates an executor that runs each task in a new virtual thread.
+     * 
+     * @throws UnsupportedOperationException If the JDK has no virtual threads.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or later, and the GazeUI classes "
+                + "loaded from its multi-release jar. Current Java version: " + System.getProperty("java.version"));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot.annotation;
+
+/**
+ * How the changes made to a window while processing an event are tracked, in order to send to the client only the
+ * script that updates it.
+ */
+public enum ChangeTracking {
+    
+    /**
+     * The whole window is copied before the event and compared with itself after the event. Works with any control,
+     * but the cost of each event is proportional to the size of the window.
+     */
+    CLONE,
+    
+    /**
+     * The controls record their changes in a journal of the window, so only the changed controls are copied and
+     * compared. Custom controls must call {@code Control#notifyBeforeChange()} before changing their rendered state.
+     */
+    CHANGE_JOURNAL,
+    
+    /**
+     * An immutable snapshot of the window is taken before the event. Only the controls changed since the previous
+     * snapshot are copied, the others are shared between snapshots, and unchanged subtrees are skipped when comparing.
+     * Custom controls must call {@code Control#notifyBeforeChange()} before changing their rendered state.
+     */
+    SNAPSHOT
+}
@@ -44,4 +44,64 @@ public @interface EnableGazeUI {
     Class<? extends Window> mainWindowClass();
     
     String basePath() default "";
+    
+    ChangeTracking changeTracking() default ChangeTracking.CLONE;
+    
+    RenderFormat renderFormat() default RenderFormat.JAVASCRIPT;
+    
+    /**
+     * Whether the UI events are sent through a WebSocket connection, which avoids the cost of a HTTP request per
+     * event. The clients that can not connect a WebSocket keep sending the events by HTTP. The servlet container must
+     * support WebSockets (for Tomcat, the tomcat-embed-websocket module).
+     */
+    boolean webSocket() default false;
+    
+    /**
+     * Whether the changes made by the tasks of {@link Window#invokeLater(Runnable)} are pushed to the client through
+     * a Server-Sent Events stream, which is kept open by each page. Otherwise, the tasks run on the next UI event.
+     * The view state store must keep the windows on the heap, where the tasks are (the off-heap and file stores are
+     * refused at startup).
+     */
+    boolean serverPush() default false;
+    
+    /**
+     * Whether the UI events and the render of their changes run on virtual threads, one per batch of events, instead
+     * of on the request threads. An event handler that blocks (on a database query, for example) then costs only its
+     * virtual thread, so many sessions can wait at the same time. The changes of the asynchronous events are also
+     * rendered on virtual threads, instead of on the asynchronous event executor of the configuration.
+     * 
+     * Requires Java 21 or later, and the GazeUI classes loaded from its multi-release jar. Otherwise, the application
+     * fails to start.
+     */
+    boolean virtualThreads() default false;
+    
+    /**
+     * The maximum number of pages (browser tabs, or tabs reloaded) of a session that keep their windows. Each page has
+     * its own window, and the least recently used ones are dropped over this maximum. A dropped page is loaded again
+     * on its next UI event.
+     */
+    int maxPagesPerSession() default 8;
+    
+    /**
+     * Whether the main window is built and rendered only once, at startup, and its initial script (or markup, with
+     * the server-side rendering) is served to all the new pages. Each page then builds its own main window only when
+     * it needs it, usually on its first UI event, so the pages that are only viewed never pay for it. With the
+     * server push, the window is built when the page subscribes to it, right after the initial render, so only the
+     * render is saved.
+     * 
+     * The constructor of the main window must build the same control tree every time, without depending on the user
+     * or on the time, for example, because the page shows the render of another instance. The startup fails if two
+     * instances built at startup are rendered differently.
+     */
+    boolean prototypeMainWindow() default false;
+    
+    /**
+     * Whether the main window of a new page is rendered as the HTML markup of the page, so the browser shows it as
+     * soon as the page is parsed. Otherwise, the page is empty until a second request gets the script that creates
+     * the UI. The client runtime only adds the event listeners. The changes are still rendered in the render format.
+     * 
+     * Only the built-in controls can be rendered as markup. A main window with a control rendered by JavaScript code
+     * fails to render.
+     */
+    boolean serverSideRendering() default false;
 }
\ No newline at end of file
@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.springboot.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A content that never changes while the application is running, like the initial HTML. It is encoded once, in UTF-8
+ * and gzip, and is served with a strong ETag, so conditional requests are answered with 304 (Not Modified) and no
+ * content.
+ * 
+ * An immutable content is served at a URL that contains its hash, so the clients can keep it cached for a year
+ * without checking it again.
+ */
+public final class StaticContent {
+    
+    private static final String GZIP_CODING = "gzip";
+    // The client must always check if its copy is up to date, because the content changes when the application is
+    // deployed again. This check is cheap, thanks to the ETag.
+    private static final String REVALIDATED_CACHE_CONTROL = "no-cache";
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    
+    private final String mediaType;
+    private final String cacheControl;
+    private final byte[] content;
+    private final byte[] gzipContent;
+    private final String contentHash;
+    private final String eTag;
+    // Each encoding is a different representation, so it must have its own strong ETag (RFC 7232, section 2.1)
+    private final String gzipETag;
+    
+    private StaticContent(String mediaType, String cacheControl, byte[] content) {
+        this.mediaType = mediaType;
+        this.cacheControl = cacheControl;
+        this.content = content;
+        this.gzipContent = gzip(content);
+        this.contentHash = hash(content);
+        this.eTag = "\"" + this.contentHash + "\"";
+        this.gzipETag = "\"" + this.contentHash + "-" + GZIP_CODING + "\"";
+    }
+    
+    /**
+     * Creates a content that the clients must revalidate before using a cached copy.
+     */
+    public static StaticContent of(String mediaType, String content) {
+        return new StaticContent(mediaType, REVALIDATED_CACHE_CONTROL, content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Creates a content that the clients can cache for a year without revalidating it. It must be served at a URL
+     * that contains its {@link #getContentHash() hash}.
+     */
+    public static StaticContent immutable(String mediaType, String content) {
+        return new StaticContent(mediaType, IMMUTABLE_CACHE_CONTROL, content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public String getMediaType() {
+        return this.mediaType;
+    }
+    
+    /**
+     * A hash of the content, which is safe to be used in URLs.
+     */
+    public String getContentHash() {
+        return this.contentHash;
+    }
+    
+    public String getETag() {
+        return this.eTag;
+    }
+    
+    /**
+     * Writes the content in the encoding accepted by the client, or only the status 304 (Not Modified) when the
+     * client already has it.
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean useGzip = acceptsGzip(request.getHeader("Accept-Encoding")) &&
+                this.gzipContent.length < this.content.length;
+        String responseETag = useGzip ? this.gzipETag : this.eTag;
+        
+        response.setHeader("Cache-Control", this.cacheControl);
+        response.setHeader("Vary", "Accept-Encoding");
+        response.setHeader("ETag", responseETag);
+        
+        if (matchesAnyETag(request.getHeader("If-None-Match"), this.eTag, this.gzipETag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        
+        byte[] responseContent = useGzip ? this.gzipContent : this.content;
+        
+        response.setContentType(this.mediaType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(responseContent.length);
+        
+        if (useGzip) {
+            response.setHeader("Content-Encoding", GZIP_CODING);
+        }
+        
+        OutputStream outputStream = response.getOutputStream();
+        outputStream.write(responseContent);
+    }
+    
+    /**
+     * Checks if the Accept-Encoding header value accepts the gzip coding, which is the case if it is listed (or
+     * covered by '*') without a zero quality value.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        
+        Boolean acceptsAnyCoding = null;
+        
+        for (String coding : acceptEncoding.split(",")) {
+            String[] codingParts = coding.split(";");
+            String codingName = codingParts[0].trim();
+            boolean accepted = true;
+            
+            for (int i = 1; i < codingParts.length; i++) {
+                String parameter = codingParts[i].trim();
+                
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    accepted = !isZeroQuality(parameter.substring(2).trim());
+                }
+            }
+            
+            if (codingName.equalsIgnoreCase(GZIP_CODING) || codingName.equalsIgnoreCase("x-gzip")) {
+                return accepted;
+            } else if (codingName.equals("*")) {
+                acceptsAnyCoding = accepted;
+            }
+        }
+        
+        return acceptsAnyCoding != null && acceptsAnyCoding;
+    }
+    
+    private static boolean isZeroQuality(String quality) {
+        try {
+            return Double.parseDouble(quality) == 0;
+        } catch (NumberFormatException ex) {
+            // An invalid quality value is ignored
+            return false;
+        }
+    }
+    
+    /**
+     * Checks if the If-None-Match header value matches one of the given entity tags. As specified by RFC 7232, the
+     * weak comparison is used, so the tags sent by the client are compared ignoring the 'W/' prefix.
+     */
+    static boolean matchesAnyETag(String ifNoneMatch, String... eTags) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        
+        for (String requestETag : ifNoneMatch.split(",")) {
+            requestETag = requestETag.trim();
+            
+            if (requestETag.equals("*")) {
+                return true;
+            }
+            
+            if (requestETag.startsWith("W/")) {
+                requestETag = requestETag.substring(2);
+            }
+            
+            for (String eTag : eTags) {
+                if (eTag.equals(requestETag)) {
+                    return true;
+                }
+            }
+        }
+        
+        return false;
+    }
+    
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream gzipContentStream = new ByteArrayOutputStream(content.length / 2);
+        
+        // The content is compressed only once, so the best compression is worth its cost
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(gzipContentStream) {
+                {
+                    this.def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+            gzipStream.write(content);
+        } catch (IOException ex) {
+            // Never happens, once the content is written in memory
+            throw new RuntimeException(ex);
+        }
+        
+        return gzipContentStream.toByteArray();
+    }
+    
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            
+            // 128 bits are more than enough to tell the versions of a content apart
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException ex) {
+            // Never happens, once every Java platform is required to support SHA-256
+            throw new RuntimeException(ex);
+        }
+    }
+}
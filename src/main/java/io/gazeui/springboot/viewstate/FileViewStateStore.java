@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot.viewstate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import io.gazeui.ui.Window;
+
+/**
+ * Keeps the windows encoded in files, one per view state, in the given directory. Only the windows in use are on the
+ * heap, so the number of idle view states is limited by the disk space. The windows are decoded on every load, so
+ * they are not the same object from one request to the next.
+ * 
+ * The files of the sessions that did not end (because the application was stopped, for example) are left in the
+ * directory, so it should be cleaned up before the application starts.
+ */
+public class FileViewStateStore implements ViewStateStore {
+    
+    private static final String FILE_EXTENSION = ".viewstate";
+    
+    private final WindowCodec codec;
+    private final Path directory;
+    
+    public FileViewStateStore(WindowCodec codec, Path directory) {
+        this.codec = codec;
+        this.directory = directory;
+        
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    @Override
+    public Window load(String key) {
+        byte[] bytes;
+        
+        try {
+            bytes = Files.readAllBytes(this.getFile(key));
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        
+        return this.codec.decode(bytes);
+    }
+    
+    @Override
+    public void save(String key, Window window) {
+        byte[] bytes = this.codec.encode(window);
+        
+        try {
+            // Written to a temporary file and then moved, so a failure never leaves a partial window behind
+            Path temporaryFile = Files.createTempFile(this.directory, key, ".tmp");
+            
+            try {
+                Files.write(temporaryFile, bytes);
+                Files.move(temporaryFile, this.getFile(key),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    @Override
+    public void evict(String key) {
+        try {
+            Files.deleteIfExists(this.getFile(key));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    private Path getFile(String key) {
+        // The keys are generated by GazeUI, but they are checked anyway, so a key can never name a file outside of
+        // the directory
+        if (!key.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("Invalid view state key: " + key);
+        }
+        
+        return this.directory.resolve(key + FILE_EXTENSION);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot.viewstate;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import io.gazeui.ui.Window;
+
+/**
+ * Keeps the windows encoded in direct buffers, outside of the heap, up to the given capacity. When the capacity is
+ * exceeded, the least recently used windows are evicted, and their pages have to be loaded again. The windows are
+ * decoded on every load, so they are not the same object from one request to the next.
+ * 
+ * The direct buffers count against the -XX:MaxDirectMemorySize limit of the JVM, which must be larger than the
+ * capacity.
+ */
+public class OffHeapViewStateStore implements ViewStateStore {
+    
+    private final WindowCodec codec;
+    private final long capacityInBytes;
+    // In access order, so the first entry is the least recently used. This and the field below are guarded by the
+    // store.
+    private final LinkedHashMap<String, ByteBuffer> buffers = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    
+    public OffHeapViewStateStore(WindowCodec codec, long capacityInBytes) {
+        if (capacityInBytes <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacityInBytes);
+        }
+        
+        this.codec = codec;
+        this.capacityInBytes = capacityInBytes;
+    }
+    
+    @Override
+    public Window load(String key) {
+        byte[] bytes;
+        
+        synchronized (this) {
+            ByteBuffer buffer = this.buffers.get(key);
+            
+            if (buffer == null) {
+                return null;
+            }
+            
+            bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+        }
+        
+        // Decoded outside of the lock, because it is the slow part
+        return this.codec.decode(bytes);
+    }
+    
+    @Override
+    public void save(String key, Window window) {
+        byte[] bytes = this.codec.encode(window);
+        
+        if (bytes.length > this.capacityInBytes) {
+            throw new IllegalStateException(String.format(
+                    "The encoded window (%d bytes) is larger than the capacity of the store (%d bytes)",
+                    bytes.length, this.capacityInBytes));
+        }
+        
+        synchronized (this) {
+            ByteBuffer buffer = this.buffers.remove(key);
+            
+            if (buffer != null) {
+                this.usedBytes -= buffer.capacity();
+            }
+            
+            // The buffer of the previous version is reused when it is large enough, which is usually the case
+            if (buffer == null || buffer.capacity() < bytes.length) {
+                buffer = ByteBuffer.allocateDirect(bytes.length);
+            }
+            
+            buffer.clear();
+            buffer.put(bytes);
+            buffer.flip();
+            
+            Iterator<ByteBuffer> leastRecentlyUsedBuffers = this.buffers.values().iterator();
+            
+            while (this.usedBytes + buffer.capacity() > this.capacityInBytes) {
+                this.usedBytes -= leastRecentlyUsedBuffers.next().capacity();
+                leastRecentlyUsedBuffers.remove();
+            }
+            
+            this.buffers.put(key, buffer);
+            this.usedBytes += buffer.capacity();
+        }
+    }
+    
+    @Override
+    public synchronized void evict(String key) {
+        ByteBuffer buffer = this.buffers.remove(key);
+        
+        if (buffer != null) {
+            this.usedBytes -= buffer.capacity();
+        }
+    }
+    
+    /**
+     * The bytes taken by the windows, which is never larger than the capacity.
+     */
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+}
@@ -0,0 +1,486 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.springboot.viewstate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.gazeui.ui.ContainerControl;
+import io.gazeui.ui.Control;
+import io.gazeui.ui.Window;
+
+/**
+ * Keeps the windows on the heap up to a budget. When the budget is exceeded, the least recently used windows are
+ * encoded and spilled to a memory-mapped file, and they are decoded back to the heap when their view states are
+ * used again. So the active windows are the same object from one request to the next, as in the
+ * {@link InMemoryViewStateStore}, while the idle ones do not take the old generation.
+ * 
+ * The heap taken by a window is estimated from the number of its controls. A window loaded and not released yet (see
+ * {@link ViewStateStore#release(String)}) is in use by its page, which may be changing it, so it is not spilled; and a
+ * load waits for the window to be encoded, if it is being spilled, so a window is never changed while it is encoded.
+ * The windows with tasks scheduled by {@link Window#invokeLater(Runnable)}, or with a listener of them (the pages
+ * subscribed to the server push), are not spilled either, since the tasks would be lost. Neither are the windows
+ * whose encoding fails, which are kept on the heap even over the budget.
+ * 
+ * When the spill file is full, the windows spilled first are evicted, and their pages have to be loaded again. The
+ * file is deleted when the store is closed.
+ */
+public class SpillingViewStateStore implements ViewStateStore, SpillingViewStateStoreMXBean, Closeable {
+    
+    // A rough average of a control with its strings and event handlers, which only has to be proportional
+    private static final long ESTIMATED_BYTES_PER_CONTROL = 200;
+    
+    private final WindowCodec codec;
+    private final long heapBudgetInBytes;
+    private final FileChannel spillChannel;
+    private final MappedByteBuffer spillBuffer;
+    
+    // All the fields below are guarded by the store.
+    // In access order, so the first entry is the least recently used.
+    private final LinkedHashMap<String, HeapEntry> heapEntries = new LinkedHashMap<>(16, 0.75f, true);
+    // In insertion order, so the first entry is the first spilled
+    private final LinkedHashMap<String, Extent> spilledExtents = new LinkedHashMap<>();
+    // The free parts of the spill file, by offset. Adjacent parts are always merged.
+    private final TreeMap<Integer, Integer> freeExtents = new TreeMap<>();
+    private long estimatedHeapBytes;
+    // The part of the estimated heap bytes that is being spilled, by other threads
+    private long spillingBytes;
+    private long spilledBytes;
+    private long hitCount;
+    private long missCount;
+    private long totalRehydrationNanos;
+    private long maxRehydrationNanos;
+    private long spillCount;
+    private long spillEvictionCount;
+    
+    /**
+     * @param spillFile A file that is created, or truncated, for this store only.
+     * @param spillCapacityInBytes The size of the spill file, up to {@link Integer#MAX_VALUE} bytes, which is mapped
+     * to memory at once.
+     */
+    public SpillingViewStateStore(WindowCodec codec, long heapBudgetInBytes, Path spillFile,
+            int spillCapacityInBytes) {
+        if (heapBudgetInBytes <= 0) {
+            throw new IllegalArgumentException("The heap budget must be positive: " + heapBudgetInBytes);
+        }
+        
+        if (spillCapacityInBytes <= 0) {
+            throw new IllegalArgumentException("The spill capacity must be positive: " + spillCapacityInBytes);
+        }
+        
+        this.codec = codec;
+        this.heapBudgetInBytes = heapBudgetInBytes;
+        
+        try {
+            this.spillChannel = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+            this.spillBuffer = this.spillChannel.map(FileChannel.MapMode.READ_WRITE, 0, spillCapacityInBytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        
+        this.freeExtents.put(0, spillCapacityInBytes);
+    }
+    
+    @Override
+    public Window load(String key) {
+        HeapEntry rehydratingEntry;
+        byte[] bytes;
+        
+        synchronized (this) {
+            HeapEntry heapEntry = this.waitForHeapEntry(key);
+            
+            if (heapEntry != null) {
+                heapEntry.checkOutCount++;
+                this.hitCount++;
+                
+                return heapEntry.window;
+            }
+            
+            Extent extent = this.spilledExtents.remove(key);
+            
+            if (extent == null) {
+                return null;
+            }
+            
+            bytes = new byte[extent.length];
+            ByteBuffer buffer = this.spillBuffer.duplicate();
+            buffer.position(extent.offset);
+            buffer.get(bytes);
+            
+            this.freeExtent(extent);
+            
+            // The other loads of the window wait for it, instead of finding it nowhere
+            rehydratingEntry = new HeapEntry(key, null, 0);
+            rehydratingEntry.rehydrating = true;
+            rehydratingEntry.checkOutCount = 1;
+            this.heapEntries.put(key, rehydratingEntry);
+        }
+        
+        // Decoded outside of the lock, because it is the slow part
+        long startTime = System.nanoTime();
+        Window window;
+        
+        try {
+            window = this.codec.decode(bytes);
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                this.heapEntries.remove(key, rehydratingEntry);
+                this.notifyAll();
+            }
+            
+            throw ex;
+        }
+        
+        long rehydrationNanos = System.nanoTime() - startTime;
+        
+        synchronized (this) {
+            this.missCount++;
+            this.totalRehydrationNanos += rehydrationNanos;
+            this.maxRehydrationNanos = Math.max(this.maxRehydrationNanos, rehydrationNanos);
+        }
+        
+        this.putOnHeap(key, window, rehydratingEntry);
+        
+        return window;
+    }
+    
+    @Override
+    public void save(String key, Window window) {
+        synchronized (this) {
+            Extent extent = this.spilledExtents.remove(key);
+            
+            if (extent != null) {
+                this.freeExtent(extent);
+            }
+        }
+        
+        this.putOnHeap(key, window, null);
+    }
+    
+    @Override
+    public synchronized void release(String key) {
+        HeapEntry heapEntry = this.heapEntries.get(key);
+        
+        if (heapEntry != null && heapEntry.checkOutCount > 0) {
+            heapEntry.checkOutCount--;
+        }
+    }
+    
+    @Override
+    public synchronized void evict(String key) {
+        HeapEntry heapEntry = this.heapEntries.remove(key);
+        
+        if (heapEntry != null) {
+            this.estimatedHeapBytes -= heapEntry.estimatedBytes;
+            // The loads waiting for a rehydration find nothing now
+            this.notifyAll();
+        }
+        
+        Extent extent = this.spilledExtents.remove(key);
+        
+        if (extent != null) {
+            this.freeExtent(extent);
+        }
+    }
+    
+    /**
+     * Returns the heap entry of the window, after it is encoded, if it is being spilled, or decoded, if it is being
+     * rehydrated, so a window is never changed while it is encoded, and never looked for while it is decoded.
+     */
+    private HeapEntry waitForHeapEntry(String key) {
+        HeapEntry heapEntry = this.heapEntries.get(key);
+        
+        while (heapEntry != null && (heapEntry.spilling || heapEntry.rehydrating)) {
+            try {
+                this.wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while the window was being spilled or rehydrated", ex);
+            }
+            
+            heapEntry = this.heapEntries.get(key);
+        }
+        
+        return heapEntry;
+    }
+    
+    /**
+     * Puts the window on the heap, spilling the least recently used windows over the budget. A rehydrated window
+     * replaces its placeholder, unless the key was evicted or saved meanwhile.
+     */
+    private void putOnHeap(String key, Window window, HeapEntry rehydratingEntry) {
+        HeapEntry heapEntry = new HeapEntry(key, window, countControls(window) * ESTIMATED_BYTES_PER_CONTROL);
+        List<HeapEntry> spillCandidates = new ArrayList<>();
+        
+        synchronized (this) {
+            HeapEntry previousHeapEntry = this.heapEntries.get(key);
+            
+            if (rehydratingEntry != null && previousHeapEntry != rehydratingEntry) {
+                return;
+            }
+            
+            if (previousHeapEntry != null && previousHeapEntry.rehydrating) {
+                // The loads of the window were waiting for the decoding
+                this.notifyAll();
+            }
+            
+            if (previousHeapEntry != null) {
+                // The loads of the window not released yet still use it
+                heapEntry.checkOutCount = previousHeapEntry.checkOutCount;
+                this.estimatedHeapBytes -= previousHeapEntry.estimatedBytes;
+            }
+            
+            this.heapEntries.put(key, heapEntry);
+            this.estimatedHeapBytes += heapEntry.estimatedBytes;
+            
+            Iterator<HeapEntry> leastRecentlyUsedEntries = this.heapEntries.values().iterator();
+            
+            // The window just saved is the last one, so it is never a candidate
+            while (this.estimatedHeapBytes - this.spillingBytes > this.heapBudgetInBytes &&
+                    leastRecentlyUsedEntries.hasNext()) {
+                HeapEntry candidateEntry = leastRecentlyUsedEntries.next();
+                
+                if (candidateEntry != heapEntry && candidateEntry.isSpillable()) {
+                    candidateEntry.spilling = true;
+                    this.spillingBytes += candidateEntry.estimatedBytes;
+                    spillCandidates.add(candidateEntry);
+                }
+            }
+        }
+        
+        for (HeapEntry spillCandidate : spillCandidates) {
+            this.spill(spillCandidate);
+        }
+    }
+    
+    private void spill(HeapEntry heapEntry) {
+        byte[] bytes;
+        
+        try {
+            // Encoded outside of the lock, because it is the slow part
+            bytes = this.codec.encode(heapEntry.window);
+        } catch (RuntimeException ex) {
+            bytes = null;
+        }
+        
+        synchronized (this) {
+            heapEntry.spilling = false;
+            this.spillingBytes -= heapEntry.estimatedBytes;
+            // The loads of the window were waiting for the encoding
+            this.notifyAll();
+            
+            if (bytes == null || bytes.length > this.spillBuffer.capacity()) {
+                heapEntry.unspillable = true;
+                return;
+            }
+            
+            // Unless the window was saved again or evicted while it was being encoded, or got a task
+            if (this.heapEntries.get(heapEntry.key) != heapEntry || heapEntry.window.hasPendingTasks() ||
+                    heapEntry.window.hasPendingTasksListener()) {
+                return;
+            }
+            
+            Extent extent = this.allocateExtent(bytes.length);
+            ByteBuffer buffer = this.spillBuffer.duplicate();
+            buffer.position(extent.offset);
+            buffer.put(bytes);
+            
+            this.heapEntries.remove(heapEntry.key);
+            this.estimatedHeapBytes -= heapEntry.estimatedBytes;
+            this.spilledExtents.put(heapEntry.key, extent);
+            this.spillCount++;
+        }
+    }
+    
+    private Extent allocateExtent(int length) {
+        while (true) {
+            // First fit
+            for (Map.Entry<Integer, Integer> freeExtent : this.freeExtents.entrySet()) {
+                if (freeExtent.getValue() >= length) {
+                    int offset = freeExtent.getKey();
+                    this.freeExtents.remove(offset);
+                    
+                    if (freeExtent.getValue() > length) {
+                        this.freeExtents.put(offset + length, freeExtent.getValue() - length);
+                    }
+                    
+                    this.spilledBytes += length;
+                    
+                    return new Extent(offset, length);
+                }
+            }
+            
+            // The extent fits in the whole file, so evicting the windows spilled first always ends the loop
+            Iterator<Extent> firstSpilledExtents = this.spilledExtents.values().iterator();
+            Extent evictedExtent = firstSpilledExtents.next();
+            firstSpilledExtents.remove();
+            this.freeExtent(evictedExtent);
+            this.spillEvictionCount++;
+        }
+    }
+    
+    private void freeExtent(Extent extent) {
+        int offset = extent.offset;
+        int length = extent.length;
+        this.spilledBytes -= length;
+        
+        Map.Entry<Integer, Integer> previousFreeExtent = this.freeExtents.lowerEntry(offset);
+        
+        if (previousFreeExtent != null && previousFreeExtent.getKey() + previousFreeExtent.getValue() == offset) {
+            this.freeExtents.remove(previousFreeExtent.getKey());
+            offset = previousFreeExtent.getKey();
+            length += previousFreeExtent.getValue();
+        }
+        
+        Integer nextFreeExtentLength = this.freeExtents.remove(offset + length);
+        
+        if (nextFreeExtentLength != null) {
+            length += nextFreeExtentLength;
+        }
+        
+        this.freeExtents.put(offset, length);
+    }
+    
+    private static long countControls(Control control) {
+        long controlCount = 1;
+        
+        if (control instanceof ContainerControl) {
+            for (Control childControl : ((ContainerControl)control).getControls()) {
+                controlCount += countControls(childControl);
+            }
+        }
+        
+        return controlCount;
+    }
+    
+    @Override
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+    
+    @Override
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+    
+    @Override
+    public synchronized long getAverageRehydrationMicros() {
+        return this.missCount > 0 ? this.totalRehydrationNanos / this.missCount / 1000 : 0;
+    }
+    
+    @Override
+    public synchronized long getMaxRehydrationMicros() {
+        return this.maxRehydrationNanos / 1000;
+    }
+    
+    @Override
+    public synchronized long getSpillCount() {
+        return this.spillCount;
+    }
+    
+    @Override
+    public synchronized long getSpillEvictionCount() {
+        return this.spillEvictionCount;
+    }
+    
+    @Override
+    public synchronized int getHeapWindowCount() {
+        return this.heapEntries.size();
+    }
+    
+    @Override
+    public synchronized long getEstimatedHeapBytes() {
+        return this.estimatedHeapBytes;
+    }
+    
+    @Override
+    public synchronized int getSpilledWindowCount() {
+        return this.spilledExtents.size();
+    }
+    
+    @Override
+    public synchronized long getSpilledBytes() {
+        return this.spilledBytes;
+    }
+    
+    /**
+     * Closes and deletes the spill file. The mapping itself is released by the garbage collector.
+     */
+    @Override
+    public void close() throws IOException {
+        this.spillChannel.close();
+    }
+    
+    private static final class HeapEntry {
+        
+        final String key;
+        final Window window;
+        final long estimatedBytes;
+        // The loads not released yet, whose pages may be changing the window
+        int checkOutCount;
+        boolean spilling;
+        // A placeholder, without a window, while the window is decoded
+        boolean rehydrating;
+        boolean unspillable;
+        
+        HeapEntry(String key, Window window, long estimatedBytes) {
+            this.key = key;
+            this.window = window;
+            this.estimatedBytes = estimatedBytes;
+        }
+        
+        /**
+         * Whether the window is not in use, and would lose nothing in the spill file: its tasks, or the listener
+         * of the server push, on which the application may still schedule tasks through the same window object.
+         */
+        boolean isSpillable() {
+            return this.checkOutCount == 0 && !this.spilling && !this.rehydrating && !this.unspillable &&
+                    !this.window.hasPendingTasks() && !this.window.hasPendingTasksListener();
+        }
+    }
+    
+    private static final class Extent {
+        
+        final int offset;
+        final int length;
+        
+        Extent(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
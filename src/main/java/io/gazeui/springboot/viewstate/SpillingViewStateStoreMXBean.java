@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.springboot.viewstate;
+
+/**
+ * The metrics of a {@link SpillingViewStateStore}. The counts are since the store was created.
+ * 
+ * They are not exported by default: Spring Boot 2.2 exports the beans implementing an MXBean interface only when JMX
+ * is enabled, with the property spring.jmx.enabled=true, which is false by default. Without it, the application can
+ * register the store on the platform MBean server itself, for example:
+ * 
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(store, new ObjectName("io.gazeui:type=ViewStateStore"));
+ * </pre>
+ * 
+ * Only when JMX is not enabled in Spring, or the store is exported twice, under two names.
+ */
+public interface SpillingViewStateStoreMXBean {
+    
+    /**
+     * The loads of windows found on the heap.
+     */
+    long getHitCount();
+    
+    /**
+     * The loads of windows that had to be rehydrated from the spill file.
+     */
+    long getMissCount();
+    
+    long getAverageRehydrationMicros();
+    
+    long getMaxRehydrationMicros();
+    
+    /**
+     * The windows moved from the heap to the spill file.
+     */
+    long getSpillCount();
+    
+    /**
+     * The windows evicted from the spill file to make room for others, whose pages have to be loaded again.
+     */
+    long getSpillEvictionCount();
+    
+    int getHeapWindowCount();
+    
+    long getEstimatedHeapBytes();
+    
+    int getSpilledWindowCount();
+    
+    long getSpilledBytes();
+}
@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot.viewstate;
+
+import io.gazeui.ui.Window;
+
+/**
+ * Keeps the windows of the view states between the requests. The default store keeps them on the heap (see
+ * {@link InMemoryViewStateStore}). Another store can be set with a bean named
+ * {@value io.gazeui.springboot.GazeUIConfiguration#VIEW_STATE_STORE_BEAN_NAME}.
+ * 
+ * The keys are generated by GazeUI, one per view state, and contain only letters, digits, '-' and '_'. The accesses to
+ * one key never overlap, but the accesses to different keys do, so the stores must be thread-safe.
+ */
+public interface ViewStateStore {
+    
+    /**
+     * Returns the window saved with the given key, or null if there is none (it was never saved, or it was evicted).
+     */
+    Window load(String key);
+    
+    /**
+     * Saves the window with the given key, replacing the previous one. It is called after each change of the window.
+     */
+    void save(String key, Window window);
+    
+    /**
+     * Tells that a window loaded with the given key is no longer in use, whether it was saved or not. Every load that
+     * returns a window is released once, after its last change, so a store may work on the windows that are not in
+     * use (see {@link SpillingViewStateStore}). Does nothing by default.
+     */
+    default void release(String key) {
+    }
+    
+    /**
+     * Discards the window saved with the given key, if any. It is called when the session of the view state ends.
+     */
+    void evict(String key);
+}
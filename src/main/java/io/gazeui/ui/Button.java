@@ -24,15 +24,21 @@
 
 package io.gazeui.ui;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 
 import io.gazeui.ui.event.EventArgs;
 import io.gazeui.ui.event.EventHandler;
+import io.gazeui.ui.event.GazeEvent;
 
+@SuppressWarnings("serial")
 public class Button extends Control {
     
+    private static final String TAG_NAME = "button";
+    private static final String CLICK_EVENT_TYPE = "click";
+    
     private String text;
     private List<EventHandler<EventArgs>> clickHandlers;
     
@@ -48,19 +54,25 @@ public class Button extends Control {
     }
     
     public void setText(String text) {
+        this.notifyBeforeChange();
         this.text = text;
     }
     
     public void addOnClickHandler(EventHandler<EventArgs> onClickHandler) {
         if (!this.getClickHandlers().contains(onClickHandler)) {
+            this.notifyBeforeChange();
             this.getClickHandlers().add(onClickHandler);
         }
     }
     
     public void removeOnClickHandler(EventHandler<EventArgs> onClickHandler) {
-        this.getClickHandlers().remove(onClickHandler);
+        if (this.getClickHandlers().contains(onClickHandler)) {
+            this.notifyBeforeChange();
+            this.getClickHandlers().remove(onClickHandler);
+        }
     }
     
+    @GazeEvent("Click")
     void processOnClickEvent() {
         EventArgs eventArgs = new EventArgs(this);
         
@@ -89,6 +101,38 @@ public class Button extends Control {
         return clonedButton;
     }
     
+    @Override
+    protected void writeState(ControlStateOutput out) {
+        super.writeState(out);
+        
+        out.writeString(this.text);
+        
+        // Here we are accessing the variable directly to avoid the unnecessary creation of the collection
+        if (this.clickHandlers != null) {
+            out.writeVarInt(this.clickHandlers.size());
+            
+            for (EventHandler<EventArgs> clickHandler : this.clickHandlers) {
+                out.writeEventHandler(clickHandler);
+            }
+        } else {
+            out.writeVarInt(0);
+        }
+    }
+    
+    @Override
+    protected void readState(ControlStateInput in) {
+        super.readState(in);
+        
+        this.text = in.readString();
+        this.clickHandlers = null;
+        
+        int clickHandlerCount = in.readVarInt();
+        
+        for (int i = 0; i < clickHandlerCount; i++) {
+            this.getClickHandlers().add(in.readEventHandler());
+        }
+    }
+    
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(super.toString());
@@ -99,18 +143,22 @@ public class Button extends Control {
     
     @Override
     protected String getRenderScript(Control previousControlState) {
+        return this.writeRenderScriptToString(previousControlState);
+    }
+    
+    @Override
+    protected void writeRenderScript(Control previousControlState, Appendable out) throws IOException {
+        RenderWriter writer = RenderWriter.of(out);
+        
         if (previousControlState == null) {
-            return this.getCreateRenderScript();
+            this.writeCreateRenderScript(writer);
         } else {
-            return this.getUpdateRenderScript((Button)previousControlState);
+            this.writeUpdateRenderScript((Button)previousControlState, writer);
         }
     }
     
-    private String getCreateRenderScript() {
-        StringBuilder sbScript = new StringBuilder();
-        
-        sbScript.append(String.format("var %s = document.createElement('button');\n", this.getClientId()));
-        sbScript.append(String.format("%1$s.id = '%1$s';\n", this.getClientId()));
+    private void writeCreateRenderScript(RenderWriter writer) throws IOException {
+        writer.createElement(this, TAG_NAME);
         
         // According to the MDN website:
         //
@@ -122,54 +170,40 @@ public class Button extends Control {
         //   [1]: https://developer.mozilla.org/en-US/docs/Web/API/Element/innerHTML
         
         if (this.getText() != null && !this.getText().isEmpty()) {
-            // TODO: JavaScript escape
-            sbScript.append(String.format("%s.textContent = '%s';\n", this.getClientId(),
-                    this.getText()));
+            writer.setTextContent(this, this.getText());
         }
         
         // Here we are accessing the variable directly to avoid the unnecessary creation of the collection
         // when there are no handlers.
         if (this.clickHandlers != null && !this.clickHandlers.isEmpty()) {
-            sbScript.append(String.format("%s.addEventListener('click', onClickHandler, {\n", this.getClientId()));
-            sbScript.append(
-                "    capture: false,\n" +
-                "    passive: true\n" +
-                "});\n");
+            writer.addEventListener(this, CLICK_EVENT_TYPE);
         }
-        
-        return sbScript.toString();
     }
     
-    private String getUpdateRenderScript(Button previousControlState) {
-        StringBuilder sbScript = new StringBuilder();
+    private void writeUpdateRenderScript(Button previousControlState, RenderWriter writer) throws IOException {
+        String currentText = this.getText() != null ? this.getText() : "";
+        String previousText = previousControlState.getText() != null ? previousControlState.getText() : "";
         
-        String currentText = Optional.ofNullable(this.getText()).orElse("");
-        String previousText = Optional.ofNullable(previousControlState.getText()).orElse("");
+        boolean textChanged = !currentText.equals(previousText);
+        boolean clickHandlersAdded = previousControlState.getClickHandlers().isEmpty() &&
+                this.clickHandlers != null && !this.clickHandlers.isEmpty();
+        boolean clickHandlersRemoved = !previousControlState.getClickHandlers().isEmpty() &&
+                this.getClickHandlers().isEmpty();
         
-        if (!currentText.equals(previousText)) {
-            // TODO: JavaScript escape
-            sbScript.append(String.format("%s.textContent = '%s';\n", this.getClientId(), currentText));
+        if (!textChanged && !clickHandlersAdded && !clickHandlersRemoved) {
+            return;
         }
         
-        if (previousControlState.getClickHandlers().isEmpty() &&
-                this.clickHandlers != null && !this.clickHandlers.isEmpty()) {
-            sbScript.append(String.format("%s.addEventListener('click', onClickHandler, {\n", this.getClientId()));
-            sbScript.append(
-                "    capture: false,\n" +
-                "    passive: true\n" +
-                "});\n");
-        } else if (!previousControlState.getClickHandlers().isEmpty() && this.getClickHandlers().isEmpty()) {
-            sbScript.append(String.format("%s.removeEventListener('click', onClickHandler, {\n", this.getClientId()));
-            sbScript.append(
-                "    capture: false,\n" +
-                "    passive: true\n" +
-                "});\n");
-        }
+        writer.select(this);
         
-        if (sbScript.length() > 0) {
-            sbScript.insert(0, this.selectionScript());
+        if (textChanged) {
+            writer.setTextContent(this, currentText);
         }
         
-        return sbScript.toString();
+        if (clickHandlersAdded) {
+            writer.addEventListener(this, CLICK_EVENT_TYPE);
+        } else if (clickHandlersRemoved) {
+            writer.removeEventListener(this, CLICK_EVENT_TYPE);
+        }
     }
 }
\ No newline at end of file
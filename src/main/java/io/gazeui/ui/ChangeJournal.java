@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the changes made to the controls of a window, so the previous state of the window can be rebuilt without
+ * a copy of the whole control tree taken before the changes.
+ * 
+ * Only the state of a control before its first change is kept, together with the containers which are ancestors of
+ * changed controls. Everything else in the previous state is the control itself, which makes the rendering skip
+ * the unchanged control trees.
+ */
+final class ChangeJournal {
+    
+    // Controls do not override equals and hashCode, but we are making clear that the identity is what matters here
+    private final Map<Control, Control> previousStates = new IdentityHashMap<>();
+    private final Set<ContainerControl> changedControlsAncestors = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    void record(Control control) {
+        if (!this.previousStates.containsKey(control)) {
+            this.previousStates.put(control, control.shallowClone());
+            
+            // Once an ancestor is found in the set, all the ancestors above it are already there
+            ContainerControl ancestor = control.getParent();
+            
+            while (ancestor != null && this.changedControlsAncestors.add(ancestor)) {
+                ancestor = ancestor.getParent();
+            }
+        }
+    }
+    
+    /**
+     * Records the control and all its descendants. The changes made to a control out of the window are not notified
+     * to the window, so this must be done when a control tree is removed, in case it is added back to the window.
+     */
+    void recordTree(Control control) {
+        this.record(control);
+        
+        if (control instanceof ContainerControl) {
+            for (Control childControl : ((ContainerControl)control).getControls()) {
+                this.recordTree(childControl);
+            }
+        }
+    }
+    
+    void clear() {
+        this.previousStates.clear();
+        this.changedControlsAncestors.clear();
+    }
+    
+    /**
+     * Returns the state of the control when the journal was started (or last cleared). This method must be called
+     * only once per control between clears, because the recorded states are reused to build the result.
+     */
+    Control getPreviousState(Control control) {
+        Control previousState = this.previousStates.get(control);
+        
+        if (!this.changedControlsAncestors.contains(control)) {
+            return previousState != null ? previousState : control;
+        }
+        
+        ContainerControl previousContainerState = previousState != null ?
+                (ContainerControl)previousState : ((ContainerControl)control).shallowClone();
+        
+        // The child controls of a shallow clone are the real ones, so we have to replace them by their previous states
+        List<Control> previousChildControls = previousContainerState.getControls();
+        ListIterator<Control> it = previousChildControls.listIterator();
+        
+        while (it.hasNext()) {
+            it.set(this.getPreviousState(it.next()));
+        }
+        
+        return previousContainerState;
+    }
+}
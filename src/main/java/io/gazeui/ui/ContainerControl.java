@@ -24,18 +24,43 @@
 
 package io.gazeui.ui;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
-import java.util.function.Function;
 
 import io.gazeui.ui.collections.Lists;
 
+@SuppressWarnings("serial")
 public class ContainerControl extends Control {
 
+    private static final String TAG_NAME = "div";
+    
+    // If the class uses the creation script of this class, which allows to create the container without running a
+    // script when the render writer is not writing JavaScript
+    private static final ClassValue<Boolean> hasDefaultCreationScript = new ClassValue<Boolean>() {
+        
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> superclass = type; superclass != ContainerControl.class;
+                    superclass = superclass.getSuperclass()) {
+                try {
+                    superclass.getDeclaredMethod("creationScript");
+                    return false;
+                } catch (NoSuchMethodException ex) {
+                    // Not overridden by this class, so let's check its superclass
+                }
+            }
+            
+            return true;
+        }
+    };
+    
     private static final Comparator<Control> clientIdComparator;
     
     static {
@@ -74,47 +99,106 @@ public class ContainerControl extends Control {
         return clonedContainerControl;
     }
     
+    @Override
+    ContainerControl shallowClone() {
+        // Calling the Control#clone method directly, which does not copy the child controls
+        ContainerControl clonedContainerControl = (ContainerControl)super.clone();
+        clonedContainerControl.controls = new ArrayList<Control>(this.getControls());
+        
+        return clonedContainerControl;
+    }
+    
+    @Override
+    protected void writeState(ControlStateOutput out) {
+        super.writeState(out);
+        
+        // Here we are accessing the variable directly to avoid the unnecessary creation of the collection
+        List<Control> controls = this.controls != null ? this.controls : Collections.emptyList();
+        out.writeVarInt(controls.size());
+        
+        for (Control childControl : controls) {
+            out.writeControl(childControl);
+        }
+    }
+    
+    @Override
+    protected void readState(ControlStateInput in) {
+        super.readState(in);
+        
+        // The factory may have created some child controls, like the constructors of most windows do
+        if (this.controls != null) {
+            this.controls.clear();
+        }
+        
+        int childCount = in.readVarInt();
+        
+        for (int i = 0; i < childCount; i++) {
+            // The child controls already have their client IDs, so adding them does not generate new ones
+            this.getControls().add(in.readControl());
+        }
+    }
+    
+    @Override
+    ContainerControl createSnapshot() {
+        ContainerControl snapshot = this.shallowClone();
+        ListIterator<Control> it = snapshot.controls.listIterator();
+        
+        // Unchanged child controls return their existing snapshots, so only the changed paths are copied
+        while (it.hasNext()) {
+            it.set(it.next().getSnapshot());
+        }
+        
+        snapshot.controls = Collections.unmodifiableList(snapshot.controls);
+        
+        return snapshot;
+    }
+    
     /**
      * A script that will be responsible to create the container for child controls on the client side.
      */
     protected String creationScript() {
-        return String.format(
-                "var %1$s = document.createElement('div');\n" +
-                "%1$s.id = '%1$s';\n", this.getClientId());
+        String clientId = this.getClientId();
+        
+        return "var " + clientId + " = document.createElement('" + TAG_NAME + "');\n" +
+                clientId + ".id = '" + clientId + "';\n";
     }
     
     @Override
     protected String getRenderScript(Control previousControlState) {
+        return this.writeRenderScriptToString(previousControlState);
+    }
+    
+    @Override
+    protected void writeRenderScript(Control previousControlState, Appendable out) throws IOException {
+        RenderWriter writer = RenderWriter.of(out);
+        
         if (previousControlState == null) {
-            return this.getCreateRenderScript();
+            this.writeCreateRenderScript(writer);
         } else {
-            return this.getUpdateRenderScript((ContainerControl)previousControlState);
+            this.writeUpdateRenderScript((ContainerControl)previousControlState, writer);
         }
     }
     
-    private String getCreateRenderScript() {
-        StringBuilder sbScript = new StringBuilder();
-        
-        sbScript.append(this.creationScript());
+    private void writeCreateRenderScript(RenderWriter writer) throws IOException {
+        if (hasDefaultCreationScript.get(this.getClass())) {
+            // The same element of the default creation script, but as an operation, which is not run as code when
+            // the writer is not writing JavaScript
+            writer.createElement(this, TAG_NAME);
+        } else {
+            writer.runCreationScript(this, this.creationScript());
+        }
         
         for (Control childControl : this.getControls()) {
-            String createChildControlScript = childControl.getRenderScript(null);
-            
-            sbScript.append(createChildControlScript);
-            sbScript.append(String.format("%s.appendChild(%s);\n",
-                    this.identificationToken(), childControl.identificationToken()));
+            childControl.writeRenderScript(null, writer);
+            writer.appendChild(this, childControl);
         }
-        
-        return sbScript.toString();
     }
     
-    private String getUpdateRenderScript(ContainerControl previousControlState) {
+    private void writeUpdateRenderScript(ContainerControl previousControlState, RenderWriter writer) throws IOException {
         // We expect that operations of adding, removing and changing child controls order will not be so common.
         // So we check first for the case which at most updates on child controls were made. Doing that we avoid
-        // running the Longest Common Subsequence algorithm (a heavy operation) for this simple case.
+        // the allocations of the reconciliation algorithm for this simple case.
         if (this.listsWithSameStructure(this.getControls(), previousControlState.getControls())) {
-            StringBuilder sbUpdateChildControlsScript = new StringBuilder();
-            
             Iterator<Control> currentChildControlsIterator = this.getControls().iterator();
             Iterator<Control> previousChildControlsIterator = previousControlState.getControls().iterator();
             
@@ -122,36 +206,77 @@ public class ContainerControl extends Control {
                 Control childControl = currentChildControlsIterator.next();
                 Control previousChildControl = previousChildControlsIterator.next();
                 
-                sbUpdateChildControlsScript.append(childControl.getRenderScript(previousChildControl));
+                if (!childControl.isUnchangedSince(previousChildControl)) {
+                    childControl.writeRenderScript(previousChildControl, writer);
+                }
             }
-            
-            return sbUpdateChildControlsScript.toString();
         } else {
-            StringBuilder sbRemoveChildControlsScript = new StringBuilder();
-            StringBuilder sbUpdateChildControlsScript = new StringBuilder();
-            StringBuilder sbAddAndChangeOrderChildControlsScript = new StringBuilder();
+            // The scripts are written in this order: removals, updates and, at last, additions and order changes.
+            // Only the last ones are buffered, because they are generated in the same loop of the updates.
+            RenderWriter addAndChangeOrderWriter = writer.createBuffer();
+            
+            List<Control> currentChildControls = this.getControls();
+            List<Control> previousChildControls = previousControlState.getControls();
             
-            List<Control> lcs = Lists.longestCommonSubsequence(this.getControls(),
-                    previousControlState.getControls(), clientIdComparator);
+            // Client IDs are unique inside a control collection, so the child controls can be treated as keyed
+            // permutations. The controls that keep their relative order are the ones whose previous indexes form the
+            // Longest Increasing Subsequence, which is the same result of the Longest Common Subsequence algorithm,
+            // but in O(n log n) time and O(n) space instead of O(n * m) for both.
+            Map<String, Integer> previousIndexesByClientId = new HashMap<>(previousChildControls.size());
+            
+            for (int i = 0; i < previousChildControls.size(); i++) {
+                previousIndexesByClientId.put(previousChildControls.get(i).getClientId(), i);
+            }
             
-            // These maps are used only to have constant-time performance for get operations.
-            // Doing that we avoid quadratic time complexity O(n^2).
-            Map<String, Control> lcsMap = Lists.toMap(lcs, Control::getClientId, Function.identity());
-            Map<String, Control> currentChildControlsMap = Lists.toMap(this.getControls(), Control::getClientId, Function.identity());
-            Map<String, Control> previousChildControlsMap = Lists.toMap(previousControlState.getControls(), Control::getClientId, Function.identity());
+            // The index on the previous list of each current child control, or -1 if the control was added
+            int[] previousIndexes = new int[currentChildControls.size()];
+            boolean[] previousChildControlsKept = new boolean[previousChildControls.size()];
+            int keptChildControlsCount = 0;
+            
+            for (int i = 0; i < currentChildControls.size(); i++) {
+                Integer previousIndex = previousIndexesByClientId.get(currentChildControls.get(i).getClientId());
+                
+                if (previousIndex != null) {
+                    previousIndexes[i] = previousIndex;
+                    previousChildControlsKept[previousIndex] = true;
+                    keptChildControlsCount++;
+                } else {
+                    previousIndexes[i] = -1;
+                }
+            }
+            
+            int[] keptChildControlsPreviousIndexes = new int[keptChildControlsCount];
+            int[] keptChildControlsCurrentIndexes = new int[keptChildControlsCount];
+            
+            for (int i = 0, j = 0; i < previousIndexes.length; i++) {
+                if (previousIndexes[i] != -1) {
+                    keptChildControlsPreviousIndexes[j] = previousIndexes[i];
+                    keptChildControlsCurrentIndexes[j] = i;
+                    j++;
+                }
+            }
+            
+            // Indexed by the current list
+            boolean[] childControlsInOrder = new boolean[currentChildControls.size()];
+            
+            for (int lisIndex : Lists.longestIncreasingSubsequence(keptChildControlsPreviousIndexes)) {
+                childControlsInOrder[keptChildControlsCurrentIndexes[lisIndex]] = true;
+            }
             
             // 1. Remove
             
-            for (Control previousChildControl : previousControlState.getControls()) {
-                if (!currentChildControlsMap.containsKey(previousChildControl.getClientId())) {
-                    sbRemoveChildControlsScript.append(previousChildControl.selectionScript());
-                    sbRemoveChildControlsScript.append(String.format("%s.remove();\n", previousChildControl.identificationToken()));
+            for (int i = 0; i < previousChildControls.size(); i++) {
+                if (!previousChildControlsKept[i]) {
+                    Control previousChildControl = previousChildControls.get(i);
+                    
+                    writer.select(previousChildControl);
+                    writer.remove(previousChildControl);
                 }
             }
             
             // 2. Update, Add and Order Changed
             
-            ListIterator<Control> reverseListIterator = this.getControls().listIterator(this.getControls().size());
+            ListIterator<Control> reverseListIterator = currentChildControls.listIterator(currentChildControls.size());
             Control previousLoopChildControl = null;
             // If a variable pointing to the previous control in the loop was already created
             boolean previousLoopChildControlIdentified = false;
@@ -162,91 +287,67 @@ public class ContainerControl extends Control {
             //   [1]: https://developer.mozilla.org/en-US/docs/Web/API/ChildNode/after
             //   [2]: https://caniuse.com/#feat=mdn-api_childnode_after
             while (reverseListIterator.hasPrevious()) {
+                int childControlIndex = reverseListIterator.previousIndex();
                 Control childControl = reverseListIterator.previous();
                 // If a variable pointing to the control was already created
                 boolean childControlIdentified = false;
                 
                 // There is five different situations to a control here:
                 // 
-                //   1. Belongs to the lcs
+                //   1. Kept its relative order
                 //     1.1. Was not updated
                 //     1.2. Was updated
                 //   
-                //   2. Does not belong to the lcs
+                //   2. Did not keep its relative order
                 //     2.1. Was moved
                 //       2.1.1. Was not updated
                 //       2.1.2. Was updated
                 //     2.2. Was added
                 //
                 
-                if (previousChildControlsMap.containsKey(childControl.getClientId())) {
-                    Control previousChildControlState = previousChildControlsMap.get(childControl.getClientId());
-                    String updateChildControlScript = childControl.getRenderScript(previousChildControlState);
+                if (previousIndexes[childControlIndex] != -1 &&
+                        !childControl.isUnchangedSince(previousChildControls.get(previousIndexes[childControlIndex]))) {
+                    Control previousChildControlState = previousChildControls.get(previousIndexes[childControlIndex]);
+                    long writeCountBeforeUpdate = writer.getWriteCount();
+                    
+                    childControl.writeRenderScript(previousChildControlState, writer);
                     
-                    if (!updateChildControlScript.isEmpty()) {
-                        sbUpdateChildControlsScript.append(updateChildControlScript);
+                    if (writer.getWriteCount() > writeCountBeforeUpdate) {
                         childControlIdentified = true;
                     }
                 }
                 
-                if (!lcsMap.containsKey(childControl.getClientId())) {
-                    if (previousChildControlsMap.containsKey(childControl.getClientId())) {
+                if (!childControlsInOrder[childControlIndex]) {
+                    if (previousIndexes[childControlIndex] != -1) {
                         // The element changed its order
                         if (!childControlIdentified) {
-                            sbAddAndChangeOrderChildControlsScript.append(childControl.selectionScript());
+                            addAndChangeOrderWriter.select(childControl);
                             childControlIdentified = true;
                         }
                     } else {
                         // The element was added
-                        sbAddAndChangeOrderChildControlsScript.append(childControl.getRenderScript(null));
+                        childControl.writeRenderScript(null, addAndChangeOrderWriter);
                         childControlIdentified = true;
                     }
                     
-                    String previousLoopChildControlIdentificationToken;
-                    
-                    if (previousLoopChildControl != null) {
-                        if (!previousLoopChildControlIdentified) {
-                            sbAddAndChangeOrderChildControlsScript.append(previousLoopChildControl.selectionScript());
-                        }
-                        
-                        previousLoopChildControlIdentificationToken = previousLoopChildControl.identificationToken();
-                    } else {
-                        // If referenceNode is null, the newNode is inserted at the end of the list of child nodes.
-                        previousLoopChildControlIdentificationToken = null;
+                    if (previousLoopChildControl != null && !previousLoopChildControlIdentified) {
+                        addAndChangeOrderWriter.select(previousLoopChildControl);
                     }
                     
-                    sbAddAndChangeOrderChildControlsScript.append(String.format("%s.insertBefore(%s, %s);\n",
-                            this.identificationToken(), childControl.identificationToken(), previousLoopChildControlIdentificationToken));
+                    // If the reference is null (the last child), the child is inserted at the end of the container
+                    addAndChangeOrderWriter.insertBefore(this, childControl, previousLoopChildControl);
                 }
                 
                 previousLoopChildControl = childControl;
                 previousLoopChildControlIdentified = childControlIdentified;
             }
             
-            StringBuilder sbScript;
-            
-            if (sbAddAndChangeOrderChildControlsScript.length() > 0) {
+            if (!addAndChangeOrderWriter.isEmpty()) {
                 // To use the insertBefore DOM method, we have to have a reference to the parent node,
                 // which is this control itself.
-                String selectionScript = this.selectionScript();
-                
-                sbScript = new StringBuilder(sbRemoveChildControlsScript.length() +
-                        sbUpdateChildControlsScript.length() +
-                        selectionScript.length() + sbAddAndChangeOrderChildControlsScript.length());
-                
-                sbScript.append(sbRemoveChildControlsScript);
-                sbScript.append(sbUpdateChildControlsScript);
-                sbScript.append(selectionScript);
-                sbScript.append(sbAddAndChangeOrderChildControlsScript);
-            } else {
-                sbScript = new StringBuilder(sbRemoveChildControlsScript.length() +
-                        sbUpdateChildControlsScript.length());
-                
-                sbScript.append(sbRemoveChildControlsScript);
-                sbScript.append(sbUpdateChildControlsScript);
+                writer.select(this);
+                writer.appendBuffer(addAndChangeOrderWriter);
             }
-            
-            return sbScript.toString();
         }
     }
     
@@ -24,7 +24,12 @@
 
 package io.gazeui.ui;
 
-public abstract class Control implements Cloneable {
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+
+@SuppressWarnings("serial")
+public abstract class Control implements Cloneable, Serializable {
     
     private ContainerControl parent;
     private Window window;
@@ -32,6 +37,8 @@ public abstract class Control implements Cloneable {
     // This ID is autogenerated when the control is added to some window. Another strategy could be generate the ID
     // in the getRenderScript method, but this would be another step that could overload the render process.
     private String clientId;
+    // An immutable copy of this control, shared by all the window snapshots taken while the control does not change
+    private transient Control snapshot;
     
     public ContainerControl getParent() {
         return this.parent;
@@ -56,8 +63,6 @@ public abstract class Control implements Cloneable {
     }
     
     void onAddToCollection(ContainerControl parent) {
-        boolean isControlWithoutWindow = this.getWindow() == null;
-        
         // Remove the new control from its old parent (if any)
         if (this.getParent() != null) {
             // The remove method will call onBeforeRemoveFromCollection
@@ -66,8 +71,10 @@ public abstract class Control implements Cloneable {
         
         this.parent = parent;
         
-        if (this.getWindow() != null && isControlWithoutWindow) {
-            // When a control gain a Window, we must set the ID of the control and all of its descendants
+        if (this.getWindow() != null) {
+            // When a control gain a Window, we must set the ID of the control and all of its descendants.
+            // This is also true for controls moved inside the same window, because the removal from the old parent
+            // has unregistered them from the window.
             this.setControlTreeIds(this);
         }
     }
@@ -83,6 +90,8 @@ public abstract class Control implements Cloneable {
             control.clientId = this.getWindow().generateAutomaticControlId();
         }
         
+        this.getWindow().registerControl(control);
+        
         if (control instanceof ContainerControl) {
             for (Control childControl : ((ContainerControl)control).getControls()) {
                 this.setControlTreeIds(childControl);
@@ -91,28 +100,106 @@ public abstract class Control implements Cloneable {
     }
     
     void onRemoveFromCollection() {
+        Window oldWindow = this.getWindow();
+        
+        if (oldWindow != null) {
+            // Done while the parent is still set, so the ancestors are recorded too
+            oldWindow.onBeforeControlTreeRemove(this);
+        }
+        
         this.parent = null;
-        this.detachControlTree(this);
+        this.detachControlTree(this, oldWindow);
     }
     
-    private void detachControlTree(Control control) {
+    private void detachControlTree(Control control, Window oldWindow) {
         // Remove the cached value
         control.window = null;
         
+        if (oldWindow != null) {
+            oldWindow.unregisterControl(control);
+        }
+        
         if (control instanceof ContainerControl) {
             for (Control childControl : ((ContainerControl)control).getControls()) {
-                this.detachControlTree(childControl);
+                this.detachControlTree(childControl, oldWindow);
             }
         }
     }
     
+    /**
+     * Must be called by subclasses before any change that affects the rendering of the control, so the window can
+     * track the change when its change journal is started.
+     */
+    protected void notifyBeforeChange() {
+        // The snapshot of every ancestor contains the snapshot of this control, so they are not valid anymore too.
+        // If an ancestor has no snapshot, the ancestors above it also have none.
+        for (Control control = this; control != null && control.snapshot != null; control = control.getParent()) {
+            control.snapshot = null;
+        }
+        
+        Window window = this.getWindow();
+        
+        if (window != null) {
+            window.onBeforeControlChange(this);
+        }
+    }
+    
+    /**
+     * A copy of the control state that shares the child controls (if any) with the original control.
+     */
+    Control shallowClone() {
+        return this.clone();
+    }
+    
+    Control getSnapshot() {
+        if (this.snapshot == null) {
+            this.snapshot = this.createSnapshot();
+        }
+        
+        return this.snapshot;
+    }
+    
+    Control createSnapshot() {
+        return this.shallowClone();
+    }
+    
+    /**
+     * Returns true if the previous state is known to be the current state of the control, without comparing them.
+     * That is the case when the previous state is the control itself or its current snapshot.
+     */
+    boolean isUnchangedSince(Control previousControlState) {
+        return previousControlState == this || previousControlState == this.snapshot;
+    }
+    
+    /**
+     * Writes the state of the control for the {@link ControlTreeCodec}. Subclasses with their own state must override
+     * this method and {@link #readState(ControlStateInput)}, calling the super methods first, and read the values in
+     * the same order they were written.
+     */
+    protected void writeState(ControlStateOutput out) {
+        out.writeClientId(this.clientId);
+    }
+    
+    /**
+     * Reads the state written by {@link #writeState(ControlStateOutput)} into a control just created by the factory
+     * registered in the {@link ControlTreeCodec}.
+     */
+    protected void readState(ControlStateInput in) {
+        this.clientId = in.readClientId();
+    }
+    
     @Override
     protected Control clone() {
         // This method is only to make the clone method visible for classes in the same package.
         // This will allow the ContainerControl to clone your child controls.
         
         try {
-            return (Control)super.clone();
+            Control clonedControl = (Control)super.clone();
+            
+            // The snapshot belongs to this control only
+            clonedControl.snapshot = null;
+            
+            return clonedControl;
         } catch (CloneNotSupportedException ex) {
             // Never happens, once Control is implementing Cloneable. 
             throw new RuntimeException(ex);
@@ -133,7 +220,9 @@ public abstract class Control implements Cloneable {
      * to use the token returned by the {@link #identificationToken()} method to reach the control.
      */
     protected String selectionScript() {
-        return String.format("var %1$s = document.getElementById('%1$s');\n", this.getClientId());
+        String clientId = this.getClientId();
+        
+        return "var " + clientId + " = document.getElementById('" + clientId + "');\n";
     }
     
     /**
@@ -145,4 +234,31 @@ public abstract class Control implements Cloneable {
     }
     
     protected abstract String getRenderScript(Control previousControlState);
+    
+    /**
+     * Writes the render script to the given output, so big scripts can be sent to the client without being built as
+     * a string first. Container controls render their child controls through this method.
+     * 
+     * The default implementation appends the result of {@link #getRenderScript(Control)}. The built-in controls
+     * do the opposite, so their subclasses which change the rendering must override this method too.
+     */
+    protected void writeRenderScript(Control previousControlState, Appendable out) throws IOException {
+        out.append(this.getRenderScript(previousControlState));
+    }
+    
+    /**
+     * Implements {@link #getRenderScript(Control)} over {@link #writeRenderScript(Control, Appendable)}.
+     */
+    String writeRenderScriptToString(Control previousControlState) {
+        StringBuilder sbScript = new StringBuilder();
+        
+        try {
+            this.writeRenderScript(previousControlState, sbScript);
+        } catch (IOException ex) {
+            // Never happens, once StringBuilder does not throw IOException
+            throw new UncheckedIOException(ex);
+        }
+        
+        return sbScript.toString();
+    }
 }
\ No newline at end of file
@@ -24,6 +24,7 @@
 
 package io.gazeui.ui;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -33,7 +34,8 @@ import java.util.ListIterator;
 import java.util.Objects;
 import java.util.Set;
 
-class ControlCollection implements List<Control> {
+@SuppressWarnings("serial")
+class ControlCollection implements List<Control>, Serializable {
     /*
      * 1. The collection must be in the same package of Control to be possible to call the
      *    onAddToCollection and onRemoveFromCollection methods. We think to be unnecessary to use observers
@@ -48,6 +50,9 @@ class ControlCollection implements List<Control> {
      *         elements.
      *    
      *    Therefore, we decided to use List and restrict duplicate elements by ourselves.
+     * 
+     * 3. Every modification operation notifies the owner before changing the list, so the change journal of the
+     *    window can keep the previous list of child controls.
      */
     
     private final ContainerControl owner;
@@ -55,7 +60,7 @@ class ControlCollection implements List<Control> {
     private final List<Control> innerList;
     
     public ControlCollection(ContainerControl owner) {
-        // The Longest Common Subsequence algorithm requires a lot of access by index, so the use of an ArrayList.
+        // The reconciliation of child controls on rendering requires a lot of access by index, so the use of an ArrayList.
         this(owner, new ArrayList<Control>());
     }
     
@@ -66,6 +71,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public boolean add(Control control) {
+        this.owner.notifyBeforeChange();
+        
         if (control.getParent() == this.owner) {
             // Send the control to the end of the list
             this.innerList.remove(control);
@@ -78,6 +85,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public void add(int index, Control control) {
+        this.owner.notifyBeforeChange();
+        
         if (control.getParent() == this.owner) {
             this.innerList.remove(control);
         } else {
@@ -89,6 +98,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public boolean addAll(Collection<? extends Control> c) {
+        this.owner.notifyBeforeChange();
+        
         Set<Control> uniqueCollection = new LinkedHashSet<>(c);
         
         for (Control control : uniqueCollection) {
@@ -104,6 +115,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public boolean addAll(int index, Collection<? extends Control> c) {
+        this.owner.notifyBeforeChange();
+        
         Set<Control> uniqueCollection = new LinkedHashSet<>(c);
         
         for (Control control : uniqueCollection) {
@@ -119,6 +132,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public Control set(int index, Control control) {
+        this.owner.notifyBeforeChange();
+        
         Control previousControl;
         
         if (control.getParent() == this.owner) {
@@ -139,6 +154,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public boolean remove(Object o) {
+        this.owner.notifyBeforeChange();
+        
         boolean result = this.innerList.remove(o);
         
         if (result) {
@@ -150,6 +167,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public Control remove(int index) {
+        this.owner.notifyBeforeChange();
+        
         Control removedControl = this.innerList.remove(index);
         removedControl.onRemoveFromCollection();
         
@@ -158,6 +177,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public boolean removeAll(Collection<?> c) {
+        this.owner.notifyBeforeChange();
+        
         // Avoid call the onRemoveFromCollection method multiple times for the same element
         Set<Object> uniqueCollection = new LinkedHashSet<>(c);
         
@@ -172,6 +193,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public boolean retainAll(Collection<?> c) {
+        this.owner.notifyBeforeChange();
+        
         for (Control control : this.innerList) {
             if (!c.contains(control)) {
                 control.onRemoveFromCollection();
@@ -183,6 +206,8 @@ class ControlCollection implements List<Control> {
     
     @Override
     public void clear() {
+        this.owner.notifyBeforeChange();
+        
         for (Control control : this.innerList) {
             control.onRemoveFromCollection();
         }
@@ -238,6 +263,8 @@ class ControlCollection implements List<Control> {
         
         @Override
         public void remove() {
+            ControlCollection.this.owner.notifyBeforeChange();
+            
             this.innerIterator.remove();
             this.getLastReturnedElement().onRemoveFromCollection();
         }
@@ -267,6 +294,8 @@ class ControlCollection implements List<Control> {
         @Override
         public void add(Control control) {
             if (control.getParent() != ControlCollection.this.owner) {
+                ControlCollection.this.owner.notifyBeforeChange();
+                
                 this.innerIterator.add(control);
                 control.onAddToCollection(ControlCollection.this.owner);
             } else {
@@ -282,6 +311,8 @@ class ControlCollection implements List<Control> {
         @Override
         public void set(Control control) {
             if (control.getParent() != ControlCollection.this.owner) {
+                ControlCollection.this.owner.notifyBeforeChange();
+                
                 this.innerIterator.set(control);
                 
                 this.getLastReturnedElement().onRemoveFromCollection();
@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import io.gazeui.ui.event.EventArgs;
+import io.gazeui.ui.event.EventHandler;
+
+/**
+ * Where the controls read their state from when decoded by the {@link ControlTreeCodec}, in the same order it was
+ * written to the {@link ControlStateOutput}.
+ */
+public final class ControlStateInput {
+    
+    private final ControlTreeCodec codec;
+    private final byte[] bytes;
+    private int position;
+    private final List<Supplier<? extends Control>> controlFactories = new ArrayList<>();
+    private final List<String> strings = new ArrayList<>();
+    // The controls already read, for the references to them
+    private final Map<String, Control> controlsByClientId = new HashMap<>();
+    
+    ControlStateInput(ControlTreeCodec codec, byte[] bytes) {
+        this.codec = codec;
+        this.bytes = bytes;
+    }
+    
+    public int readVarInt() {
+        int value = 0;
+        
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = this.readByte();
+            value |= (b & 0x7F) << shift;
+            
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        
+        throw new GazeUIException(ErrorMessage.COULD_NOT_DECODE_MALFORMED_INPUT.getMessage());
+    }
+    
+    public boolean readBoolean() {
+        return this.readByte() != 0;
+    }
+    
+    public String readString() {
+        int index = this.readVarInt() - 1;
+        
+        if (index == -1) {
+            return null;
+        } else if (index >= 0 && index < this.strings.size()) {
+            return this.strings.get(index);
+        } else if (index == this.strings.size()) {
+            int length = this.readVarInt();
+            
+            if (length < 0 || length > this.bytes.length - this.position) {
+                throw new GazeUIException(ErrorMessage.COULD_NOT_DECODE_MALFORMED_INPUT.getMessage());
+            }
+            
+            String value = new String(this.bytes, this.position, length, StandardCharsets.UTF_8);
+            this.position += length;
+            this.strings.add(value);
+            
+            return value;
+        } else {
+            throw new GazeUIException(ErrorMessage.COULD_NOT_DECODE_MALFORMED_INPUT.getMessage());
+        }
+    }
+    
+    /**
+     * Reads an event handler, resolved by the name it was registered with in the codec.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends EventArgs> EventHandler<T> readEventHandler() {
+        return (EventHandler<T>)this.codec.getEventHandler(this.readString());
+    }
+    
+    /**
+     * Reads a control with its state, including its child controls.
+     */
+    public Control readControl() {
+        int classIndex = this.readVarInt();
+        Supplier<? extends Control> controlFactory;
+        
+        if (classIndex >= 0 && classIndex < this.controlFactories.size()) {
+            controlFactory = this.controlFactories.get(classIndex);
+        } else if (classIndex == this.controlFactories.size()) {
+            controlFactory = this.codec.getControlFactory(this.readString());
+            this.controlFactories.add(controlFactory);
+        } else {
+            throw new GazeUIException(ErrorMessage.COULD_NOT_DECODE_MALFORMED_INPUT.getMessage());
+        }
+        
+        Control control = controlFactory.get();
+        control.readState(this);
+        
+        if (control.getClientId() != null) {
+            this.controlsByClientId.put(control.getClientId(), control);
+        }
+        
+        return control;
+    }
+    
+    /**
+     * Reads a reference to a control already read, which may be null.
+     */
+    public Control readControlReference() {
+        String clientId = this.readClientId();
+        
+        if (clientId == null) {
+            return null;
+        }
+        
+        Control control = this.controlsByClientId.get(clientId);
+        
+        if (control == null) {
+            throw new GazeUIException(
+                    String.format(ErrorMessage.COULD_NOT_DECODE_CONTROL_ID_NOT_FOUND.getMessage(), clientId));
+        }
+        
+        return control;
+    }
+    
+    String readClientId() {
+        int value = this.readVarInt();
+        
+        if (value == 0) {
+            return null;
+        } else if (value == 1) {
+            return this.readString();
+        } else if (value > 1) {
+            return Window.getAutomaticControlId(value - 1);
+        } else {
+            throw new GazeUIException(ErrorMessage.COULD_NOT_DECODE_MALFORMED_INPUT.getMessage());
+        }
+    }
+    
+    private int readByte() {
+        if (this.position == this.bytes.length) {
+            throw new GazeUIException(ErrorMessage.COULD_NOT_DECODE_MALFORMED_INPUT.getMessage());
+        }
+        
+        return this.bytes[this.position++] & 0xFF;
+    }
+}
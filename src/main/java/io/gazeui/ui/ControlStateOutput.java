@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.gazeui.ui.event.EventHandler;
+
+/**
+ * Where the controls write their state when encoded by the {@link ControlTreeCodec}.
+ */
+public final class ControlStateOutput {
+    
+    private final ControlTreeCodec codec;
+    private final Map<Class<?>, Integer> classIndexes = new HashMap<>();
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private byte[] buffer = new byte[256];
+    private int size;
+    
+    ControlStateOutput(ControlTreeCodec codec) {
+        this.codec = codec;
+    }
+    
+    /**
+     * Writes an int in 1 to 5 bytes, 7 bits per byte, so small values take a single byte. Negative values always
+     * take 5 bytes.
+     */
+    public void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            this.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        
+        this.writeByte(value);
+    }
+    
+    public void writeBoolean(boolean value) {
+        this.writeByte(value ? 1 : 0);
+    }
+    
+    /**
+     * Writes a string, which may be null. A string already written is written again as its index only.
+     */
+    public void writeString(String value) {
+        // 0 is null, and the other values are the indexes in the table plus 1
+        if (value == null) {
+            this.writeVarInt(0);
+            return;
+        }
+        
+        Integer index = this.stringIndexes.get(value);
+        
+        if (index != null) {
+            this.writeVarInt(index + 1);
+        } else {
+            // A new string has the next index, followed by its content
+            int newIndex = this.stringIndexes.size();
+            this.stringIndexes.put(value, newIndex);
+            this.writeVarInt(newIndex + 1);
+            
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.writeVarInt(bytes.length);
+            this.writeBytes(bytes);
+        }
+    }
+    
+    /**
+     * Writes the name the event handler was registered with in the codec.
+     */
+    public void writeEventHandler(EventHandler<?> eventHandler) {
+        this.writeString(this.codec.getEventHandlerName(eventHandler));
+    }
+    
+    /**
+     * Writes a control with its state, including its child controls.
+     */
+    public void writeControl(Control control) {
+        Class<?> controlClass = control.getClass();
+        Integer classIndex = this.classIndexes.get(controlClass);
+        
+        if (classIndex != null) {
+            this.writeVarInt(classIndex);
+        } else {
+            // Failing now instead of when decoding, which could be in another server, long after
+            this.codec.getControlFactory(controlClass.getName());
+            
+            // A new class has the next index, followed by its name
+            int newClassIndex = this.classIndexes.size();
+            this.classIndexes.put(controlClass, newClassIndex);
+            this.writeVarInt(newClassIndex);
+            this.writeString(controlClass.getName());
+        }
+        
+        control.writeState(this);
+    }
+    
+    /**
+     * Writes a reference to a control of the window, which may be null. When decoding, the reference can be read
+     * only after the control itself, so a window should write its references after its child controls.
+     */
+    public void writeControlReference(Control control) {
+        if (control != null && control.getClientId() == null) {
+            throw new IllegalArgumentException(
+                    String.format(ErrorMessage.CODEC_CONTROL_WITHOUT_ID_REFERENCED.getMessage(), control));
+        }
+        
+        this.writeClientId(control != null ? control.getClientId() : null);
+    }
+    
+    void writeClientId(String clientId) {
+        // 0 is null, 1 is followed by an ID that was not generated automatically, and the other values are the numbers
+        // of the automatic IDs plus 1
+        int controlNumber = Window.getAutomaticControlNumber(clientId);
+        
+        if (controlNumber != -1) {
+            this.writeVarInt(controlNumber + 1);
+        } else if (clientId == null) {
+            this.writeVarInt(0);
+        } else {
+            this.writeVarInt(1);
+            this.writeString(clientId);
+        }
+    }
+    
+    private void writeByte(int value) {
+        if (this.size == this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        }
+        
+        this.buffer[this.size++] = (byte)value;
+    }
+    
+    private void writeBytes(byte[] bytes) {
+        if (this.size + bytes.length > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + bytes.length));
+        }
+        
+        System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+        this.size += bytes.length;
+    }
+    
+    byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.size);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import io.gazeui.ui.event.EventHandler;
+
+/**
+ * Converts windows to a compact binary form and back, so they can be kept outside of the heap, in files or in other
+ * servers. Each control writes its own state, by the {@link Control#writeState(ControlStateOutput)} method, and the
+ * encoding avoids repeating what repeats in a control tree:
+ * 
+ * - The automatic client IDs are written as varints of their numbers.
+ * - Class names are written only once, and then as their indexes in a table of classes.
+ * - Strings are written only once too, and then as their indexes in a table of strings.
+ * - Event handlers are code, so they are written as the names they were registered with, and resolved by the same
+ *   names when decoding.
+ * 
+ * The window classes and any custom control class must be registered with a factory, which creates the controls
+ * when decoding. The registered event handlers must be the same instances added to the controls and should not
+ * capture any control, because the decoded window has new controls: they can reach them by the event source.
+ * 
+ * The registrations must be done before the codec is used, which is thread-safe after that.
+ */
+public final class ControlTreeCodec {
+    
+    // Written first, so encoded windows with another format can be detected
+    static final int FORMAT_VERSION = 1;
+    
+    private final Map<String, Supplier<? extends Control>> controlFactories = new ConcurrentHashMap<>();
+    private final Map<String, EventHandler<?>> eventHandlersByName = new ConcurrentHashMap<>();
+    // Handlers do not override equals and hashCode, so they are found by their identity
+    private final Map<EventHandler<?>, String> eventHandlerNames = new ConcurrentHashMap<>();
+    
+    public ControlTreeCodec() {
+        this.registerControlType(ContainerControl.class, ContainerControl::new);
+        this.registerControlType(Label.class, Label::new);
+        this.registerControlType(Button.class, Button::new);
+    }
+    
+    /**
+     * Registers the factory that creates the controls of the given class when decoding. A window created by the
+     * factory may already have child controls, which are replaced by the decoded ones.
+     */
+    public <T extends Control> ControlTreeCodec registerControlType(Class<T> controlClass,
+            Supplier<? extends T> factory) {
+        this.controlFactories.put(controlClass.getName(), Objects.requireNonNull(factory));
+        
+        return this;
+    }
+    
+    /**
+     * Registers an event handler under a name that is unique in this codec and stable across the servers that
+     * decode the windows.
+     */
+    public synchronized ControlTreeCodec registerEventHandler(String name, EventHandler<?> eventHandler) {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(eventHandler);
+        
+        EventHandler<?> registeredEventHandler = this.eventHandlersByName.get(name);
+        String registeredName = this.eventHandlerNames.get(eventHandler);
+        
+        if ((registeredEventHandler != null && registeredEventHandler != eventHandler) ||
+                (registeredName != null && !registeredName.equals(name))) {
+            throw new IllegalArgumentException(
+                    String.format(ErrorMessage.CODEC_EVENT_HANDLER_ALREADY_REGISTERED.getMessage(), name));
+        }
+        
+        this.eventHandlersByName.put(name, eventHandler);
+        this.eventHandlerNames.put(eventHandler, name);
+        
+        return this;
+    }
+    
+    public byte[] encode(Window window) {
+        ControlStateOutput out = new ControlStateOutput(this);
+        
+        out.writeVarInt(FORMAT_VERSION);
+        out.writeControl(window);
+        
+        return out.toByteArray();
+    }
+    
+    public Window decode(byte[] bytes) {
+        ControlStateInput in = new ControlStateInput(this, bytes);
+        int formatVersion = in.readVarInt();
+        
+        if (formatVersion != FORMAT_VERSION) {
+            String errorMessage = String.format(
+                    ErrorMessage.COULD_NOT_DECODE_UNSUPPORTED_FORMAT_VERSION.getMessage(), formatVersion);
+            
+            throw new GazeUIException(errorMessage);
+        }
+        
+        Control control = in.readControl();
+        
+        if (!(control instanceof Window)) {
+            throw new GazeUIException(String.format(ErrorMessage.COULD_NOT_DECODE_NOT_A_WINDOW.getMessage(),
+                    control.getClass().getName()));
+        }
+        
+        return (Window)control;
+    }
+    
+    Supplier<? extends Control> getControlFactory(String className) {
+        Supplier<? extends Control> factory = this.controlFactories.get(className);
+        
+        if (factory == null) {
+            throw new GazeUIException(
+                    String.format(ErrorMessage.CODEC_CONTROL_TYPE_NOT_REGISTERED.getMessage(), className));
+        }
+        
+        return factory;
+    }
+    
+    String getEventHandlerName(EventHandler<?> eventHandler) {
+        String name = this.eventHandlerNames.get(eventHandler);
+        
+        if (name == null) {
+            throw new GazeUIException(
+                    String.format(ErrorMessage.CODEC_EVENT_HANDLER_NOT_REGISTERED.getMessage(), eventHandler));
+        }
+        
+        return name;
+    }
+    
+    EventHandler<?> getEventHandler(String name) {
+        EventHandler<?> eventHandler = this.eventHandlersByName.get(name);
+        
+        if (eventHandler == null) {
+            throw new GazeUIException(
+                    String.format(ErrorMessage.CODEC_EVENT_HANDLER_NOT_REGISTERED.getMessage(), name));
+        }
+        
+        return eventHandler;
+    }
+}
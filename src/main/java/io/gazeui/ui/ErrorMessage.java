@@ -28,10 +28,25 @@ enum ErrorMessage {
     CONTROL_COLLECTION_MUST_HAVE_OWNER("The collection must have an owner"),
     CONTROL_COLLECTION_ADD_SET_EXISTING_ELEMENT_USING_ITERATOR("It is not possible to add/set an existing element to the controls collection using an iterator"),
     
+    CHANGE_JOURNAL_NOT_STARTED("The change journal of the window was not started"),
+    
     HTML_VALIDATION_TITLE_MUST_NOT_BE_EMPTY("According to the HTML specification, the title element must contain at least one non-whitespace character"),
     
+    HTML_RENDER_CODE_NOT_SUPPORTED("Could not render the window as HTML: JavaScript code can not be written as markup"),
+    HTML_RENDER_CONTROL_NOT_SUPPORTED("Could not render the window as HTML: The control '%s' is created by JavaScript code"),
+    HTML_RENDER_UPDATE_NOT_SUPPORTED("Could not render the window as HTML: Only the creation of a window can be written as markup, not its changes"),
+    
     COULD_NOT_PROCESS_EVENT("Could not process event '%s' on control '%s'"),
-    COULD_NOT_PROCESS_EVENT_CONTROL_ID_NOT_FOUND("Could not process event '%s': Control Id '%s' not found");
+    COULD_NOT_PROCESS_EVENT_CONTROL_ID_NOT_FOUND("Could not process event '%s': Control Id '%s' not found"),
+    
+    CODEC_CONTROL_TYPE_NOT_REGISTERED("The control class '%s' is not registered in the codec"),
+    CODEC_EVENT_HANDLER_NOT_REGISTERED("The event handler '%s' is not registered in the codec"),
+    CODEC_EVENT_HANDLER_ALREADY_REGISTERED("The event handler '%s' or its name is already registered in the codec"),
+    CODEC_CONTROL_WITHOUT_ID_REFERENCED("Could not encode a reference to the control '%s', which has no client Id"),
+    COULD_NOT_DECODE_UNSUPPORTED_FORMAT_VERSION("Could not decode the window: Unsupported format version %d"),
+    COULD_NOT_DECODE_MALFORMED_INPUT("Could not decode the window: The input is truncated or malformed"),
+    COULD_NOT_DECODE_NOT_A_WINDOW("Could not decode the window: The root control is a '%s'"),
+    COULD_NOT_DECODE_CONTROL_ID_NOT_FOUND("Could not decode the window: Referenced control Id '%s' not found");
     
     private final String message;
     
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.gazeui.ui.event.ControlEventDispatcher;
+import io.gazeui.ui.event.GazeEvent;
+
+/**
+ * Runs the method that processes an event on a control.
+ * 
+ * The dispatchers generated at compile time for the {@link GazeEvent} methods are used first, from the control class
+ * up to its superclasses. Without them, the method is searched by the naming convention "processOn{EventName}Event",
+ * by reflection, only once per control class and event name, and kept as a method handle. After the first event,
+ * dispatching is either a switch on the event name or a map lookup and a direct call.
+ */
+final class EventDispatcher {
+    
+    private static final MethodType EVENT_METHOD_TYPE = MethodType.methodType(Object.class, Control.class);
+    
+    private static final ClassValue<ControlClassEvents> CONTROL_CLASS_EVENTS = new ClassValue<ControlClassEvents>() {
+        
+        @Override
+        protected ControlClassEvents computeValue(Class<?> controlClass) {
+            return new ControlClassEvents(controlClass);
+        }
+    };
+    
+    private EventDispatcher() {
+        // No instances allowed
+    }
+    
+    /**
+     * Runs the method that processes the event and returns its result, which is null for void methods.
+     */
+    static Object dispatch(Control control, String eventName) {
+        ControlClassEvents controlClassEvents = CONTROL_CLASS_EVENTS.get(control.getClass());
+        
+        try {
+            // The event name comes from the client, so it may be null, which is not allowed in a switch
+            if (eventName != null) {
+                for (ControlEventDispatcher generatedDispatcher : controlClassEvents.generatedDispatchers) {
+                    Object result = generatedDispatcher.dispatch(control, eventName);
+                    
+                    if (result != ControlEventDispatcher.NO_EVENT_METHOD) {
+                        return result;
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            throw new GazeUIException(getCouldNotProcessEventMessage(control, eventName), ex);
+        }
+        
+        MethodHandle eventMethod = controlClassEvents.getEventMethod(control, eventName);
+        
+        try {
+            return (Object)eventMethod.invokeExact(control);
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new GazeUIException(getCouldNotProcessEventMessage(control, eventName), ex);
+        }
+    }
+    
+    private static String getCouldNotProcessEventMessage(Control control, String eventName) {
+        return String.format(ErrorMessage.COULD_NOT_PROCESS_EVENT.getMessage(), eventName, control.toString());
+    }
+    
+    /**
+     * The ways to dispatch the events of a control class.
+     */
+    private static final class ControlClassEvents {
+        
+        private final ControlEventDispatcher[] generatedDispatchers;
+        private final ConcurrentMap<String, MethodHandle> eventMethods = new ConcurrentHashMap<>();
+        
+        ControlClassEvents(Class<?> controlClass) {
+            List<ControlEventDispatcher> generatedDispatchers = new ArrayList<>();
+            
+            for (Class<?> type = controlClass; type != Object.class; type = type.getSuperclass()) {
+                ControlEventDispatcher generatedDispatcher = loadGeneratedDispatcher(type);
+                
+                if (generatedDispatcher != null) {
+                    generatedDispatchers.add(generatedDispatcher);
+                }
+            }
+            
+            this.generatedDispatchers = generatedDispatchers.toArray(new ControlEventDispatcher[0]);
+        }
+        
+        private static ControlEventDispatcher loadGeneratedDispatcher(Class<?> type) {
+            String packagePrefix = type.getName().substring(0, type.getName().lastIndexOf('.') + 1);
+            String dispatcherName = packagePrefix +
+                    type.getName().substring(packagePrefix.length()).replace('$', '_') +
+                    ControlEventDispatcher.CLASS_NAME_SUFFIX;
+            
+            try {
+                Class<?> dispatcherClass = Class.forName(dispatcherName, true, type.getClassLoader());
+                
+                return (ControlEventDispatcher)dispatcherClass.getConstructor().newInstance();
+            } catch (ClassNotFoundException ex) {
+                // The class was not compiled with the annotation processor, or has no @GazeEvent methods
+                return null;
+            } catch (ReflectiveOperationException | ClassCastException ex) {
+                throw new GazeUIException("Could not load the event dispatcher " + dispatcherName, ex);
+            }
+        }
+        
+        MethodHandle getEventMethod(Control control, String eventName) {
+            MethodHandle eventMethod = eventName != null ? this.eventMethods.get(eventName) : null;
+            
+            if (eventMethod == null) {
+                // Events not found are not cached, otherwise the clients could fill the map with made-up event names
+                eventMethod = findEventMethod(control, eventName);
+                this.eventMethods.putIfAbsent(String.valueOf(eventName), eventMethod);
+            }
+            
+            return eventMethod;
+        }
+        
+        private static MethodHandle findEventMethod(Control control, String eventName) {
+            String eventMethodName = "processOn" + eventName + "Event";
+            NoSuchMethodException notFoundException = null;
+            
+            for (Class<?> type = control.getClass(); type != Object.class; type = type.getSuperclass()) {
+                try {
+                    Method method = type.getDeclaredMethod(eventMethodName);
+                    
+                    if (!Modifier.isStatic(method.getModifiers())) {
+                        // Void methods return null and primitive results are boxed
+                        return MethodHandles.lookup().unreflect(method).asType(EVENT_METHOD_TYPE);
+                    }
+                } catch (NoSuchMethodException ex) {
+                    if (notFoundException == null) {
+                        notFoundException = ex;
+                    }
+                } catch (SecurityException | IllegalAccessException ex) {
+                    throw new GazeUIException(getCouldNotProcessEventMessage(control, eventName), ex);
+                }
+            }
+            
+            throw new GazeUIException(getCouldNotProcessEventMessage(control, eventName), notFoundException);
+        }
+    }
+}
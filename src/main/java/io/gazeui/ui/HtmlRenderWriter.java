@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.gazeui.ui.text.Strings;
+
+/**
+ * Writes the creation of a window as the HTML markup of the contents of its body, which the browser parses without
+ * running any code. The event listeners can not be added by markup, so their event types are listed in the
+ * {@value #EVENT_LISTENERS_ATTRIBUTE} attribute, and added by the client runtime when the page is loaded.
+ * 
+ * Only the operations of the built-in controls can be written as markup, so a control rendered by JavaScript code
+ * fails the rendering. The document title is not written either, because it is not part of the body.
+ * 
+ * The elements are kept until the {@link #finish()} method, because a child is created before it is appended.
+ */
+final class HtmlRenderWriter extends RenderWriter {
+    
+    static final String EVENT_LISTENERS_ATTRIBUTE = "data-event-listeners";
+    
+    private final Appendable out;
+    // The children of the document body (the window)
+    private final List<HtmlElement> bodyChildren = new ArrayList<>();
+    private final Map<String, HtmlElement> elementsById = new HashMap<>();
+    
+    HtmlRenderWriter(Appendable out) {
+        this.out = out;
+    }
+    
+    @Override
+    public HtmlRenderWriter append(CharSequence csq) {
+        throw new GazeUIException(ErrorMessage.HTML_RENDER_CODE_NOT_SUPPORTED.getMessage());
+    }
+    
+    @Override
+    public HtmlRenderWriter append(CharSequence csq, int start, int end) {
+        throw new GazeUIException(ErrorMessage.HTML_RENDER_CODE_NOT_SUPPORTED.getMessage());
+    }
+    
+    @Override
+    public HtmlRenderWriter append(char c) {
+        throw new GazeUIException(ErrorMessage.HTML_RENDER_CODE_NOT_SUPPORTED.getMessage());
+    }
+    
+    @Override
+    public void finish() throws IOException {
+        for (HtmlElement element : this.bodyChildren) {
+            element.write(this.out);
+        }
+    }
+    
+    @Override
+    RenderWriter createBuffer() {
+        // Only the updates are buffered, and they are written as scripts
+        throw new GazeUIException(ErrorMessage.HTML_RENDER_UPDATE_NOT_SUPPORTED.getMessage());
+    }
+    
+    @Override
+    void appendBuffer(RenderWriter buffer) {
+        throw new GazeUIException(ErrorMessage.HTML_RENDER_UPDATE_NOT_SUPPORTED.getMessage());
+    }
+    
+    @Override
+    void createElement(Control control, String tagName) {
+        HtmlElement element = new HtmlElement(tagName, control.getClientId());
+        
+        this.elementsById.put(element.id, element);
+        this.countWrite();
+    }
+    
+    @Override
+    void runCreationScript(Control control, String creationScript) {
+        // The window has no creation script, because the body is its element
+        if (!creationScript.isEmpty()) {
+            throw newScriptNotSupportedException(control);
+        }
+    }
+    
+    @Override
+    void select(Control control) {
+        // The elements are found by ID when needed
+    }
+    
+    @Override
+    void setTextContent(Control control, String text) {
+        HtmlElement element = this.getElement(control);
+        
+        element.children.clear();
+        element.text = text;
+        this.countWrite();
+    }
+    
+    @Override
+    void setDocumentTitle(String title) {
+        // Written by the head of the page, which is not written by this writer
+    }
+    
+    @Override
+    void appendChild(Control parent, Control child) {
+        this.insertBefore(parent, child, null);
+    }
+    
+    @Override
+    void insertBefore(Control parent, Control child, Control reference) {
+        List<HtmlElement> children = this.getChildren(parent);
+        HtmlElement childElement = this.getElement(child);
+        
+        children.remove(childElement);
+        
+        int referenceIndex = reference != null ? children.indexOf(this.getElement(reference)) : -1;
+        
+        if (referenceIndex >= 0) {
+            children.add(referenceIndex, childElement);
+        } else {
+            children.add(childElement);
+        }
+        
+        this.countWrite();
+    }
+    
+    @Override
+    void remove(Control control) {
+        HtmlElement element = this.getElement(control);
+        
+        this.bodyChildren.remove(element);
+        
+        for (HtmlElement parentElement : this.elementsById.values()) {
+            parentElement.children.remove(element);
+        }
+        
+        this.countWrite();
+    }
+    
+    @Override
+    void addEventListener(Control control, String eventType) {
+        this.getElement(control).eventTypes.add(eventType);
+        this.countWrite();
+    }
+    
+    @Override
+    void removeEventListener(Control control, String eventType) {
+        this.getElement(control).eventTypes.remove(eventType);
+        this.countWrite();
+    }
+    
+    private HtmlElement getElement(Control control) {
+        HtmlElement element = this.elementsById.get(control.getClientId());
+        
+        if (element == null) {
+            // Not created by this writer, so it was created by JavaScript code
+            throw newScriptNotSupportedException(control);
+        }
+        
+        return element;
+    }
+    
+    private List<HtmlElement> getChildren(Control parent) {
+        if (parent instanceof Window) {
+            return this.bodyChildren;
+        } else {
+            HtmlElement parentElement = this.getElement(parent);
+            
+            // The text content is replaced by the children, as the browser would do
+            parentElement.text = null;
+            
+            return parentElement.children;
+        }
+    }
+    
+    private static GazeUIException newScriptNotSupportedException(Control control) {
+        return new GazeUIException(String.format(ErrorMessage.HTML_RENDER_CONTROL_NOT_SUPPORTED.getMessage(),
+                control));
+    }
+    
+    private static class HtmlElement {
+        
+        private final String tagName;
+        private final String id;
+        private final List<HtmlElement> children = new ArrayList<>();
+        // In the order they were added, so the same tree is always written the same way
+        private final Set<String> eventTypes = new LinkedHashSet<>();
+        private String text;
+        
+        private HtmlElement(String tagName, String id) {
+            this.tagName = tagName;
+            this.id = id;
+        }
+        
+        /**
+         * &lt;{tagName} id='{id}' data-event-listeners='{eventType} ...'&gt;{text or children}&lt;/{tagName}&gt;
+         */
+        private void write(Appendable out) throws IOException {
+            out.append('<').append(this.tagName).append(" id='");
+            Strings.appendHtmlEscaped(this.id, out);
+            out.append('\'');
+            
+            if (!this.eventTypes.isEmpty()) {
+                out.append(' ').append(EVENT_LISTENERS_ATTRIBUTE).append("='")
+                        .append(String.join(" ", this.eventTypes)).append('\'');
+            }
+            
+            out.append('>');
+            
+            if (this.text != null) {
+                Strings.appendHtmlEscaped(this.text, out);
+            } else {
+                for (HtmlElement child : this.children) {
+                    child.write(out);
+                }
+            }
+            
+            out.append("</").append(this.tagName).append('>');
+        }
+    }
+}
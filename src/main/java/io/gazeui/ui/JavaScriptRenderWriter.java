@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the operations as JavaScript statements. The literal parts of the statements are constants which are
+ * appended directly to the output, together with the client IDs and values, so the rendering neither parses format
+ * strings nor creates intermediate strings.
+ */
+final class JavaScriptRenderWriter extends RenderWriter {
+    
+    private static final String EVENT_LISTENER_OPTIONS =
+            ", {\n" +
+            "    capture: false,\n" +
+            "    passive: true\n" +
+            "});\n";
+    
+    // The names of the functions of the client runtime which handle the events, by event type (e.g. 'click' is
+    // handled by 'onClickHandler')
+    private static final Map<String, String> eventListenerNames = new ConcurrentHashMap<>();
+    
+    private final Appendable out;
+    
+    JavaScriptRenderWriter(Appendable out) {
+        this.out = out;
+    }
+    
+    @Override
+    public JavaScriptRenderWriter append(CharSequence csq) throws IOException {
+        this.out.append(csq);
+        this.countWrite(csq == null || csq.length() > 0);
+        
+        return this;
+    }
+    
+    @Override
+    public JavaScriptRenderWriter append(CharSequence csq, int start, int end) throws IOException {
+        this.out.append(csq, start, end);
+        this.countWrite(end > start);
+        
+        return this;
+    }
+    
+    @Override
+    public JavaScriptRenderWriter append(char c) throws IOException {
+        this.out.append(c);
+        this.countWrite();
+        
+        return this;
+    }
+    
+    @Override
+    public void finish() {
+        // Everything is written as soon as possible
+    }
+    
+    @Override
+    JavaScriptRenderWriter createBuffer() {
+        return new JavaScriptRenderWriter(new StringBuilder());
+    }
+    
+    @Override
+    void appendBuffer(RenderWriter buffer) throws IOException {
+        this.append((StringBuilder)((JavaScriptRenderWriter)buffer).out);
+    }
+    
+    /**
+     * var {id} = document.createElement('{tagName}');
+     * {id}.id = '{id}';
+     */
+    @Override
+    void createElement(Control control, String tagName) throws IOException {
+        String clientId = control.getClientId();
+        
+        this.out.append("var ").append(clientId).append(" = document.createElement('").append(tagName).append("');\n");
+        this.out.append(clientId).append(".id = '").append(clientId).append("';\n");
+        this.countWrite();
+    }
+    
+    @Override
+    void runCreationScript(Control control, String creationScript) throws IOException {
+        this.append(creationScript);
+    }
+    
+    @Override
+    void select(Control control) throws IOException {
+        this.append(control.selectionScript());
+    }
+    
+    /**
+     * {token}.textContent = '{text}';
+     */
+    @Override
+    void setTextContent(Control control, String text) throws IOException {
+        // TODO: JavaScript escape
+        this.out.append(control.identificationToken()).append(".textContent = '").append(text).append("';\n");
+        this.countWrite();
+    }
+    
+    /**
+     * document.title = '{title}';
+     */
+    @Override
+    void setDocumentTitle(String title) throws IOException {
+        // TODO: JavaScript escape
+        this.out.append("document.title = '").append(title).append("';\n");
+        this.countWrite();
+    }
+    
+    /**
+     * {parentToken}.appendChild({childToken});
+     */
+    @Override
+    void appendChild(Control parent, Control child) throws IOException {
+        this.out.append(parent.identificationToken()).append(".appendChild(").append(child.identificationToken())
+                .append(");\n");
+        this.countWrite();
+    }
+    
+    /**
+     * {parentToken}.insertBefore({childToken}, {referenceToken});
+     * 
+     * A null reference is written as null, which inserts the child at the end of the parent.
+     */
+    @Override
+    void insertBefore(Control parent, Control child, Control reference) throws IOException {
+        this.out.append(parent.identificationToken()).append(".insertBefore(").append(child.identificationToken())
+                .append(", ").append(reference != null ? reference.identificationToken() : "null").append(");\n");
+        this.countWrite();
+    }
+    
+    /**
+     * {token}.remove();
+     */
+    @Override
+    void remove(Control control) throws IOException {
+        this.out.append(control.identificationToken()).append(".remove();\n");
+        this.countWrite();
+    }
+    
+    /**
+     * {token}.addEventListener('{eventType}', on{EventType}Handler, { capture: false, passive: true });
+     */
+    @Override
+    void addEventListener(Control control, String eventType) throws IOException {
+        this.out.append(control.identificationToken()).append(".addEventListener('").append(eventType).append("', ")
+                .append(getEventListenerName(eventType)).append(EVENT_LISTENER_OPTIONS);
+        this.countWrite();
+    }
+    
+    /**
+     * {token}.removeEventListener('{eventType}', on{EventType}Handler, { capture: false, passive: true });
+     */
+    @Override
+    void removeEventListener(Control control, String eventType) throws IOException {
+        this.out.append(control.identificationToken()).append(".removeEventListener('").append(eventType)
+                .append("', ").append(getEventListenerName(eventType)).append(EVENT_LISTENER_OPTIONS);
+        this.countWrite();
+    }
+    
+    private static String getEventListenerName(String eventType) {
+        return eventListenerNames.computeIfAbsent(eventType,
+                t -> "on" + Character.toUpperCase(t.charAt(0)) + t.substring(1) + "Handler");
+    }
+}
@@ -24,10 +24,13 @@
 
 package io.gazeui.ui;
 
-import java.util.Optional;
+import java.io.IOException;
 
+@SuppressWarnings("serial")
 public class Label extends Control {
     
+    private static final String TAG_NAME = "span";
+    
     private String text;
     
     public Label() {
@@ -42,23 +45,40 @@ public class Label extends Control {
     }
 
     public void setText(String text) {
+        this.notifyBeforeChange();
         this.text = text;
     }
     
+    @Override
+    protected void writeState(ControlStateOutput out) {
+        super.writeState(out);
+        out.writeString(this.text);
+    }
+    
+    @Override
+    protected void readState(ControlStateInput in) {
+        super.readState(in);
+        this.text = in.readString();
+    }
+    
     @Override
     protected String getRenderScript(Control previousControlState) {
+        return this.writeRenderScriptToString(previousControlState);
+    }
+    
+    @Override
+    protected void writeRenderScript(Control previousControlState, Appendable out) throws IOException {
+        RenderWriter writer = RenderWriter.of(out);
+        
         if (previousControlState == null) {
-            return this.getCreateRenderScript();
+            this.writeCreateRenderScript(writer);
         } else {
-            return this.getUpdateRenderScript((Label)previousControlState);
+            this.writeUpdateRenderScript((Label)previousControlState, writer);
         }
     }
     
-    private String getCreateRenderScript() {
-        StringBuilder sbScript = new StringBuilder();
-        
-        sbScript.append(String.format("var %s = document.createElement('span');\n", this.getClientId()));
-        sbScript.append(String.format("%1$s.id = '%1$s';\n", this.getClientId()));
+    private void writeCreateRenderScript(RenderWriter writer) throws IOException {
+        writer.createElement(this, TAG_NAME);
         
         // According to the MDN website:
         //
@@ -70,29 +90,17 @@ public class Label extends Control {
         //   [1]: https://developer.mozilla.org/en-US/docs/Web/API/Element/innerHTML
         
         if (this.getText() != null && !this.getText().isEmpty()) {
-            // TODO: JavaScript escape
-            sbScript.append(String.format("%s.textContent = '%s';\n", this.getClientId(),
-                    this.getText()));
+            writer.setTextContent(this, this.getText());
         }
-        
-        return sbScript.toString();
     }
     
-    private String getUpdateRenderScript(Label previousControlState) {
-        StringBuilder sbScript = new StringBuilder();
-        
-        String currentText = Optional.ofNullable(this.getText()).orElse("");
-        String previousText = Optional.ofNullable(previousControlState.getText()).orElse("");
+    private void writeUpdateRenderScript(Label previousControlState, RenderWriter writer) throws IOException {
+        String currentText = this.getText() != null ? this.getText() : "";
+        String previousText = previousControlState.getText() != null ? previousControlState.getText() : "";
         
         if (!currentText.equals(previousText)) {
-            // TODO: JavaScript escape
-            sbScript.append(String.format("%s.textContent = '%s';\n", this.getClientId(), currentText));
-        }
-        
-        if (sbScript.length() > 0) {
-            sbScript.insert(0, this.selectionScript());
+            writer.select(this);
+            writer.setTextContent(this, currentText);
         }
-        
-        return sbScript.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,286 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import java.io.IOException;
+
+/**
+ * Writes the operations as a flat JSON array of opcodes followed by their operands, applied by the interpreter of the
+ * client runtime. Elements are referenced by client ID, and a null ID is the document body (the window).
+ * 
+ * <pre>
+ * 0, tagName, id             Create an element (not attached to the document yet)
+ * 1, id, text                Set the text content
+ * 2, parentId, childId       Append a child
+ * 3, parentId, childId, refId  Insert a child before the reference (or at the end, if the reference is null)
+ * 4, id                      Remove an element
+ * 5, id, eventType           Add the event listener of the client runtime
+ * 6, id, eventType           Remove the event listener of the client runtime
+ * 7, title                   Set the document title
+ * 8, code, id                Run JavaScript code, keeping the element it returns as the element of the ID (if any)
+ * </pre>
+ * 
+ * The opcodes must be kept in sync with the interpreter in the GazeUI controller.
+ */
+final class OpcodeRenderWriter extends RenderWriter {
+    
+    private static final int CREATE_ELEMENT = 0;
+    private static final int SET_TEXT_CONTENT = 1;
+    private static final int APPEND_CHILD = 2;
+    private static final int INSERT_BEFORE = 3;
+    private static final int REMOVE = 4;
+    private static final int ADD_EVENT_LISTENER = 5;
+    private static final int REMOVE_EVENT_LISTENER = 6;
+    private static final int SET_DOCUMENT_TITLE = 7;
+    private static final int RUN_SCRIPT = 8;
+    
+    private final Appendable out;
+    // A buffer writes only the elements of the array, which are appended to the array of its parent writer
+    private final boolean isBuffer;
+    // The JavaScript code appended since the last operation, which will be the code of a script operation
+    private final StringBuilder sbPendingScript = new StringBuilder();
+    private boolean hasElements;
+    
+    OpcodeRenderWriter(Appendable out, boolean isBuffer) {
+        this.out = out;
+        this.isBuffer = isBuffer;
+    }
+    
+    @Override
+    public OpcodeRenderWriter append(CharSequence csq) {
+        this.sbPendingScript.append(csq);
+        this.countWrite(csq == null || csq.length() > 0);
+        
+        return this;
+    }
+    
+    @Override
+    public OpcodeRenderWriter append(CharSequence csq, int start, int end) {
+        this.sbPendingScript.append(csq, start, end);
+        this.countWrite(end > start);
+        
+        return this;
+    }
+    
+    @Override
+    public OpcodeRenderWriter append(char c) {
+        this.sbPendingScript.append(c);
+        this.countWrite();
+        
+        return this;
+    }
+    
+    @Override
+    public void finish() throws IOException {
+        this.writePendingScript(null);
+        
+        if (!this.isBuffer) {
+            if (!this.hasElements) {
+                this.out.append('[');
+            }
+            
+            this.out.append(']');
+        }
+    }
+    
+    @Override
+    OpcodeRenderWriter createBuffer() {
+        return new OpcodeRenderWriter(new StringBuilder(), true);
+    }
+    
+    @Override
+    void appendBuffer(RenderWriter buffer) throws IOException {
+        OpcodeRenderWriter opcodeBuffer = (OpcodeRenderWriter)buffer;
+        opcodeBuffer.writePendingScript(null);
+        
+        if (opcodeBuffer.hasElements) {
+            this.writePendingScript(null);
+            this.writeSeparator();
+            this.out.append((StringBuilder)opcodeBuffer.out);
+            this.countWrite();
+        }
+    }
+    
+    @Override
+    void createElement(Control control, String tagName) throws IOException {
+        this.writeOpcode(CREATE_ELEMENT, null);
+        this.writeOperand(tagName);
+        this.writeOperand(control.getClientId());
+    }
+    
+    @Override
+    void runCreationScript(Control control, String creationScript) throws IOException {
+        if (!creationScript.isEmpty()) {
+            this.append(creationScript);
+            this.writePendingScript(control);
+        }
+    }
+    
+    @Override
+    void select(Control control) {
+        // The interpreter finds the elements by ID when needed
+    }
+    
+    @Override
+    void setTextContent(Control control, String text) throws IOException {
+        this.writeOpcode(SET_TEXT_CONTENT, null);
+        this.writeOperand(control.getClientId());
+        this.writeOperand(text);
+    }
+    
+    @Override
+    void setDocumentTitle(String title) throws IOException {
+        this.writeOpcode(SET_DOCUMENT_TITLE, null);
+        this.writeOperand(title);
+    }
+    
+    @Override
+    void appendChild(Control parent, Control child) throws IOException {
+        // A child rendered by a script has just written it, so the script must return the child element
+        this.writeOpcode(APPEND_CHILD, child);
+        this.writeOperand(parent.getClientId());
+        this.writeOperand(child.getClientId());
+    }
+    
+    @Override
+    void insertBefore(Control parent, Control child, Control reference) throws IOException {
+        this.writeOpcode(INSERT_BEFORE, child);
+        this.writeOperand(parent.getClientId());
+        this.writeOperand(child.getClientId());
+        this.writeOperand(reference != null ? reference.getClientId() : null);
+    }
+    
+    @Override
+    void remove(Control control) throws IOException {
+        this.writeOpcode(REMOVE, null);
+        this.writeOperand(control.getClientId());
+    }
+    
+    @Override
+    void addEventListener(Control control, String eventType) throws IOException {
+        this.writeOpcode(ADD_EVENT_LISTENER, null);
+        this.writeOperand(control.getClientId());
+        this.writeOperand(eventType);
+    }
+    
+    @Override
+    void removeEventListener(Control control, String eventType) throws IOException {
+        this.writeOpcode(REMOVE_EVENT_LISTENER, null);
+        this.writeOperand(control.getClientId());
+        this.writeOperand(eventType);
+    }
+    
+    /**
+     * Writes the pending script (if any) and then the opcode. If the pending script created the given control, it
+     * is made to return its element.
+     */
+    private void writeOpcode(int opcode, Control createdControl) throws IOException {
+        this.writePendingScript(createdControl);
+        this.writeSeparator();
+        this.out.append((char)('0' + opcode));
+        this.countWrite();
+    }
+    
+    private void writePendingScript(Control createdControl) throws IOException {
+        if (this.sbPendingScript.length() > 0) {
+            if (createdControl != null) {
+                this.sbPendingScript.append("\nreturn ").append(createdControl.identificationToken()).append(';');
+            }
+            
+            this.writeSeparator();
+            this.out.append((char)('0' + RUN_SCRIPT));
+            this.writeOperand(this.sbPendingScript);
+            this.writeOperand(createdControl != null ? createdControl.getClientId() : null);
+            this.sbPendingScript.setLength(0);
+        }
+    }
+    
+    private void writeSeparator() throws IOException {
+        if (this.hasElements) {
+            this.out.append(',');
+        } else {
+            if (!this.isBuffer) {
+                this.out.append('[');
+            }
+            
+            this.hasElements = true;
+        }
+    }
+    
+    private void writeOperand(CharSequence value) throws IOException {
+        this.out.append(',');
+        
+        if (value == null) {
+            this.out.append("null");
+        } else {
+            this.writeString(value);
+        }
+    }
+    
+    private void writeString(CharSequence value) throws IOException {
+        this.out.append('"');
+        
+        int unescapedStart = 0;
+        
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            
+            // Besides the characters that JSON requires to be escaped, the line and paragraph separators are
+            // escaped too, because they are not allowed in JavaScript strings before ES2019 and the array can be
+            // embedded in a script
+            if (c < 0x20 || c == '"' || c == '\\' || c == '\u2028' || c == '\u2029') {
+                this.out.append(value, unescapedStart, i);
+                
+                switch (c) {
+                    case '"':
+                        this.out.append("\\\"");
+                        break;
+                    case '\\':
+                        this.out.append("\\\\");
+                        break;
+                    case '\n':
+                        this.out.append("\\n");
+                        break;
+                    case '\r':
+                        this.out.append("\\r");
+                        break;
+                    case '\t':
+                        this.out.append("\\t");
+                        break;
+                    default:
+                        this.out.append("\\u");
+                        
+                        for (int shift = 12; shift >= 0; shift -= 4) {
+                            this.out.append(Character.forDigit((c >> shift) & 0xF, 16));
+                        }
+                }
+                
+                unescapedStart = i + 1;
+            }
+        }
+        
+        this.out.append(value, unescapedStart, value.length());
+        this.out.append('"');
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import java.io.IOException;
+
+/**
+ * The output of the rendering of controls, in one of the formats understood by the client runtime.
+ * 
+ * The built-in controls describe their changes through the operations of this class (create an element, set its
+ * text, insert it in a container, etc.), which each format writes in its own way. Everything appended as text is
+ * JavaScript code, written as is by the JavaScript format and wrapped in a script operation by the opcode format.
+ * So custom controls which only return their render script work with both formats. The HTML format, which only
+ * writes the creation of a window, has no code and supports the operations only.
+ * 
+ * A render writer can be passed as the output of any method that writes render scripts. Outputs that are not render
+ * writers are written in the JavaScript format.
+ */
+public abstract class RenderWriter implements Appendable {
+    
+    private long writeCount;
+    
+    RenderWriter() {
+        // Only the formats of this package
+    }
+    
+    /**
+     * A writer of JavaScript code, which the client runs as is.
+     */
+    public static RenderWriter forJavaScript(Appendable out) {
+        return new JavaScriptRenderWriter(out);
+    }
+    
+    /**
+     * A writer of a JSON array of opcodes, which the client runtime applies without compiling any code.
+     * The {@link #finish()} method must be called after the rendering, to close the array.
+     */
+    public static RenderWriter forOpcodes(Appendable out) {
+        return new OpcodeRenderWriter(out, false);
+    }
+    
+    /**
+     * A writer of the HTML markup of the body of a page, for the creation of a window only. The {@link #finish()}
+     * method must be called after the rendering, to write the markup. The title of the window is not written.
+     */
+    public static RenderWriter forHtml(Appendable out) {
+        return new HtmlRenderWriter(out);
+    }
+    
+    static RenderWriter of(Appendable out) {
+        return out instanceof RenderWriter ? (RenderWriter)out : new JavaScriptRenderWriter(out);
+    }
+    
+    /**
+     * Returns true if nothing was written so far.
+     */
+    public boolean isEmpty() {
+        return this.writeCount == 0;
+    }
+    
+    /**
+     * Writes what is pending, if any, and the end of the format, if any. Nothing can be written after that.
+     */
+    public abstract void finish() throws IOException;
+    
+    /**
+     * The number of writes so far, to know if a control wrote something without rendering it separately.
+     */
+    long getWriteCount() {
+        return this.writeCount;
+    }
+    
+    void countWrite() {
+        this.writeCount++;
+    }
+    
+    /**
+     * Counts a write of text, which is not counted when empty.
+     */
+    void countWrite(boolean isTextWritten) {
+        if (isTextWritten) {
+            this.writeCount++;
+        }
+    }
+    
+    /**
+     * A writer of the same format whose contents will be appended later to this writer, by the
+     * {@link #appendBuffer(RenderWriter)} method.
+     */
+    abstract RenderWriter createBuffer();
+    
+    abstract void appendBuffer(RenderWriter buffer) throws IOException;
+    
+    /**
+     * Creates an element with the client ID of the control, not attached to the document yet.
+     */
+    abstract void createElement(Control control, String tagName) throws IOException;
+    
+    /**
+     * Runs the creation script of a control, which must declare a variable named after its identification token.
+     */
+    abstract void runCreationScript(Control control, String creationScript) throws IOException;
+    
+    /**
+     * Makes a control which is already in the document reachable by the next operations.
+     */
+    abstract void select(Control control) throws IOException;
+    
+    abstract void setTextContent(Control control, String text) throws IOException;
+    
+    abstract void setDocumentTitle(String title) throws IOException;
+    
+    abstract void appendChild(Control parent, Control child) throws IOException;
+    
+    /**
+     * Inserts the child before the reference control, or at the end of the parent if the reference is null.
+     */
+    abstract void insertBefore(Control parent, Control child, Control reference) throws IOException;
+    
+    abstract void remove(Control control) throws IOException;
+    
+    /**
+     * Adds one of the event listeners of the client runtime (e.g. 'click').
+     */
+    abstract void addEventListener(Control control, String eventType) throws IOException;
+    
+    abstract void removeEventListener(Control control, String eventType) throws IOException;
+}
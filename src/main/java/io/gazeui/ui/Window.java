@@ -24,18 +24,37 @@
 
 package io.gazeui.ui;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.gazeui.ui.text.Strings;
 
+@SuppressWarnings("serial")
 public abstract class Window extends ContainerControl {
 
     private String title;
     // The client ID must be unique per browser window because it will be used as the HTML ID attribute.
     private int controlsCounter = 0;
+    // Index used to find the target of the UI events. It is built on the first search and, after that, kept in sync
+    // with the control tree when controls are added or removed. Null while not built.
+    private transient Map<String, Control> controlsByClientId;
+    // Null while the change journal is not started
+    private transient ChangeJournal changeJournal;
+    // The tasks added by invokeLater, possibly from other threads. Clones do not have them, as they are past states.
+    private transient Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+    // Set when the listener is notified, and cleared when the tasks run, so a burst of tasks notifies it only once
+    private transient AtomicBoolean pendingTasksNotified = new AtomicBoolean();
+    private transient volatile Runnable pendingTasksListener;
     
     public Window() {
     }
@@ -50,6 +69,7 @@ public abstract class Window extends ContainerControl {
 
     public void setTitle(String title) {
         if (!Strings.isNullOrBlank(title)) {
+            this.notifyBeforeChange();
             this.title = title;
         } else {
             throw new IllegalArgumentException(ErrorMessage.HTML_VALIDATION_TITLE_MUST_NOT_BE_EMPTY.getMessage());
@@ -57,13 +77,274 @@ public abstract class Window extends ContainerControl {
     }
     
     String generateAutomaticControlId() {
-        return String.format("ctl%02d", ++this.controlsCounter);
+        return getAutomaticControlId(++this.controlsCounter);
+    }
+    
+    static String getAutomaticControlId(int controlNumber) {
+        // Same as String.format("ctl%02d", controlNumber), without parsing the format on every new control
+        return controlNumber < 10 ? "ctl0" + controlNumber : "ctl" + controlNumber;
+    }
+    
+    /**
+     * Returns the number of an automatic control ID, or -1 if the given ID was not generated by this class.
+     */
+    static int getAutomaticControlNumber(String clientId) {
+        // Longer IDs would not fit in an int
+        if (clientId == null || !clientId.startsWith("ctl") || clientId.length() < 5 || clientId.length() > 13) {
+            return -1;
+        }
+        
+        long controlNumber = 0;
+        
+        for (int i = 3; i < clientId.length(); i++) {
+            char c = clientId.charAt(i);
+            
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            
+            controlNumber = controlNumber * 10 + (c - '0');
+        }
+        
+        // Rejecting the numbers out of range (leaving room for the codec to add 1) and the IDs with other paddings,
+        // like "ctl007"
+        if (controlNumber < 1 || controlNumber >= Integer.MAX_VALUE ||
+                !getAutomaticControlId((int)controlNumber).equals(clientId)) {
+            return -1;
+        }
+        
+        return (int)controlNumber;
+    }
+    
+    /**
+     * Starts recording the changes made to this window and its controls, so the update script can be generated by
+     * the {@link #getChangeJournalRenderScript()} method, without a copy of the window taken before the changes.
+     * If the journal was already started, the changes recorded so far are discarded.
+     */
+    public void startChangeJournal() {
+        if (this.changeJournal == null) {
+            this.changeJournal = new ChangeJournal();
+        } else {
+            this.changeJournal.clear();
+        }
+    }
+    
+    /**
+     * Whether the changes are being recorded. The journal is not copied, so a window read back from its serialized
+     * or encoded form, or cloned, has no journal started.
+     */
+    public boolean isChangeJournalStarted() {
+        return this.changeJournal != null;
+    }
+    
+    /**
+     * Returns the script that updates the client from the state of the window when the journal was started, or
+     * when this method was last called, to the current state. The journal is restarted after that.
+     */
+    public String getChangeJournalRenderScript() {
+        if (this.changeJournal == null) {
+            throw new IllegalStateException(ErrorMessage.CHANGE_JOURNAL_NOT_STARTED.getMessage());
+        }
+        
+        String renderScript = this.getRenderScript(this.changeJournal.getPreviousState(this));
+        this.changeJournal.clear();
+        
+        return renderScript;
+    }
+    
+    /**
+     * Same as {@link #getChangeJournalRenderScript()}, but writing the script to the given output.
+     */
+    public void writeChangeJournalRenderScript(Appendable out) throws IOException {
+        if (this.changeJournal == null) {
+            throw new IllegalStateException(ErrorMessage.CHANGE_JOURNAL_NOT_STARTED.getMessage());
+        }
+        
+        this.writeRenderScript(this.changeJournal.getPreviousState(this), out);
+        this.changeJournal.clear();
+    }
+    
+    /**
+     * Takes an immutable snapshot of the current state of the window, to be used later by the
+     * {@link #getRenderScriptSince(WindowSnapshot)} method.
+     * 
+     * Snapshots share the unchanged parts of the control tree with each other. So, taking a snapshot only copies the
+     * controls changed since the previous one, together with their ancestors, and it costs nothing when nothing has
+     * changed. Keeping many snapshots is also cheap for the same reason.
+     */
+    public WindowSnapshot takeSnapshot() {
+        return new WindowSnapshot((Window)this.getSnapshot());
+    }
+    
+    /**
+     * Returns the script that updates the client from the state of the window when the snapshot was taken to the
+     * current state. The controls that did not change since the snapshot are not even visited.
+     */
+    public String getRenderScriptSince(WindowSnapshot snapshot) {
+        return this.getRenderScript(snapshot.getWindow());
+    }
+    
+    /**
+     * Same as {@link #getRenderScriptSince(WindowSnapshot)}, but writing the script to the given output.
+     */
+    public void writeRenderScriptSince(WindowSnapshot snapshot, Appendable out) throws IOException {
+        this.writeRenderScript(snapshot.getWindow(), out);
+    }
+    
+    /**
+     * Returns the descendant control with the given client ID, or null if there is none.
+     */
+    public Control findControlById(String controlId) {
+        if (this.controlsByClientId == null) {
+            this.controlsByClientId = new HashMap<>();
+            this.indexDescendantControls(this);
+        }
+        
+        return this.controlsByClientId.get(controlId);
+    }
+    
+    private void indexDescendantControls(ContainerControl ancestor) {
+        for (Control childControl : ancestor.getControls()) {
+            this.controlsByClientId.put(childControl.getClientId(), childControl);
+            
+            if (childControl instanceof ContainerControl) {
+                this.indexDescendantControls((ContainerControl)childControl);
+            }
+        }
+    }
+    
+    void registerControl(Control control) {
+        if (this.controlsByClientId != null) {
+            this.controlsByClientId.put(control.getClientId(), control);
+        }
+    }
+    
+    void unregisterControl(Control control) {
+        if (this.controlsByClientId != null) {
+            // Only if the ID is still mapped to this control
+            this.controlsByClientId.remove(control.getClientId(), control);
+        }
+    }
+    
+    /**
+     * Schedules a task that changes this window, which can be called from any thread. The task will run on the
+     * thread processing the window: before the next UI event or, when the server push is enabled, right before
+     * pushing the changes to the client. Tasks scheduled close together run in the same push, so the client receives
+     * only their net change.
+     */
+    public void invokeLater(Runnable task) {
+        this.pendingTasks.add(Objects.requireNonNull(task));
+        
+        if (this.pendingTasksNotified.compareAndSet(false, true)) {
+            Runnable listener = this.pendingTasksListener;
+            
+            if (listener != null) {
+                listener.run();
+            }
+        }
+    }
+    
+    /**
+     * Sets the listener notified when a task is scheduled by {@link #invokeLater(Runnable)} and no other scheduled
+     * task has been notified yet. It runs on the thread that scheduled the task, so it should only schedule the run
+     * of {@link #runPendingTasks()}.
+     */
+    public void setPendingTasksListener(Runnable listener) {
+        this.pendingTasksListener = listener;
+    }
+    
+    public boolean hasPendingTasksListener() {
+        return this.pendingTasksListener != null;
+    }
+    
+    public boolean hasPendingTasks() {
+        return !this.pendingTasks.isEmpty();
+    }
+    
+    /**
+     * Runs the tasks scheduled by {@link #invokeLater(Runnable)}, in order, including the ones scheduled while
+     * running. It must be called by the thread processing the window, like the UI events.
+     * 
+     * @return Whether any task was run.
+     */
+    public boolean runPendingTasks() {
+        // Cleared before running, so the tasks scheduled from now on notify the listener again
+        this.pendingTasksNotified.set(false);
+        
+        boolean hasRunTasks = false;
+        Runnable task;
+        
+        while ((task = this.pendingTasks.poll()) != null) {
+            task.run();
+            hasRunTasks = true;
+        }
+        
+        return hasRunTasks;
+    }
+    
+    void onBeforeControlChange(Control control) {
+        if (this.changeJournal != null) {
+            this.changeJournal.record(control);
+        }
+    }
+    
+    void onBeforeControlTreeRemove(Control control) {
+        if (this.changeJournal != null) {
+            this.changeJournal.recordTree(control);
+        }
     }
     
     @Override
     public Window clone() {
         // This method is only to make the clone method visible to the GazeUIController.
-        return (Window)super.clone();
+        Window clonedWindow = (Window)super.clone();
+        
+        // The clone represents a past state, which must not record the changes of this window nor run its tasks.
+        // Its index would point to the controls of this window, so it will be built again if needed.
+        clonedWindow.clearCurrentState();
+        
+        return clonedWindow;
+    }
+    
+    @Override
+    Window shallowClone() {
+        Window clonedWindow = (Window)super.shallowClone();
+        clonedWindow.clearCurrentState();
+        
+        return clonedWindow;
+    }
+    
+    @Override
+    protected void writeState(ControlStateOutput out) {
+        super.writeState(out);
+        
+        out.writeString(this.title);
+        out.writeVarInt(this.controlsCounter);
+    }
+    
+    @Override
+    protected void readState(ControlStateInput in) {
+        super.readState(in);
+        
+        // Not using the setter, because the title is still null if the window was never rendered
+        this.title = in.readString();
+        this.controlsCounter = in.readVarInt();
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        
+        // The scheduled tasks are code, which is not serialized, so the window starts without them
+        this.pendingTasks = new ConcurrentLinkedQueue<>();
+        this.pendingTasksNotified = new AtomicBoolean();
+    }
+    
+    private void clearCurrentState() {
+        this.changeJournal = null;
+        this.controlsByClientId = null;
+        this.pendingTasks = null;
+        this.pendingTasksNotified = null;
+        this.pendingTasksListener = null;
     }
     
     @Override
@@ -93,61 +374,72 @@ public abstract class Window extends ContainerControl {
     
     @Override
     public String getRenderScript(Control previousControlState) {
+        return this.writeRenderScriptToString(previousControlState);
+    }
+    
+    /**
+     * Writes the render script to the given output, which can be the response sent to the client, so the script of
+     * a big window does not have to be kept in memory.
+     */
+    @Override
+    public void writeRenderScript(Control previousControlState, Appendable out) throws IOException {
+        RenderWriter writer = RenderWriter.of(out);
+        
         if (previousControlState == null) {
-            return this.getCreateRenderScript();
+            this.writeCreateRenderScript(writer);
         } else {
-            return this.getUpdateRenderScript((Window)previousControlState);
+            this.writeUpdateRenderScript((Window)previousControlState, writer);
         }
     }
     
-    private String getCreateRenderScript() {
-        StringBuilder sbScript = new StringBuilder();
-        
+    private void writeCreateRenderScript(RenderWriter writer) throws IOException {
         if (Strings.isNullOrBlank(this.getTitle())) {
             // According to the HTML 5.2 specification, the title element must contain at least one non-whitespace
             // character. See https://www.w3.org/TR/html52/document-metadata.html#the-title-element for details.
             this.setTitle(this.getClass().getSimpleName());
         }
         
-        // TODO: JavaScript escape
-        sbScript.append(String.format("document.title = '%s';\n", this.getTitle()));
+        writer.setDocumentTitle(this.getTitle());
         
         // Add the default ContainerControl script
-        sbScript.append(super.getRenderScript(null));
-        
-        return sbScript.toString();
+        super.writeRenderScript(null, writer);
     }
     
-    private String getUpdateRenderScript(Window previousControlState) {
-        StringBuilder sbScript = new StringBuilder();
-        
-        if (!this.getTitle().equals(previousControlState.getTitle())) {
-            // TODO: JavaScript escape
-            sbScript.append(String.format("document.title = '%s';\n", this.getTitle()));
+    private void writeUpdateRenderScript(Window previousControlState, RenderWriter writer) throws IOException {
+        // Both titles are null when the window was never rendered, because the client got the render of another
+        // instance of the same window (see the prototype main window of GazeUI for Spring Boot)
+        if (!Objects.equals(this.getTitle(), previousControlState.getTitle())) {
+            writer.setDocumentTitle(this.getTitle());
         }
         
         // Add the default ContainerControl script
-        sbScript.append(super.getRenderScript(previousControlState));
-        
-        return sbScript.toString();
+        super.writeRenderScript(previousControlState, writer);
     }
     
     public void processUIEvent(String controlId, String eventName) {
-        Control control = this.getDescendantControlById(this, controlId);
+        this.dispatchUIEvent(controlId, eventName);
+    }
+    
+    /**
+     * Same as {@link #processUIEvent(String, String)}, but also supporting the event methods that return a
+     * {@link CompletionStage}, which are processed asynchronously. The returned stage completes when the event is
+     * processed, and is already completed for the other event methods.
+     * 
+     * An asynchronous event method may change the window only until it returns. After that, for example when a slow
+     * back end answers, the changes must be scheduled by {@link #invokeLater(Runnable)}, without waiting for them:
+     * they run after the returned stage completes, before the changes of the event are rendered.
+     */
+    public CompletionStage<?> processUIEventAsync(String controlId, String eventName) {
+        Object result = this.dispatchUIEvent(controlId, eventName);
+        
+        return result instanceof CompletionStage ? (CompletionStage<?>)result : CompletableFuture.completedFuture(null);
+    }
+    
+    private Object dispatchUIEvent(String controlId, String eventName) {
+        Control control = this.findControlById(controlId);
         
         if (control != null) {
-            String processEventMethodName = String.format("processOn%sEvent", eventName);
-            
-            try {
-                Method method = control.getClass().getDeclaredMethod(processEventMethodName);
-                method.invoke(control);
-            } catch (NoSuchMethodException | SecurityException | IllegalAccessException |
-                    IllegalArgumentException | InvocationTargetException ex) {
-                String errorMessage = String.format(ErrorMessage.COULD_NOT_PROCESS_EVENT.getMessage(),
-                        eventName, control.toString());
-                
-                throw new GazeUIException(errorMessage, ex);
-            }
+            return EventDispatcher.dispatch(control, eventName);
         } else {
             String errorMessage = String.format(ErrorMessage.COULD_NOT_PROCESS_EVENT_CONTROL_ID_NOT_FOUND.getMessage(),
                     eventName, controlId);
@@ -155,20 +447,4 @@ public abstract class Window extends ContainerControl {
             throw new NoSuchElementException(errorMessage);
         }
     }
-    
-    private Control getDescendantControlById(ContainerControl ancestor, String controlId) {
-        for (Control childControl : ancestor.getControls()) {
-            if (childControl.getClientId().equals(controlId)) {
-                return childControl;
-            } else if (childControl instanceof ContainerControl) {
-                Control foundControl = this.getDescendantControlById((ContainerControl)childControl, controlId);
-                
-                if (foundControl != null) {
-                    return foundControl;
-                }
-            }
-        }
-        
-        return null;
-    }
 }
\ No newline at end of file
@@ -24,7 +24,6 @@
 
 package io.gazeui.ui.collections;
 
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -33,40 +32,78 @@ import java.util.function.Function;
 
 public final class Lists {
     
+    /**
+     * The default memory budget of {@link #longestCommonSubsequence(List, List, Comparator)}.
+     */
+    public static final long DEFAULT_LONGEST_COMMON_SUBSEQUENCE_MEMORY_BUDGET = 16 * 1024 * 1024;
+    
     private Lists() {
         // No instances allowed
     }
     
+    /**
+     * Returns a longest common subsequence between the two lists, with the elements taken from the first one.
+     * This is the same as calling {@link #longestCommonSubsequence(List, List, Comparator, long)} with the
+     * {@link #DEFAULT_LONGEST_COMMON_SUBSEQUENCE_MEMORY_BUDGET default memory budget}.
+     */
     public static <T> List<T> longestCommonSubsequence(List<T> list1, List<T> list2, Comparator<? super T> comparator) {
-        int[][] tabulationData = new int[list1.size() + 1][list2.size() + 1];
+        return longestCommonSubsequence(list1, list2, comparator, DEFAULT_LONGEST_COMMON_SUBSEQUENCE_MEMORY_BUDGET);
+    }
+    
+    /**
+     * Returns a longest common subsequence between the two lists, with the elements taken from the first one.
+     * Two elements are considered equal when the comparator returns zero for them.
+     * 
+     * The memory budget, in bytes, limits the auxiliary memory used by the algorithm (not counting the result).
+     * Lists that differ little are always fast to compare, and lists that differ a lot are compared in linear space
+     * when a full tabulation does not fit in the budget, at the cost of doing about twice the comparisons.
+     */
+    public static <T> List<T> longestCommonSubsequence(List<T> list1, List<T> list2, Comparator<? super T> comparator,
+            long memoryBudgetInBytes) {
+        
+        return new LongestCommonSubsequence<>(list1, list2, comparator, memoryBudgetInBytes).compute();
+    }
+    
+    /**
+     * Returns the indexes of the elements that form a longest strictly increasing subsequence of the given values,
+     * in ascending order. This runs in O(n log n) time and uses O(n) space.
+     */
+    public static int[] longestIncreasingSubsequence(int[] values) {
+        // tailIndexes[k] is the index of the smallest value that ends an increasing subsequence of length k + 1,
+        // so the values pointed by tailIndexes are always sorted and can be binary searched.
+        int[] tailIndexes = new int[values.length];
+        int[] predecessorIndexes = new int[values.length];
+        int length = 0;
         
-        for (int row = tabulationData.length - 2; row >= 0; row--) {
-            for (int col = tabulationData[0].length - 2; col >= 0; col--) {
-                if (comparator.compare(list1.get(row), list2.get(col)) == 0) {
-                    tabulationData[row][col] = tabulationData[row + 1][col + 1] + 1;
+        for (int i = 0; i < values.length; i++) {
+            // Searching for the first tail greater than or equal to the current value
+            int low = 0;
+            int high = length;
+            
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                
+                if (values[tailIndexes[middle]] < values[i]) {
+                    low = middle + 1;
                 } else {
-                    tabulationData[row][col] = Math.max(tabulationData[row][col + 1], tabulationData[row + 1][col]);
+                    high = middle;
                 }
             }
+            
+            predecessorIndexes[i] = low > 0 ? tailIndexes[low - 1] : -1;
+            tailIndexes[low] = i;
+            
+            if (low == length) {
+                length++;
+            }
         }
         
-        int row = 0;
-        int col = 0;
-        List<T> result = new ArrayList<>(tabulationData[0][0]);
+        int[] result = new int[length];
+        int index = length > 0 ? tailIndexes[length - 1] : -1;
         
-        while (row <= tabulationData.length - 2 && col <= tabulationData[0].length - 2) {
-            if (comparator.compare(list1.get(row), list2.get(col)) == 0) {
-                result.add(list1.get(row));
-                
-                row++;
-                col++;
-            } else {
-                if (tabulationData[row][col + 1] > tabulationData[row + 1][col]) {
-                    col++;
-                } else {
-                    row++;
-                }
-            }
+        for (int k = length - 1; k >= 0; k--) {
+            result[k] = index;
+            index = predecessorIndexes[index];
         }
         
         return result;
@@ -0,0 +1,309 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The Longest Common Subsequence algorithms used by {@link Lists#longestCommonSubsequence}. The common prefix and
+ * suffix of the lists are always trimmed, and the remaining elements are compared by the fastest algorithm that fits in
+ * the memory budget:
+ * 
+ *   1. The classic tabulation, O(n * m) time and space, when its table fits in the budget;
+ *   2. The Myers algorithm, O((n + m) * d) time and O(d^2) space, where d is the number of insertions and deletions
+ *      between the lists. It is very fast when the lists differ little and it is abandoned as soon as its trace does
+ *      not fit in the budget;
+ *   3. The Hirschberg algorithm, O(n * m) time and O(n + m) space, as the last resort.
+ */
+final class LongestCommonSubsequence<T> {
+    
+    // Approximated size of the header of an array object
+    private static final int ARRAY_HEADER_BYTES = 16;
+    
+    private final List<T> list1;
+    private final List<T> list2;
+    private final Comparator<? super T> comparator;
+    private final long memoryBudgetInBytes;
+    
+    LongestCommonSubsequence(List<T> list1, List<T> list2, Comparator<? super T> comparator,
+            long memoryBudgetInBytes) {
+        
+        this.list1 = list1;
+        this.list2 = list2;
+        this.comparator = comparator;
+        this.memoryBudgetInBytes = memoryBudgetInBytes;
+    }
+    
+    private boolean equals(int index1, int index2) {
+        return this.comparator.compare(this.list1.get(index1), this.list2.get(index2)) == 0;
+    }
+    
+    List<T> compute() {
+        int start1 = 0;
+        int start2 = 0;
+        int end1 = this.list1.size();
+        int end2 = this.list2.size();
+        
+        while (start1 < end1 && start2 < end2 && this.equals(start1, start2)) {
+            start1++;
+            start2++;
+        }
+        
+        while (end1 > start1 && end2 > start2 && this.equals(end1 - 1, end2 - 1)) {
+            end1--;
+            end2--;
+        }
+        
+        List<T> result = new ArrayList<>(start1 + (this.list1.size() - end1));
+        result.addAll(this.list1.subList(0, start1));
+        
+        if (start1 < end1 && start2 < end2) {
+            long tabulationBytes = (long)(end1 - start1 + 1) * (ARRAY_HEADER_BYTES + 4L * (end2 - start2 + 1));
+            
+            if (tabulationBytes <= this.memoryBudgetInBytes) {
+                this.tabulation(start1, end1, start2, end2, result);
+            } else if (!this.myers(start1, end1, start2, end2, result)) {
+                this.hirschberg(start1, end1, start2, end2, result);
+            }
+        }
+        
+        result.addAll(this.list1.subList(end1, this.list1.size()));
+        
+        return result;
+    }
+    
+    private void tabulation(int start1, int end1, int start2, int end2, List<T> result) {
+        int rows = end1 - start1;
+        int cols = end2 - start2;
+        int[][] tabulationData = new int[rows + 1][cols + 1];
+        
+        for (int row = rows - 1; row >= 0; row--) {
+            for (int col = cols - 1; col >= 0; col--) {
+                if (this.equals(start1 + row, start2 + col)) {
+                    tabulationData[row][col] = tabulationData[row + 1][col + 1] + 1;
+                } else {
+                    tabulationData[row][col] = Math.max(tabulationData[row][col + 1], tabulationData[row + 1][col]);
+                }
+            }
+        }
+        
+        int row = 0;
+        int col = 0;
+        
+        while (row < rows && col < cols) {
+            if (this.equals(start1 + row, start2 + col)) {
+                result.add(this.list1.get(start1 + row));
+                
+                row++;
+                col++;
+            } else {
+                if (tabulationData[row][col + 1] > tabulationData[row + 1][col]) {
+                    col++;
+                } else {
+                    row++;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns false, without touching the result, if the trace of the algorithm does not fit in the memory budget.
+     * 
+     * See "An O(ND) Difference Algorithm and Its Variations", Eugene W. Myers, 1986.
+     */
+    private boolean myers(int start1, int end1, int start2, int end2, List<T> result) {
+        int n = end1 - start1;
+        int m = end2 - start2;
+        // trace.get(d)[k + d] is the furthest x reached on diagonal k (x - y) with d insertions and deletions
+        List<int[]> trace = new ArrayList<>();
+        long usedBytes = 0;
+        
+        for (int d = 0; d <= n + m; d++) {
+            usedBytes += ARRAY_HEADER_BYTES + 4L * (2 * d + 1);
+            
+            if (usedBytes > this.memoryBudgetInBytes) {
+                return false;
+            }
+            
+            int[] previousV = d > 0 ? trace.get(d - 1) : null;
+            int[] v = new int[2 * d + 1];
+            trace.add(v);
+            
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                
+                if (d == 0) {
+                    x = 0;
+                } else if (k == -d || (k != d && previousV[k - 1 + d - 1] < previousV[k + 1 + d - 1])) {
+                    // Moving down: an element of the second list is skipped
+                    x = previousV[k + 1 + d - 1];
+                } else {
+                    // Moving right: an element of the first list is skipped
+                    x = previousV[k - 1 + d - 1] + 1;
+                }
+                
+                int y = x - k;
+                
+                // Following the diagonal (the "snake") while the elements are equal
+                while (x < n && y < m && this.equals(start1 + x, start2 + y)) {
+                    x++;
+                    y++;
+                }
+                
+                v[k + d] = x;
+                
+                if (x >= n && y >= m) {
+                    this.myersBacktrack(trace, start1, n, m, result);
+                    return true;
+                }
+            }
+        }
+        
+        // Never happens, once the lists are always fully traversed with n + m insertions and deletions
+        throw new IllegalStateException();
+    }
+    
+    private void myersBacktrack(List<int[]> trace, int start1, int n, int m, List<T> result) {
+        List<T> reversedSubsequence = new ArrayList<>();
+        int x = n;
+        int y = m;
+        
+        for (int d = trace.size() - 1; d > 0; d--) {
+            int[] previousV = trace.get(d - 1);
+            int k = x - y;
+            boolean down = k == -d || (k != d && previousV[k - 1 + d - 1] < previousV[k + 1 + d - 1]);
+            int previousK = down ? k + 1 : k - 1;
+            int previousX = previousV[previousK + d - 1];
+            int snakeStartX = down ? previousX : previousX + 1;
+            
+            while (x > snakeStartX) {
+                x--;
+                y--;
+                reversedSubsequence.add(this.list1.get(start1 + x));
+            }
+            
+            x = previousX;
+            y = previousX - previousK;
+        }
+        
+        while (x > 0) {
+            x--;
+            reversedSubsequence.add(this.list1.get(start1 + x));
+        }
+        
+        Collections.reverse(reversedSubsequence);
+        result.addAll(reversedSubsequence);
+    }
+    
+    /**
+     * See "A Linear Space Algorithm for Computing Maximal Common Subsequences", D. S. Hirschberg, 1975.
+     */
+    private void hirschberg(int start1, int end1, int start2, int end2, List<T> result) {
+        if (start1 == end1 || start2 == end2) {
+            return;
+        }
+        
+        if (end1 - start1 == 1) {
+            for (int index2 = start2; index2 < end2; index2++) {
+                if (this.equals(start1, index2)) {
+                    result.add(this.list1.get(start1));
+                    break;
+                }
+            }
+            
+            return;
+        }
+        
+        // The first half of the first list is matched against every prefix of the second list and the second half
+        // against every suffix. The best split of the second list is where both lengths summed are maximum.
+        int middle1 = (start1 + end1) >>> 1;
+        int[] prefixLengths = this.forwardLengths(start1, middle1, start2, end2);
+        int[] suffixLengths = this.backwardLengths(middle1, end1, start2, end2);
+        
+        int bestSplit = 0;
+        
+        for (int split = 1; split <= end2 - start2; split++) {
+            if (prefixLengths[split] + suffixLengths[split] > prefixLengths[bestSplit] + suffixLengths[bestSplit]) {
+                bestSplit = split;
+            }
+        }
+        
+        this.hirschberg(start1, middle1, start2, start2 + bestSplit, result);
+        this.hirschberg(middle1, end1, start2 + bestSplit, end2, result);
+    }
+    
+    /**
+     * lengths[j] is the LCS length between list1[start1, end1) and list2[start2, start2 + j).
+     */
+    private int[] forwardLengths(int start1, int end1, int start2, int end2) {
+        int cols = end2 - start2;
+        int[] previousRow = new int[cols + 1];
+        int[] currentRow = new int[cols + 1];
+        
+        for (int index1 = start1; index1 < end1; index1++) {
+            for (int col = 1; col <= cols; col++) {
+                if (this.equals(index1, start2 + col - 1)) {
+                    currentRow[col] = previousRow[col - 1] + 1;
+                } else {
+                    currentRow[col] = Math.max(currentRow[col - 1], previousRow[col]);
+                }
+            }
+            
+            int[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+        }
+        
+        return previousRow;
+    }
+    
+    /**
+     * lengths[j] is the LCS length between list1[start1, end1) and list2[start2 + j, end2).
+     */
+    private int[] backwardLengths(int start1, int end1, int start2, int end2) {
+        int cols = end2 - start2;
+        int[] previousRow = new int[cols + 1];
+        int[] currentRow = new int[cols + 1];
+        
+        for (int index1 = end1 - 1; index1 >= start1; index1--) {
+            for (int col = cols - 1; col >= 0; col--) {
+                if (this.equals(index1, start2 + col)) {
+                    currentRow[col] = previousRow[col + 1] + 1;
+                } else {
+                    currentRow[col] = Math.max(currentRow[col + 1], previousRow[col]);
+                }
+            }
+            
+            int[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+        }
+        
+        return previousRow;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui.event;
+
+import io.gazeui.ui.Control;
+
+/**
+ * Dispatches the events of a control class to its {@link GazeEvent} methods. The implementations are generated by
+ * the GazeUI annotation processor, in the package of the control class, and should not be written by hand.
+ */
+public interface ControlEventDispatcher {
+    
+    /**
+     * The suffix added to the name of a control class to get the name of its generated dispatcher. For nested classes
+     * the '$' separators of the binary name are replaced by '_'.
+     */
+    public static final String CLASS_NAME_SUFFIX = "_GazeEvents";
+    
+    /**
+     * The result of {@link #dispatch(Control, String)} when the control class has no method for the event.
+     */
+    public static final Object NO_EVENT_METHOD = new Object();
+    
+    /**
+     * Runs the method of the control which processes the given event, and returns its result (null for void methods).
+     * Returns {@link #NO_EVENT_METHOD} if the control class (not counting its superclasses) has no method for the
+     * event.
+     */
+    public Object dispatch(Control control, String eventName) throws Exception;
+}
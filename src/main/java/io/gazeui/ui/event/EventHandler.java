@@ -24,10 +24,15 @@
 
 package io.gazeui.ui.event;
 
+import java.io.Serializable;
 import java.util.EventListener;
 
+/**
+ * Handles an event of a control. Handlers are serializable, like the controls, so the lambdas and method references
+ * used as handlers are serializable too when what they capture is.
+ */
 @FunctionalInterface
-public interface EventHandler<T extends EventArgs> extends EventListener {
+public interface EventHandler<T extends EventArgs> extends EventListener, Serializable {
     
     public void handle(T eventArgs);
 }
\ No newline at end of file
@@ -24,6 +24,8 @@
 
 package io.gazeui.ui.text;
 
+import java.io.IOException;
+
 public final class Strings {
     
     private Strings() {
@@ -36,9 +38,50 @@ public final class Strings {
      */
     public static boolean isNullOrBlank(String str) {
         if (str != null) {
-            return str.chars().allMatch(Character::isWhitespace);
-        } else {
-            return true;
+            for (int i = 0; i < str.length(); i++) {
+                if (!Character.isWhitespace(str.charAt(i))) {
+                    return false;
+                }
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Appends the string to the output, escaping the characters that are not allowed or that have a meaning in the
+     * text of an HTML element or in the value of an HTML attribute (quoted by single or double quotes).
+     */
+    public static void appendHtmlEscaped(CharSequence str, Appendable out) throws IOException {
+        int unescapedStart = 0;
+        
+        for (int i = 0; i < str.length(); i++) {
+            String escapedChar;
+            
+            switch (str.charAt(i)) {
+                case '&':
+                    escapedChar = "&amp;";
+                    break;
+                case '<':
+                    escapedChar = "&lt;";
+                    break;
+                case '>':
+                    escapedChar = "&gt;";
+                    break;
+                case '"':
+                    escapedChar = "&quot;";
+                    break;
+                case '\'':
+                    escapedChar = "&#39;";
+                    break;
+                default:
+                    continue;
+            }
+            
+            out.append(str, unescapedStart, i).append(escapedChar);
+            unescapedStart = i + 1;
         }
+        
+        out.append(str, unescapedStart, str.length());
     }
-}
\ No newline at end of file
+}
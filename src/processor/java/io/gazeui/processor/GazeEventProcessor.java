@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates, for each control class with {@code @GazeEvent} methods, a dispatcher that calls these methods through a
+ * switch on the event name, so the events are dispatched at runtime without reflection.
+ * 
+ * This processor has no dependency on the GazeUI classes (they are referenced by name only), because it runs in the
+ * compilation of the GazeUI library itself.
+ */
+@SupportedAnnotationTypes(GazeEventProcessor.GAZE_EVENT_ANNOTATION)
+public class GazeEventProcessor extends AbstractProcessor {
+    
+    static final String GAZE_EVENT_ANNOTATION = "io.gazeui.ui.event.GazeEvent";
+    
+    private static final String CONTROL_CLASS = "io.gazeui.ui.Control";
+    private static final String CONTROL_EVENT_DISPATCHER_INTERFACE = "io.gazeui.ui.event.ControlEventDispatcher";
+    // Must be the same of ControlEventDispatcher.CLASS_NAME_SUFFIX
+    private static final String DISPATCHER_CLASS_NAME_SUFFIX = "_GazeEvents";
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            // Keeping the declaration order, so the generated code is stable between builds
+            Map<TypeElement, Map<String, ExecutableElement>> eventMethodsByControlClass = new LinkedHashMap<>();
+            
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                ExecutableElement method = (ExecutableElement)element;
+                TypeElement controlClass = (TypeElement)method.getEnclosingElement();
+                String eventName = this.getEventName(method);
+                
+                if (this.isValidEventMethod(method, controlClass, eventName)) {
+                    Map<String, ExecutableElement> eventMethods =
+                            eventMethodsByControlClass.computeIfAbsent(controlClass, c -> new LinkedHashMap<>());
+                    
+                    if (eventMethods.putIfAbsent(eventName, method) != null) {
+                        this.error(method, "The event '" + eventName + "' already has a method in this class");
+                    }
+                }
+            }
+            
+            for (Map.Entry<TypeElement, Map<String, ExecutableElement>> entry : eventMethodsByControlClass.entrySet()) {
+                this.writeDispatcher(entry.getKey(), entry.getValue());
+            }
+        }
+        
+        // Other processors may be interested in the annotation too
+        return false;
+    }
+    
+    private String getEventName(ExecutableElement method) {
+        for (AnnotationMirror annotationMirror : method.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement)annotationMirror.getAnnotationType().asElement();
+            
+            if (annotationType.getQualifiedName().contentEquals(GAZE_EVENT_ANNOTATION)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                        annotationMirror.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        return (String)entry.getValue().getValue();
+                    }
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    private boolean isValidEventMethod(ExecutableElement method, TypeElement controlClass, String eventName) {
+        TypeMirror controlType = this.processingEnv.getElementUtils().getTypeElement(CONTROL_CLASS).asType();
+        Set<Modifier> modifiers = method.getModifiers();
+        
+        if (controlClass.getKind() != ElementKind.CLASS ||
+                !this.processingEnv.getTypeUtils().isSubtype(controlClass.asType(), controlType)) {
+            this.error(method, "@GazeEvent methods must be declared in subclasses of " + CONTROL_CLASS);
+        } else if (controlClass.getModifiers().contains(Modifier.PRIVATE) ||
+                controlClass.getNestingKind() == NestingKind.LOCAL ||
+                controlClass.getNestingKind() == NestingKind.ANONYMOUS) {
+            this.error(method, "@GazeEvent methods must be declared in classes visible to their package");
+        } else if (controlClass.getNestingKind() == NestingKind.MEMBER &&
+                !controlClass.getModifiers().contains(Modifier.STATIC)) {
+            this.error(method, "@GazeEvent methods must not be declared in inner classes");
+        } else if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+            this.error(method, "@GazeEvent methods must not be private or static");
+        } else if (!method.getParameters().isEmpty()) {
+            this.error(method, "@GazeEvent methods must have no parameters");
+        } else if (eventName == null || !SourceVersion.isIdentifier(eventName)) {
+            // Only identifiers, so the name can be written in the generated code without escaping
+            this.error(method, "The event name must be a valid Java identifier");
+        } else {
+            return true;
+        }
+        
+        return false;
+    }
+    
+    private void writeDispatcher(TypeElement controlClass, Map<String, ExecutableElement> eventMethods) {
+        String packageName =
+                this.processingEnv.getElementUtils().getPackageOf(controlClass).getQualifiedName().toString();
+        String binaryName = this.processingEnv.getElementUtils().getBinaryName(controlClass).toString();
+        String dispatcherSimpleName = (packageName.isEmpty() ? binaryName :
+                binaryName.substring(packageName.length() + 1)).replace('$', '_') + DISPATCHER_CLASS_NAME_SUFFIX;
+        String dispatcherName = packageName.isEmpty() ? dispatcherSimpleName : packageName + "." + dispatcherSimpleName;
+        String controlClassName = controlClass.getQualifiedName().toString();
+        
+        List<Element> originatingElements = new ArrayList<>(eventMethods.values());
+        originatingElements.add(controlClass);
+        
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(dispatcherName,
+                originatingElements.toArray(new Element[0])).openWriter()) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            
+            writer.write("// Generated by " + GazeEventProcessor.class.getName() + ". Do not edit.\n");
+            writer.write("public final class " + dispatcherSimpleName + " implements " +
+                    CONTROL_EVENT_DISPATCHER_INTERFACE + " {\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public Object dispatch(" + CONTROL_CLASS + " control, String eventName) " +
+                    "throws Exception {\n");
+            writer.write("        switch (eventName) {\n");
+            
+            for (Map.Entry<String, ExecutableElement> entry : eventMethods.entrySet()) {
+                String eventMethodCall = "((" + controlClassName + ")control)." +
+                        entry.getValue().getSimpleName() + "()";
+                
+                writer.write("            case \"" + entry.getKey() + "\":\n");
+                
+                // The result is returned, because it may be the completion stage of an asynchronous event
+                if (entry.getValue().getReturnType().getKind() == TypeKind.VOID) {
+                    writer.write("                " + eventMethodCall + ";\n");
+                    writer.write("                return null;\n");
+                } else {
+                    writer.write("                return " + eventMethodCall + ";\n");
+                }
+            }
+            
+            writer.write("            default:\n");
+            writer.write("                return " + CONTROL_EVENT_DISPATCHER_INTERFACE + ".NO_EVENT_METHOD;\n");
+            writer.write("        }\n");
+            writer.write("    }\n");
+            writer.write("}\n");
+        } catch (IOException ex) {
+            this.error(controlClass, "Could not write the event dispatcher: " + ex.getMessage());
+        }
+    }
+    
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
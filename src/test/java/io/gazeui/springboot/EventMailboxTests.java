@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class EventMailboxTests {
+    
+    // Keeps the scheduled timeout, so the tests can run it without waiting
+    private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+        
+        private Runnable scheduledTask;
+        
+        public ManualScheduler() {
+            super(1);
+        }
+        
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            this.scheduledTask = command;
+            
+            return super.schedule(() -> { }, 1, TimeUnit.DAYS);
+        }
+    }
+    
+    private final ManualScheduler scheduler = new ManualScheduler();
+    // The batches that must wait run in the thread that completes the previous one
+    private final EventMailbox mailbox = new EventMailbox(Runnable::run, this.scheduler);
+    private final List<Long> runBatches = new ArrayList<>();
+    
+    @AfterEach
+    void tearDown() {
+        this.scheduler.shutdownNow();
+    }
+    
+    private CompletableFuture<Long> submit(long sequenceNumber) {
+        return this.submit(sequenceNumber, CompletableFuture.completedFuture(sequenceNumber));
+    }
+    
+    private CompletableFuture<Long> submit(long sequenceNumber, CompletableFuture<Long> result) {
+        return this.mailbox.submit(sequenceNumber, () -> {
+            this.runBatches.add(sequenceNumber);
+            return result;
+        });
+    }
+    
+    @Test
+    void submitShouldRunTheBatchRightAwayWhenItIsItsTurn() {
+        CompletableFuture<Long> completion = this.submit(0);
+        
+        assertTrue(completion.isDone());
+        assertEquals(0L, (long)completion.join());
+        assertEquals(Arrays.asList(0L), this.runBatches);
+        assertNull(this.scheduler.scheduledTask);
+    }
+    
+    @Test
+    void submitShouldRunTheBatchesInTheOrderOfTheirSequenceNumbers() {
+        CompletableFuture<Long> completion2 = this.submit(2);
+        CompletableFuture<Long> completion1 = this.submit(1);
+        
+        assertTrue(this.runBatches.isEmpty());
+        assertFalse(completion1.isDone() || completion2.isDone());
+        
+        this.submit(0);
+        
+        assertEquals(Arrays.asList(0L, 1L, 2L), this.runBatches);
+        assertEquals(2L, (long)completion2.join());
+    }
+    
+    @Test
+    void submitShouldWaitForTheAsynchronousCompletionOfThePreviousBatch() {
+        CompletableFuture<Long> result0 = new CompletableFuture<>();
+        CompletableFuture<Long> completion0 = this.submit(0, result0);
+        CompletableFuture<Long> completion1 = this.submit(1);
+        
+        assertEquals(Arrays.asList(0L), this.runBatches);
+        
+        result0.complete(0L);
+        
+        assertEquals(Arrays.asList(0L, 1L), this.runBatches);
+        assertTrue(completion0.isDone() && completion1.isDone());
+    }
+    
+    @Test
+    void submitShouldGoOnAfterAFailedBatch() {
+        CompletableFuture<Long> completion0 = this.mailbox.submit(0, () -> {
+            throw new IllegalStateException("Failed");
+        });
+        CompletableFuture<Long> completion1 = this.submit(1);
+        
+        assertTrue(completion0.isCompletedExceptionally());
+        assertEquals(1L, (long)completion1.join());
+    }
+    
+    @Test
+    void submitShouldFailForUsedSequenceNumbers() {
+        this.submit(0);
+        this.submit(2);
+        
+        assertTrue(this.submit(0).isCompletedExceptionally());
+        assertTrue(this.submit(2).isCompletedExceptionally());
+        assertEquals(Arrays.asList(0L), this.runBatches);
+    }
+    
+    @Test
+    void missingBatchesShouldBeSkippedAfterTheTimeout() {
+        this.submit(0);
+        CompletableFuture<Long> completion3 = this.submit(3);
+        
+        assertNotNull(this.scheduler.scheduledTask);
+        
+        this.scheduler.scheduledTask.run();
+        
+        assertEquals(3L, (long)completion3.join());
+        assertEquals(Arrays.asList(0L, 3L), this.runBatches);
+        assertTrue(this.submit(1).isCompletedExceptionally());
+    }
+    
+    @Test
+    void unnumberedBatchesShouldRunBetweenBatchesWithoutWaitingForMissingOnes() {
+        CompletableFuture<Long> result0 = new CompletableFuture<>();
+        this.submit(0, result0);
+        this.submit(2);
+        CompletableFuture<Long> completion = this.mailbox.execute(() -> {
+            this.runBatches.add(-1L);
+            return CompletableFuture.completedFuture(-1L);
+        });
+        
+        assertFalse(completion.isDone());
+        
+        result0.complete(0L);
+        
+        assertEquals(-1L, (long)completion.join());
+        assertEquals(Arrays.asList(0L, -1L), this.runBatches);
+        
+        this.submit(1);
+        
+        assertEquals(Arrays.asList(0L, -1L, 1L, 2L), this.runBatches);
+    }
+}
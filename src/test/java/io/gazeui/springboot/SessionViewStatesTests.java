@@ -0,0 +1,247 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.springboot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.Test;
+
+import io.gazeui.springboot.viewstate.BinaryWindowCodec;
+import io.gazeui.springboot.viewstate.InMemoryViewStateStore;
+import io.gazeui.springboot.viewstate.OffHeapViewStateStore;
+import io.gazeui.ui.ControlTreeCodec;
+import io.gazeui.ui.Window;
+
+class SessionViewStatesTests {
+    
+    private static class TestWindow extends Window {
+    }
+    
+    private final InMemoryViewStateStore viewStateStore = new InMemoryViewStateStore();
+    private final Map<String, Object> sessionAttributes = new HashMap<>();
+    // Only the attributes of the session are used
+    private final HttpSession session = (HttpSession)Proxy.newProxyInstance(HttpSession.class.getClassLoader(),
+            new Class<?>[] { HttpSession.class }, (proxy, method, args) -> {
+                if (method.getName().equals("getAttribute")) {
+                    return this.sessionAttributes.get(args[0]);
+                } else if (method.getName().equals("setAttribute")) {
+                    this.sessionAttributes.put((String)args[0], args[1]);
+                    return null;
+                } else {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    
+    // Replaces the view states of the session by their serialized copies, as a restarted server would
+    private void serializeSession() throws IOException, ClassNotFoundException {
+        Map.Entry<String, Object> attribute = this.sessionAttributes.entrySet().iterator().next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(attribute.getValue());
+        }
+        
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            attribute.setValue(in.readObject());
+        }
+    }
+    
+    private ViewState addPage() {
+        ViewState viewState = new ViewState(this.viewStateStore, null, false);
+        viewState.saveWindow(new TestWindow());
+        SessionViewStates.add(this.session, viewState, 2);
+        
+        return viewState;
+    }
+    
+    @Test
+    void eachPageShouldHaveItsOwnViewState() {
+        ViewState page1 = this.addPage();
+        ViewState page2 = this.addPage();
+        
+        assertSame(page1, SessionViewStates.get(this.session, page1.getPageToken()));
+        assertSame(page2, SessionViewStates.get(this.session, page2.getPageToken()));
+        assertNull(SessionViewStates.get(this.session, "unknown"));
+        assertNull(SessionViewStates.get(this.session, null));
+    }
+    
+    @Test
+    void leastRecentlyUsedPagesShouldBeDroppedOverTheMaximum() {
+        ViewState page1 = this.addPage();
+        ViewState page2 = this.addPage();
+        
+        SessionViewStates.get(this.session, page1.getPageToken());
+        ViewState page3 = this.addPage();
+        
+        assertSame(page1, SessionViewStates.get(this.session, page1.getPageToken()));
+        assertNull(SessionViewStates.get(this.session, page2.getPageToken()));
+        assertSame(page3, SessionViewStates.get(this.session, page3.getPageToken()));
+        assertNull(page2.loadWindow());
+    }
+    
+    @Test
+    void allPagesShouldBeEvictedWhenTheSessionEnds() {
+        ViewState page1 = this.addPage();
+        ViewState page2 = this.addPage();
+        
+        ((SessionViewStates)this.sessionAttributes.values().iterator().next()).valueUnbound(null);
+        
+        assertNull(page1.loadWindow());
+        assertNull(page2.loadWindow());
+    }
+    
+    @Test
+    void windowSavedAfterTheSessionEndsShouldNotBeKept() {
+        ViewState page = this.addPage();
+        Window window = page.loadWindow();
+        
+        ((SessionViewStates)this.sessionAttributes.values().iterator().next()).valueUnbound(null);
+        // A batch of UI events that was still running when the session ended
+        page.saveWindow(window);
+        
+        assertNull(page.loadWindow());
+        assertNull(this.viewStateStore.load(page.getPageToken()));
+    }
+    
+    @Test
+    void windowSavedAfterThePageIsDroppedShouldNotBeKept() {
+        ViewState page1 = this.addPage();
+        Window window = page1.loadWindow();
+        
+        this.addPage();
+        this.addPage();
+        // A batch of UI events that was still running when the page was dropped
+        page1.saveWindow(window);
+        
+        assertNull(SessionViewStates.get(this.session, page1.getPageToken()));
+        assertNull(page1.loadWindow());
+        assertNull(this.viewStateStore.load(page1.getPageToken()));
+    }
+    
+    @Test
+    void viewStatesShouldBeRestoredFromASerializedSession() throws IOException, ClassNotFoundException {
+        ViewState page1 = this.addPage();
+        ViewState page2 = this.addPage();
+        SessionViewStates.get(this.session, page1.getPageToken());
+        
+        this.serializeSession();
+        
+        // The store of another server, which does not have the windows
+        InMemoryViewStateStore newViewStateStore = new InMemoryViewStateStore();
+        ViewState restoredPage1 = SessionViewStates.get(this.session, page1.getPageToken());
+        restoredPage1.attach(newViewStateStore, nextSequenceNumber -> new EventMailbox(Runnable::run, null,
+                nextSequenceNumber), TestWindow::new);
+        
+        assertNotNull(restoredPage1.getEventMailbox());
+        assertEquals(TestWindow.class, restoredPage1.loadWindow().getClass());
+        assertNotNull(newViewStateStore.load(page1.getPageToken()));
+        
+        // The restored session still drops its least recently used page
+        this.addPage();
+        
+        assertNotNull(SessionViewStates.get(this.session, page1.getPageToken()));
+        assertNull(SessionViewStates.get(this.session, page2.getPageToken()));
+    }
+    
+    @Test
+    void prototypePageShouldNotBuildItsWindowWhenSerialized() throws IOException, ClassNotFoundException {
+        AtomicInteger builtWindowCount = new AtomicInteger();
+        ViewState page = new ViewState(this.viewStateStore, null, false, () -> {
+            builtWindowCount.incrementAndGet();
+            return new TestWindow();
+        });
+        SessionViewStates.add(this.session, page, 2);
+        
+        this.serializeSession();
+        
+        assertEquals(0, builtWindowCount.get());
+        
+        InMemoryViewStateStore newViewStateStore = new InMemoryViewStateStore();
+        ViewState restoredPage = SessionViewStates.get(this.session, page.getPageToken());
+        restoredPage.attach(newViewStateStore, nextSequenceNumber -> new EventMailbox(Runnable::run, null,
+                nextSequenceNumber), () -> {
+                    builtWindowCount.incrementAndGet();
+                    return new TestWindow();
+                });
+        
+        assertNull(newViewStateStore.load(page.getPageToken()));
+        assertNotNull(restoredPage.loadWindow());
+        assertEquals(1, builtWindowCount.get());
+    }
+    
+    @Test
+    void windowDecodedByTheStoreShouldRecordItsChanges() {
+        OffHeapViewStateStore offHeapViewStateStore = new OffHeapViewStateStore(
+                new BinaryWindowCodec(new ControlTreeCodec().registerControlType(TestWindow.class, TestWindow::new)),
+                1024);
+        ViewState page = new ViewState(offHeapViewStateStore, null, true);
+        Window window = new TestWindow();
+        window.startChangeJournal();
+        page.saveWindow(window);
+        
+        Window decodedWindow = page.loadWindow();
+        decodedWindow.setTitle("Changed");
+        
+        assertNotSame(window, decodedWindow);
+        assertEquals("document.title = 'Changed';\n", decodedWindow.getChangeJournalRenderScript());
+    }
+    
+    @Test
+    void prototypePageShouldBuildItsWindowOnlyOnce() {
+        AtomicInteger builtWindowCount = new AtomicInteger();
+        ViewState page = new ViewState(this.viewStateStore, null, false, () -> {
+            builtWindowCount.incrementAndGet();
+            return new TestWindow();
+        });
+        SessionViewStates.add(this.session, page, 2);
+        
+        assertEquals(0, builtWindowCount.get());
+        
+        Window window = page.loadWindow();
+        
+        assertSame(window, page.loadWindow());
+        assertEquals(1, builtWindowCount.get());
+        
+        page.evict();
+        
+        assertNull(page.loadWindow());
+        assertEquals(1, builtWindowCount.get());
+    }
+}
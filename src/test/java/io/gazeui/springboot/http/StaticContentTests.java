@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.springboot.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class StaticContentTests {
+    
+    @Test
+    void eTagShouldDependOnlyOnTheContent() {
+        StaticContent content = StaticContent.of("text/html", "<html></html>");
+        
+        assertEquals(content.getETag(), StaticContent.of("text/html", "<html></html>").getETag());
+        assertNotEquals(content.getETag(), StaticContent.of("text/html", "<html> </html>").getETag());
+        assertTrue(content.getETag().startsWith("\"") && content.getETag().endsWith("\""));
+    }
+    
+    @Test
+    void contentHashShouldBeSafeInUrls() {
+        StaticContent content = StaticContent.immutable("application/javascript", "function f() {}");
+        
+        assertTrue(content.getContentHash().matches("[A-Za-z0-9_-]+"));
+        assertEquals("\"" + content.getContentHash() + "\"", content.getETag());
+    }
+    
+    @Test
+    void acceptsGzipShouldFollowTheQualityValues() {
+        assertFalse(StaticContent.acceptsGzip(null));
+        assertFalse(StaticContent.acceptsGzip("identity"));
+        assertTrue(StaticContent.acceptsGzip("gzip, deflate, br"));
+        assertTrue(StaticContent.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertFalse(StaticContent.acceptsGzip("gzip;q=0, deflate"));
+        assertFalse(StaticContent.acceptsGzip("gzip; q=0.000"));
+        assertTrue(StaticContent.acceptsGzip("*"));
+        assertFalse(StaticContent.acceptsGzip("*, gzip;q=0"));
+        assertFalse(StaticContent.acceptsGzip("*;q=0"));
+    }
+    
+    @Test
+    void matchesAnyETagShouldUseTheWeakComparison() {
+        assertFalse(StaticContent.matchesAnyETag(null, "\"a\""));
+        assertTrue(StaticContent.matchesAnyETag("\"a\"", "\"a\""));
+        assertTrue(StaticContent.matchesAnyETag("W/\"a\"", "\"a\""));
+        assertTrue(StaticContent.matchesAnyETag("\"x\", \"b\"", "\"a\"", "\"b\""));
+        assertTrue(StaticContent.matchesAnyETag("*", "\"a\""));
+        assertFalse(StaticContent.matchesAnyETag("\"ab\"", "\"a\""));
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.springboot.viewstate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.gazeui.ui.Window;
+
+class ViewStateStoreTests {
+    
+    private static class TestWindow extends Window {
+        
+        public TestWindow(String title) {
+            super(title);
+        }
+    }
+    
+    // Encodes only the title, which is enough to tell the windows apart
+    private static class TitleCodec implements WindowCodec {
+        
+        @Override
+        public byte[] encode(Window window) {
+            return window.getTitle().getBytes(StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public Window decode(byte[] bytes) {
+            return new TestWindow(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+    
+    // Blocks the decoding, once asked to, until it is released
+    private static class BlockingCodec extends TitleCodec {
+        
+        private final CountDownLatch decodingStarted = new CountDownLatch(1);
+        private final CountDownLatch decodingReleased = new CountDownLatch(1);
+        private volatile boolean isDecodingBlocked;
+        
+        void blockDecoding() {
+            this.isDecodingBlocked = true;
+        }
+        
+        @Override
+        public Window decode(byte[] bytes) {
+            if (this.isDecodingBlocked) {
+                this.decodingStarted.countDown();
+                
+                try {
+                    this.decodingReleased.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            return super.decode(bytes);
+        }
+    }
+    
+    @Test
+    void inMemoryStoreShouldKeepTheSameWindow() {
+        InMemoryViewStateStore store = new InMemoryViewStateStore();
+        Window window = new TestWindow("w");
+        
+        store.save("key", window);
+        
+        assertSame(window, store.load("key"));
+        
+        store.evict("key");
+        
+        assertNull(store.load("key"));
+    }
+    
+    @Test
+    void offHeapStoreShouldDecodeTheSavedWindow() {
+        OffHeapViewStateStore store = new OffHeapViewStateStore(new TitleCodec(), 100);
+        Window window = new TestWindow("first");
+        
+        store.save("key", window);
+        store.save("key", new TestWindow("second"));
+        
+        assertNotSame(window, store.load("key"));
+        assertEquals("second", store.load("key").getTitle());
+        assertEquals(6, store.getUsedBytes());
+        
+        store.evict("key");
+        
+        assertNull(store.load("key"));
+        assertEquals(0, store.getUsedBytes());
+    }
+    
+    @Test
+    void offHeapStoreShouldEvictTheLeastRecentlyUsedWindows() {
+        OffHeapViewStateStore store = new OffHeapViewStateStore(new TitleCodec(), 10);
+        
+        store.save("a", new TestWindow("aaaa"));
+        store.save("b", new TestWindow("bbbb"));
+        store.load("a");
+        store.save("c", new TestWindow("cccc"));
+        
+        assertEquals("aaaa", store.load("a").getTitle());
+        assertNull(store.load("b"));
+        assertEquals("cccc", store.load("c").getTitle());
+        assertEquals(8, store.getUsedBytes());
+        
+        assertThrows(IllegalStateException.class, () -> store.save("d", new TestWindow("ddddddddddd")));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapViewStateStore(new TitleCodec(), 0));
+    }
+    
+    @Test
+    void fileStoreShouldDecodeTheSavedWindow() throws IOException {
+        Path directory = Files.createTempDirectory("gazeui-tests");
+        FileViewStateStore store = new FileViewStateStore(new TitleCodec(), directory);
+        
+        try {
+            assertNull(store.load("key"));
+            
+            store.save("key", new TestWindow("first"));
+            store.save("key", new TestWindow("second"));
+            
+            assertEquals("second", store.load("key").getTitle());
+            assertEquals(1, directory.toFile().list().length);
+            
+            store.evict("key");
+            
+            assertNull(store.load("key"));
+            assertThrows(IllegalArgumentException.class, () -> store.load("../key"));
+        } finally {
+            Files.delete(directory);
+        }
+    }
+    
+    @Test
+    void spillingStoreShouldSpillTheLeastRecentlyUsedWindows() throws IOException {
+        Path spillFile = Files.createTempFile("gazeui-tests", ".spill");
+        
+        // Each test window is estimated in 200 bytes, so two of them fit in the heap budget
+        try (SpillingViewStateStore store = new SpillingViewStateStore(new TitleCodec(), 400, spillFile, 100)) {
+            Window windowA = new TestWindow("a");
+            Window windowB = new TestWindow("b");
+            Window windowC = new TestWindow("c");
+            
+            store.save("a", windowA);
+            store.save("b", windowB);
+            store.save("c", windowC);
+            
+            assertEquals(1, store.getSpilledWindowCount());
+            assertEquals(2, store.getHeapWindowCount());
+            assertSame(windowB, store.load("b"));
+            
+            // Each page releases its window after using it
+            store.release("b");
+            Window rehydratedWindowA = store.load("a");
+            
+            assertNotSame(windowA, rehydratedWindowA);
+            assertEquals("a", rehydratedWindowA.getTitle());
+            assertSame(rehydratedWindowA, store.load("a"));
+            
+            store.release("a");
+            store.release("a");
+            
+            // Spilled to make room for the rehydrated window
+            assertNotSame(windowC, store.load("c"));
+            assertEquals(2, store.getHitCount());
+            assertEquals(2, store.getMissCount());
+            assertEquals(3, store.getSpillCount());
+            
+            store.evict("a");
+            store.evict("b");
+            store.evict("c");
+            
+            assertNull(store.load("a"));
+            assertEquals(0, store.getEstimatedHeapBytes());
+            assertEquals(0, store.getSpilledBytes());
+        }
+        
+        assertFalse(Files.exists(spillFile));
+    }
+    
+    @Test
+    void spillingStoreShouldNotSpillTheWindowsInUse() throws IOException {
+        Path spillFile = Files.createTempFile("gazeui-tests", ".spill");
+        
+        try (SpillingViewStateStore store = new SpillingViewStateStore(new TitleCodec(), 400, spillFile, 100)) {
+            Window windowA = new TestWindow("a");
+            
+            store.save("a", windowA);
+            store.save("b", new TestWindow("b"));
+            // Loaded by a batch of UI events, which may be changing it
+            store.load("a");
+            store.save("c", new TestWindow("c"));
+            
+            // The next least recently used window was spilled instead
+            assertEquals(1, store.getSpilledWindowCount());
+            assertSame(windowA, store.load("a"));
+            assertEquals(0, store.getMissCount());
+            assertEquals("b", store.load("b").getTitle());
+            assertEquals(1, store.getMissCount());
+        }
+    }
+    
+    @Test
+    void spillingStoreShouldSpillTheReleasedWindowsButNotTheOnesWithAPushListener() throws IOException {
+        Path spillFile = Files.createTempFile("gazeui-tests", ".spill");
+        
+        try (SpillingViewStateStore store = new SpillingViewStateStore(new TitleCodec(), 200, spillFile, 100)) {
+            Window windowA = new TestWindow("a");
+            Window windowB = new TestWindow("b");
+            windowB.setPendingTasksListener(() -> { });
+            
+            store.save("a", windowA);
+            // A failed UI event loads the window without saving it
+            store.load("a");
+            store.release("a");
+            store.save("b", windowB);
+            store.save("c", new TestWindow("c"));
+            
+            assertEquals(1, store.getSpilledWindowCount());
+            assertNotSame(windowA, store.load("a"));
+            // The application may still schedule tasks on this object, so it stays on the heap
+            assertSame(windowB, store.load("b"));
+        }
+    }
+    
+    @Test
+    void spillingStoreShouldMakeTheLoadsWaitForARehydration() throws IOException, InterruptedException {
+        Path spillFile = Files.createTempFile("gazeui-tests", ".spill");
+        BlockingCodec codec = new BlockingCodec();
+        
+        try (SpillingViewStateStore store = new SpillingViewStateStore(codec, 200, spillFile, 100)) {
+            store.save("a", new TestWindow("a"));
+            store.save("b", new TestWindow("b"));
+            codec.blockDecoding();
+            
+            CompletableFuture<Window> firstLoad = CompletableFuture.supplyAsync(() -> store.load("a"));
+            assertTrue(codec.decodingStarted.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Window> secondLoad = CompletableFuture.supplyAsync(() -> store.load("a"));
+            Thread.sleep(50);
+            
+            assertFalse(secondLoad.isDone());
+            
+            codec.decodingReleased.countDown();
+            
+            assertEquals("a", firstLoad.join().getTitle());
+            assertSame(firstLoad.join(), secondLoad.join());
+            assertEquals(1, store.getMissCount());
+        }
+    }
+    
+    @Test
+    void spillingStoreShouldNotKeepAWindowEvictedWhileItIsRehydrated() throws IOException, InterruptedException {
+        Path spillFile = Files.createTempFile("gazeui-tests", ".spill");
+        BlockingCodec codec = new BlockingCodec();
+        
+        try (SpillingViewStateStore store = new SpillingViewStateStore(codec, 200, spillFile, 100)) {
+            store.save("a", new TestWindow("a"));
+            store.save("b", new TestWindow("b"));
+            codec.blockDecoding();
+            
+            CompletableFuture<Window> load = CompletableFuture.supplyAsync(() -> store.load("a"));
+            assertTrue(codec.decodingStarted.await(5, TimeUnit.SECONDS));
+            store.evict("a");
+            codec.decodingReleased.countDown();
+            load.join();
+            
+            assertNull(store.load("a"));
+            assertEquals(1, store.getHeapWindowCount());
+        }
+    }
+    
+    @Test
+    void spillingStoreShouldEvictTheFirstSpilledWindowsWhenTheFileIsFull() throws IOException {
+        Path spillFile = Files.createTempFile("gazeui-tests", ".spill");
+        
+        try (SpillingViewStateStore store = new SpillingViewStateStore(new TitleCodec(), 200, spillFile, 8)) {
+            store.save("a", new TestWindow("aaaa"));
+            store.save("b", new TestWindow("bbbb"));
+            store.save("c", new TestWindow("cccc"));
+            
+            // The tasks would be lost, so this window stays on the heap
+            Window windowWithTask = new TestWindow("dddd");
+            windowWithTask.invokeLater(() -> { });
+            store.save("d", windowWithTask);
+            store.save("e", new TestWindow("eeee"));
+            
+            assertNull(store.load("a"));
+            assertEquals(1, store.getSpillEvictionCount());
+            assertEquals(8, store.getSpilledBytes());
+            assertSame(windowWithTask, store.load("d"));
+            assertEquals("bbbb", store.load("b").getTitle());
+            assertThrows(IllegalArgumentException.class,
+                    () -> new SpillingViewStateStore(new TitleCodec(), 0, spillFile, 8));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ContainerControlTests {
+    
+    private Window window;
+    private ContainerControl container;
+    
+    @BeforeEach
+    void setUp() {
+        this.window = new Window("Tests") { };
+        this.container = new ContainerControl();
+        this.window.getControls().add(this.container);
+        
+        for (int i = 0; i < 5; i++) {
+            this.container.getControls().add(new Label("l" + i));
+        }
+    }
+    
+    private static int countOccurrences(String str, String substring) {
+        int count = 0;
+        
+        for (int pos = str.indexOf(substring); pos != -1; pos = str.indexOf(substring, pos + 1)) {
+            count++;
+        }
+        
+        return count;
+    }
+    
+    @Test
+    void updateRenderScriptWithoutChangesShouldBeEmpty() {
+        ContainerControl previousContainer = this.container.clone();
+        
+        assertEquals("", this.container.getRenderScript(previousContainer));
+    }
+    
+    @Test
+    void updateRenderScriptShouldMoveOnlyReorderedControl() {
+        ContainerControl previousContainer = this.container.clone();
+        List<Control> controls = this.container.getControls();
+        
+        controls.add(0, controls.get(controls.size() - 1));
+        String script = this.container.getRenderScript(previousContainer);
+        
+        assertEquals(1, countOccurrences(script, "insertBefore("));
+        assertTrue(script.contains("ctl01.insertBefore(ctl06, ctl02);"));
+        assertEquals(0, countOccurrences(script, ".remove();"));
+    }
+    
+    @Test
+    void updateRenderScriptShouldMoveMinimumNumberOfControls() {
+        ContainerControl previousContainer = this.container.clone();
+        
+        Collections.reverse(this.container.getControls());
+        String script = this.container.getRenderScript(previousContainer);
+        
+        assertEquals(4, countOccurrences(script, "insertBefore("));
+        assertEquals(0, countOccurrences(script, "createElement("));
+    }
+    
+    @Test
+    void updateRenderScriptShouldRemoveAndAddControls() {
+        ContainerControl previousContainer = this.container.clone();
+        List<Control> controls = this.container.getControls();
+        
+        controls.remove(1);
+        controls.add(new Label("added"));
+        ((Label)controls.get(0)).setText("updated");
+        String script = this.container.getRenderScript(previousContainer);
+        
+        assertTrue(script.contains("ctl03.remove();"));
+        assertTrue(script.contains("ctl07.textContent = 'added';"));
+        assertTrue(script.contains("ctl01.insertBefore(ctl07, null);"));
+        assertTrue(script.contains("ctl02.textContent = 'updated';"));
+        assertEquals(1, countOccurrences(script, "insertBefore("));
+    }
+}
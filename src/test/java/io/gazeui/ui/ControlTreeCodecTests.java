@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import io.gazeui.ui.event.EventArgs;
+import io.gazeui.ui.event.EventHandler;
+
+class ControlTreeCodecTests {
+    
+    // Reaches the window by the event source, so it works on the decoded windows too
+    private static final EventHandler<EventArgs> INCREMENT_HANDLER = e -> {
+        Label counterLabel = ((TestWindow)e.getSource().getWindow()).counterLabel;
+        counterLabel.setText(String.valueOf(Integer.parseInt(counterLabel.getText()) + 1));
+    };
+    
+    @SuppressWarnings("serial")
+    private static class TestWindow extends Window {
+        
+        private Label counterLabel = new Label("0");
+        private Button incrementButton = new Button("+");
+        
+        public TestWindow() {
+            super("Tests");
+            
+            ContainerControl container = new ContainerControl();
+            container.getControls().add(this.counterLabel);
+            container.getControls().add(new Label("\u00e9"));
+            
+            this.incrementButton.addOnClickHandler(INCREMENT_HANDLER);
+            
+            this.getControls().add(container);
+            this.getControls().add(this.incrementButton);
+        }
+        
+        @Override
+        protected void writeState(ControlStateOutput out) {
+            super.writeState(out);
+            
+            out.writeControlReference(this.counterLabel);
+            out.writeControlReference(this.incrementButton);
+        }
+        
+        @Override
+        protected void readState(ControlStateInput in) {
+            super.readState(in);
+            
+            this.counterLabel = (Label)in.readControlReference();
+            this.incrementButton = (Button)in.readControlReference();
+        }
+    }
+    
+    private static ControlTreeCodec createCodec() {
+        return new ControlTreeCodec()
+                .registerControlType(TestWindow.class, TestWindow::new)
+                .registerEventHandler("increment", INCREMENT_HANDLER);
+    }
+    
+    @Test
+    void decodedWindowShouldRenderLikeTheEncodedOne() {
+        ControlTreeCodec codec = createCodec();
+        TestWindow window = new TestWindow();
+        window.counterLabel.setText("5");
+        
+        TestWindow decodedWindow = (TestWindow)codec.decode(codec.encode(window));
+        
+        assertNotSame(window, decodedWindow);
+        assertEquals(window.getRenderScript(null), decodedWindow.getRenderScript(null));
+        assertEquals(window.getTitle(), decodedWindow.getTitle());
+    }
+    
+    @Test
+    void decodedWindowShouldKeepTheReferencesAndTheEventHandlers() {
+        ControlTreeCodec codec = createCodec();
+        TestWindow decodedWindow = (TestWindow)codec.decode(codec.encode(new TestWindow()));
+        
+        assertSame(decodedWindow.findControlById(decodedWindow.counterLabel.getClientId()), decodedWindow.counterLabel);
+        assertSame(decodedWindow, decodedWindow.counterLabel.getWindow());
+        
+        decodedWindow.processUIEvent(decodedWindow.incrementButton.getClientId(), "Click");
+        
+        assertEquals("1", decodedWindow.counterLabel.getText());
+    }
+    
+    @Test
+    void decodedWindowShouldContinueTheAutomaticClientIds() {
+        ControlTreeCodec codec = createCodec();
+        TestWindow window = new TestWindow();
+        TestWindow decodedWindow = (TestWindow)codec.decode(codec.encode(window));
+        
+        Label label = new Label();
+        Label decodedWindowLabel = new Label();
+        window.getControls().add(label);
+        decodedWindow.getControls().add(decodedWindowLabel);
+        
+        assertEquals(label.getClientId(), decodedWindowLabel.getClientId());
+    }
+    
+    @Test
+    void repeatedStringsAndClassesShouldBeWrittenOnlyOnce() {
+        ControlTreeCodec codec = createCodec();
+        TestWindow smallWindow = new TestWindow();
+        TestWindow bigWindow = new TestWindow();
+        
+        for (int i = 0; i < 100; i++) {
+            bigWindow.getControls().add(new Label("A repeated text"));
+        }
+        
+        smallWindow.getControls().add(new Label("A repeated text"));
+        
+        // Each label after the first is its class index, its client ID number and the index of its text
+        int extraBytesPerLabel = (codec.encode(bigWindow).length - codec.encode(smallWindow).length) / 99;
+        
+        assertTrue(extraBytesPerLabel <= 3, "Bytes per label: " + extraBytesPerLabel);
+    }
+    
+    @Test
+    void automaticClientIdsShouldBeRecognized() {
+        assertEquals(5, Window.getAutomaticControlNumber("ctl05"));
+        assertEquals(123, Window.getAutomaticControlNumber("ctl123"));
+        assertEquals(-1, Window.getAutomaticControlNumber("ctl5"));
+        assertEquals(-1, Window.getAutomaticControlNumber("ctl007"));
+        assertEquals(-1, Window.getAutomaticControlNumber("ctl00"));
+        assertEquals(-1, Window.getAutomaticControlNumber("ctlxy"));
+        assertEquals(-1, Window.getAutomaticControlNumber("ctl99999999999"));
+        assertEquals(-1, Window.getAutomaticControlNumber(null));
+    }
+    
+    @Test
+    void unregisteredTypesAndHandlersShouldFail() {
+        ControlTreeCodec codec = createCodec();
+        TestWindow window = new TestWindow();
+        byte[] bytes = codec.encode(window);
+        
+        assertThrows(GazeUIException.class, () -> new ControlTreeCodec().decode(bytes));
+        assertThrows(GazeUIException.class, () -> codec.decode(Arrays.copyOf(bytes, bytes.length / 2)));
+        assertThrows(IllegalArgumentException.class, () -> codec.registerEventHandler("increment", e -> { }));
+        
+        window.incrementButton.addOnClickHandler(e -> { });
+        
+        assertThrows(GazeUIException.class, () -> codec.encode(window));
+    }
+    
+    @Test
+    void windowsShouldBeSerializable() throws IOException, ClassNotFoundException {
+        TestWindow window = new TestWindow();
+        window.startChangeJournal();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(window);
+        }
+        
+        TestWindow deserializedWindow;
+        
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserializedWindow = (TestWindow)in.readObject();
+        }
+        
+        assertEquals(window.getRenderScript(null), deserializedWindow.getRenderScript(null));
+        
+        deserializedWindow.invokeLater(() -> deserializedWindow.counterLabel.setText("7"));
+        deserializedWindow.runPendingTasks();
+        deserializedWindow.processUIEvent(deserializedWindow.incrementButton.getClientId(), "Click");
+        
+        assertEquals("8", deserializedWindow.counterLabel.getText());
+    }
+}
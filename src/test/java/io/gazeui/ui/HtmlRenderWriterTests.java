@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class HtmlRenderWriterTests {
+    
+    private static class TestWindow extends Window {
+        
+        private final ContainerControl container = new ContainerControl();
+        private final Label label = new Label("l1");
+        private final Button button = new Button("b1");
+        
+        public TestWindow() {
+            super("Tests");
+            
+            this.container.getControls().add(this.label);
+            this.getControls().add(this.container);
+            this.getControls().add(this.button);
+        }
+    }
+    
+    private static String renderHtml(Window window) throws IOException {
+        StringBuilder sbHtml = new StringBuilder();
+        RenderWriter writer = RenderWriter.forHtml(sbHtml);
+        
+        window.writeRenderScript(null, writer);
+        writer.finish();
+        
+        return sbHtml.toString();
+    }
+    
+    @Test
+    void markupShouldBuildTheControlTree() throws IOException {
+        TestWindow window = new TestWindow();
+        window.button.addOnClickHandler(e -> { });
+        
+        assertEquals(
+                "<div id='ctl01'><span id='ctl02'>l1</span></div>" +
+                "<button id='ctl03' data-event-listeners='click'>b1</button>",
+                renderHtml(window));
+    }
+    
+    @Test
+    void textsShouldBeEscaped() throws IOException {
+        TestWindow window = new TestWindow();
+        window.label.setText("<script>alert('x')</script>");
+        
+        assertEquals(
+                "<div id='ctl01'><span id='ctl02'>&lt;script&gt;alert(&#39;x&#39;)&lt;/script&gt;</span></div>" +
+                "<button id='ctl03'>b1</button>",
+                renderHtml(window));
+    }
+    
+    @Test
+    void controlsRenderedByScriptsShouldNotBeSupported() {
+        TestWindow window = new TestWindow();
+        
+        window.container.getControls().add(new Control() {
+            @Override
+            protected String getRenderScript(Control previousControlState) {
+                return "let " + this.getClientId() + " = document.createElement('p');\n";
+            }
+        });
+        
+        assertThrows(GazeUIException.class, () -> renderHtml(window));
+    }
+    
+    @Test
+    void updatesShouldNotBeSupported() {
+        TestWindow window = new TestWindow();
+        Window previousWindow = window.clone();
+        window.container.getControls().add(new Label("l2"));
+        
+        GazeUIException exception = assertThrows(GazeUIException.class,
+                () -> window.writeRenderScript(previousWindow, RenderWriter.forHtml(new StringBuilder())));
+        
+        assertEquals(ErrorMessage.HTML_RENDER_UPDATE_NOT_SUPPORTED.getMessage(), exception.getMessage());
+    }
+}
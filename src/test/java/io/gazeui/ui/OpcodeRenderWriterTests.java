@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.gazeui.ui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class OpcodeRenderWriterTests {
+    
+    private static class TestWindow extends Window {
+        
+        private final ContainerControl container = new ContainerControl();
+        private final Label label = new Label("l1");
+        private final Button button = new Button("b1");
+        
+        public TestWindow() {
+            super("Tests");
+            
+            this.container.getControls().add(this.label);
+            this.getControls().add(this.container);
+            this.getControls().add(this.button);
+        }
+    }
+    
+    private static String renderOpcodes(Window window, Window previousWindow) throws IOException {
+        StringBuilder sbPatch = new StringBuilder();
+        RenderWriter writer = RenderWriter.forOpcodes(sbPatch);
+        
+        window.writeRenderScript(previousWindow, writer);
+        writer.finish();
+        
+        return sbPatch.toString();
+    }
+    
+    @Test
+    void createPatchShouldBuildTheControlTree() throws IOException {
+        TestWindow window = new TestWindow();
+        window.button.addOnClickHandler(e -> { });
+        
+        assertEquals(
+                "[7,\"Tests\"," +
+                "0,\"div\",\"ctl01\",0,\"span\",\"ctl02\",1,\"ctl02\",\"l1\",2,\"ctl01\",\"ctl02\",2,null,\"ctl01\"," +
+                "0,\"button\",\"ctl03\",1,\"ctl03\",\"b1\",5,\"ctl03\",\"click\",2,null,\"ctl03\"]",
+                renderOpcodes(window, null));
+    }
+    
+    @Test
+    void updatePatchShouldContainOnlyTheChanges() throws IOException {
+        TestWindow window = new TestWindow();
+        Window previousWindow = window.clone();
+        
+        window.label.setText("changed");
+        window.getControls().remove(window.button);
+        
+        assertEquals("[4,\"ctl03\",1,\"ctl02\",\"changed\"]", renderOpcodes(window, previousWindow));
+    }
+    
+    @Test
+    void patchWithoutChangesShouldBeEmpty() throws IOException {
+        TestWindow window = new TestWindow();
+        StringBuilder sbPatch = new StringBuilder();
+        RenderWriter writer = RenderWriter.forOpcodes(sbPatch);
+        
+        window.writeRenderScript(window.clone(), writer);
+        writer.finish();
+        
+        assertTrue(writer.isEmpty());
+        assertEquals("[]", sbPatch.toString());
+    }
+    
+    @Test
+    void stringsShouldBeEscaped() throws IOException {
+        TestWindow window = new TestWindow();
+        Window previousWindow = window.clone();
+        
+        window.label.setText("\"a\\b\"\n\t\u0001 ");
+        
+        assertEquals("[1,\"ctl02\",\"\\\"a\\\\b\\\"\\n\\t\\u0001\\u2028\"]", renderOpcodes(window, previousWindow));
+    }
+    
+    @Test
+    void scriptsOfCustomControlsShouldReturnTheirElements() throws IOException {
+        TestWindow window = new TestWindow();
+        Window previousWindow = window.clone();
+        
+        window.container.getControls().add(new Control() {
+            @Override
+            protected String getRenderScript(Control previousControlState) {
+                return previousControlState == null ?
+                        "let " + this.getClientId() + " = document.createElement('p');\n" : "";
+            }
+        });
+        
+        assertEquals(
+                "[8,\"let ctl04 = document.createElement('p');\\n\\nreturn ctl04;\",\"ctl04\"," +
+                "3,\"ctl01\",\"ctl04\",null]",
+                renderOpcodes(window, previousWindow));
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2019 Rosberg Linhares (rosberglinhares@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.gazeui.ui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import io.gazeui.ui.event.EventArgs;
+import io.gazeui.ui.event.EventHandler;
+import io.gazeui.ui.event.GazeEvent;
+
+class WindowTests {
+    
+    private static class TestWindow extends Window {
+        
+        private final ContainerControl container1 = new ContainerControl();
+        private final ContainerControl container2 = new ContainerControl();
+        private final Label label1 = new Label("l1");
+        private final Label label2 = new Label("l2");
+        private final Label label3 = new Label("l3");
+        private final Button button = new Button("b1");
+        private final EventHandler<EventArgs> clickHandler = e -> this.label1.setText("clicked");
+        
+        public TestWindow() {
+            super("Tests");
+            
+            this.container1.getControls().add(this.label1);
+            this.container1.getControls().add(this.label2);
+            this.container1.getControls().add(this.label3);
+            this.button.addOnClickHandler(this.clickHandler);
+            this.container2.getControls().add(this.button);
+            
+            this.getControls().add(this.container1);
+            this.getControls().add(this.container2);
+        }
+    }
+    
+    // Not private, so the annotation processor can generate its dispatcher
+    static class CounterLabel extends Label {
+        
+        private int count;
+        
+        @GazeEvent("Increment")
+        void increment() {
+            this.setText(String.valueOf(++this.count));
+        }
+    }
+    
+    static class AsyncLabel extends Label {
+        
+        private final CompletableFuture<String> backEndResponse = new CompletableFuture<>();
+        
+        @GazeEvent("Load")
+        CompletionStage<?> load() {
+            this.setText("loading");
+            
+            return this.backEndResponse.thenAccept(text -> this.getWindow().invokeLater(() -> this.setText(text)));
+        }
+        
+        // Found by the naming convention, as it is not annotated
+        CompletionStage<?> processOnFailEvent() {
+            return this.backEndResponse.thenAccept(text -> {
+                throw new IllegalStateException(text);
+            });
+        }
+    }
+    
+    /**
+     * Asserts that the scripts generated from the change journal and from a snapshot are the same generated by the
+     * comparison with a copy of the window taken before the changes.
+     */
+    private static void assertChangeTrackingRenderScript(Consumer<TestWindow> changes) {
+        TestWindow window = new TestWindow();
+        Window previousWindow = window.clone();
+        changes.accept(window);
+        String expectedRenderScript = window.getRenderScript(previousWindow);
+        
+        TestWindow journalWindow = new TestWindow();
+        journalWindow.startChangeJournal();
+        changes.accept(journalWindow);
+        
+        assertEquals(expectedRenderScript, journalWindow.getChangeJournalRenderScript());
+        
+        TestWindow snapshotWindow = new TestWindow();
+        // A first snapshot, so the second one has to copy only the changed paths
+        snapshotWindow.takeSnapshot();
+        snapshotWindow.label1.setText("changed before the snapshot");
+        snapshotWindow.label1.setText("l1");
+        WindowSnapshot snapshot = snapshotWindow.takeSnapshot();
+        changes.accept(snapshotWindow);
+        
+        assertEquals(expectedRenderScript, snapshotWindow.getRenderScriptSince(snapshot));
+    }
+    
+    @Test
+    void changeJournalRenderScriptWithoutChanges() {
+        TestWindow window = new TestWindow();
+        window.startChangeJournal();
+        
+        assertEquals("", window.getChangeJournalRenderScript());
+    }
+    
+    @Test
+    void changeJournalRenderScriptShouldThrowExceptionWhenNotStarted() {
+        assertThrows(IllegalStateException.class, () -> new TestWindow().getChangeJournalRenderScript());
+    }
+    
+    @Test
+    void changeJournalRenderScriptWithPropertyChanges() {
+        assertChangeTrackingRenderScript(w -> {
+            w.setTitle("New Title");
+            w.label2.setText("changed");
+            w.label2.setText("changed again");
+            w.button.removeOnClickHandler(w.clickHandler);
+        });
+    }
+    
+    @Test
+    void changeJournalRenderScriptWithStructureChanges() {
+        assertChangeTrackingRenderScript(w -> {
+            Label addedLabel = new Label();
+            w.container2.getControls().add(0, addedLabel);
+            addedLabel.setText("added");
+            
+            w.container1.getControls().remove(w.label1);
+            w.label1.setText("removed");
+            
+            w.container2.getControls().add(w.label3);
+            w.label3.setText("moved");
+            
+            w.getControls().add(w.container1);
+        });
+    }
+    
+    @Test
+    void changeJournalRenderScriptWithChangesOutOfTheWindow() {
+        assertChangeTrackingRenderScript(w -> {
+            w.container1.getControls().clear();
+            w.label2.setText("changed while removed");
+            w.container1.getControls().add(w.label2);
+            
+            w.getControls().remove(w.container2);
+            w.button.setText("changed while its container was removed");
+            w.getControls().add(w.container2);
+        });
+    }
+    
+    @Test
+    void automaticControlIdsShouldHaveAtLeastTwoDigits() {
+        TestWindow window = new TestWindow();
+        
+        // The test window has 6 controls
+        for (int i = 7; i <= 100; i++) {
+            Label label = new Label();
+            window.getControls().add(label);
+            
+            assertEquals(String.format("ctl%02d", i), label.getClientId());
+        }
+    }
+    
+    @Test
+    void writeRenderScriptShouldWriteTheSameScriptOfGetRenderScript() throws IOException {
+        TestWindow window = new TestWindow();
+        StringBuilder sbCreateScript = new StringBuilder();
+        window.writeRenderScript(null, sbCreateScript);
+        
+        assertEquals(window.getRenderScript(null), sbCreateScript.toString());
+        
+        Window previousWindow = window.clone();
+        window.label2.setText("changed");
+        window.container1.getControls().remove(window.label1);
+        window.container2.getControls().add(0, new Label("added"));
+        StringBuilder sbUpdateScript = new StringBuilder();
+        window.writeRenderScript(previousWindow, sbUpdateScript);
+        
+        assertEquals(window.getRenderScript(previousWindow), sbUpdateScript.toString());
+    }
+    
+    @Test
+    void containersShouldRenderControlsImplementingOnlyGetRenderScript() {
+        TestWindow window = new TestWindow();
+        window.container1.getControls().add(new Control() {
+            @Override
+            protected String getRenderScript(Control previousControlState) {
+                return "custom(" + this.getClientId() + ");\n";
+            }
+        });
+        
+        assertTrue(window.getRenderScript(null).contains("custom(ctl07);\n"));
+    }
+    
+    @Test
+    void findControlByIdShouldFollowTheControlTree() {
+        TestWindow window = new TestWindow();
+        String label2Id = window.label2.getClientId();
+        
+        assertSame(window.label2, window.findControlById(label2Id));
+        assertSame(window.container2, window.findControlById(window.container2.getClientId()));
+        assertNull(window.findControlById("unknown"));
+        
+        // Moving inside the same window keeps the ID
+        window.container2.getControls().add(window.label2);
+        assertEquals(label2Id, window.label2.getClientId());
+        assertSame(window.label2, window.findControlById(label2Id));
+        
+        // Removing a container removes its descendants too
+        window.getControls().remove(window.container1);
+        assertNull(window.findControlById(window.container1.getClientId()));
+        assertNull(window.findControlById(window.label1.getClientId()));
+        
+        // Controls added to a detached container are found when it is added back
+        Label newLabel = new Label("new");
+        window.container1.getControls().add(newLabel);
+        window.getControls().add(window.container1);
+        assertSame(window.label1, window.findControlById(window.label1.getClientId()));
+        assertSame(newLabel, window.findControlById(newLabel.getClientId()));
+    }
+    
+    @Test
+    void findControlByIdOnCloneShouldReturnClonedControls() {
+        TestWindow window = new TestWindow();
+        window.findControlById(window.button.getClientId());
+        Window clonedWindow = window.clone();
+        
+        Control clonedButton = clonedWindow.findControlById(window.button.getClientId());
+        assertNotSame(window.button, clonedButton);
+        assertEquals(window.button.getClientId(), clonedButton.getClientId());
+    }
+    
+    @Test
+    void processUIEventShouldRunTheHandlersOfTheTargetControl() {
+        TestWindow window = new TestWindow();
+        window.processUIEvent(window.button.getClientId(), "Click");
+        
+        assertEquals("clicked", window.label1.getText());
+    }
+    
+    @Test
+    void processUIEventShouldFindTheEventMethodInSuperclasses() {
+        TestWindow window = new TestWindow();
+        Button derivedButton = new Button("derived") { };
+        derivedButton.addOnClickHandler(window.clickHandler);
+        window.container2.getControls().add(derivedButton);
+        
+        window.processUIEvent(derivedButton.getClientId(), "Click");
+        
+        assertEquals("clicked", window.label1.getText());
+    }
+    
+    @Test
+    void processUIEventShouldUseTheGeneratedDispatchers() {
+        TestWindow window = new TestWindow();
+        CounterLabel counterLabel = new CounterLabel();
+        window.getControls().add(counterLabel);
+        
+        // The method name does not follow the naming convention, so only the generated dispatcher can find it
+        window.processUIEvent(counterLabel.getClientId(), "Increment");
+        window.processUIEvent(counterLabel.getClientId(), "Increment");
+        
+        assertEquals("2", counterLabel.getText());
+    }
+    
+    @Test
+    void processUIEventAsyncShouldReturnTheStageOfAsynchronousEvents() {
+        TestWindow window = new TestWindow();
+        AsyncLabel asyncLabel = new AsyncLabel();
+        window.getControls().add(asyncLabel);
+        
+        CompletableFuture<?> completion = window.processUIEventAsync(asyncLabel.getClientId(), "Load")
+                .toCompletableFuture();
+        
+        assertFalse(completion.isDone());
+        assertEquals("loading", asyncLabel.getText());
+        
+        asyncLabel.backEndResponse.complete("loaded");
+        
+        assertTrue(completion.isDone());
+        assertEquals("loading", asyncLabel.getText());
+        
+        window.runPendingTasks();
+        
+        assertEquals("loaded", asyncLabel.getText());
+    }
+    
+    @Test
+    void processUIEventAsyncShouldSupportTheNamingConvention() {
+        TestWindow window = new TestWindow();
+        AsyncLabel asyncLabel = new AsyncLabel();
+        window.getControls().add(asyncLabel);
+        
+        CompletableFuture<?> completion = window.processUIEventAsync(asyncLabel.getClientId(), "Fail")
+                .toCompletableFuture();
+        asyncLabel.backEndResponse.complete("failed");
+        
+        assertTrue(completion.isCompletedExceptionally());
+        assertTrue(window.processUIEventAsync(window.button.getClientId(), "Click").toCompletableFuture().isDone());
+    }
+    
+    @Test
+    void processUIEventShouldFailForUnknownEvents() {
+        TestWindow window = new TestWindow();
+        
+        assertThrows(GazeUIException.class, () -> window.processUIEvent(window.button.getClientId(), "Unknown"));
+        assertThrows(GazeUIException.class, () -> window.processUIEvent(window.label1.getClientId(), "Click"));
+        assertThrows(GazeUIException.class, () -> window.processUIEvent(window.button.getClientId(), null));
+    }
+    
+    @Test
+    void processUIEventShouldWrapTheExceptionsOfTheHandlers() {
+        TestWindow window = new TestWindow();
+        IllegalStateException handlerException = new IllegalStateException();
+        window.button.addOnClickHandler(e -> { throw handlerException; });
+        
+        GazeUIException ex = assertThrows(GazeUIException.class,
+                () -> window.processUIEvent(window.button.getClientId(), "Click"));
+        assertSame(handlerException, ex.getCause());
+    }
+    
+    @Test
+    void snapshotsShouldShareUnchangedControls() {
+        TestWindow window = new TestWindow();
+        WindowSnapshot snapshot1 = window.takeSnapshot();
+        WindowSnapshot snapshot2 = window.takeSnapshot();
+        
+        assertSame(snapshot1.getWindow(), snapshot2.getWindow());
+        
+        window.button.setText("changed");
+        WindowSnapshot snapshot3 = window.takeSnapshot();
+        
+        assertNotSame(snapshot2.getWindow(), snapshot3.getWindow());
+        assertSame(snapshot2.getWindow().getControls().get(0), snapshot3.getWindow().getControls().get(0));
+        assertNotSame(snapshot2.getWindow().getControls().get(1), snapshot3.getWindow().getControls().get(1));
+        
+        ContainerControl previousContainer2 = (ContainerControl)snapshot2.getWindow().getControls().get(1);
+        assertEquals("b1", ((Button)previousContainer2.getControls().get(0)).getText());
+    }
+    
+    @Test
+    void changeJournalShouldRestartAfterRender() {
+        TestWindow window = new TestWindow();
+        window.startChangeJournal();
+        
+        window.label1.setText("changed");
+        window.getChangeJournalRenderScript();
+        
+        assertEquals("", window.getChangeJournalRenderScript());
+        
+        Window previousWindow = window.clone();
+        window.label1.setText("changed again");
+        
+        assertEquals(window.getRenderScript(previousWindow), window.getChangeJournalRenderScript());
+    }
+    
+    @Test
+    void invokeLaterShouldNotifyTheListenerOncePerRun() throws InterruptedException {
+        TestWindow window = new TestWindow();
+        AtomicInteger notifications = new AtomicInteger();
+        window.setPendingTasksListener(notifications::incrementAndGet);
+        
+        Thread otherThread = new Thread(() -> {
+            window.invokeLater(() -> window.label1.setText("a"));
+            window.invokeLater(() -> window.label1.setText(window.label1.getText() + "b"));
+        });
+        otherThread.start();
+        otherThread.join();
+        
+        assertEquals(1, notifications.get());
+        assertTrue(window.hasPendingTasks());
+        assertEquals("l1", window.label1.getText());
+        
+        assertTrue(window.runPendingTasks());
+        assertEquals("ab", window.label1.getText());
+        assertFalse(window.hasPendingTasks());
+        assertFalse(window.runPendingTasks());
+        
+        window.invokeLater(() -> window.label1.setText("c"));
+        assertEquals(2, notifications.get());
+    }
+    
+    @Test
+    void clonesShouldNotShareThePendingTasks() {
+        TestWindow window = new TestWindow();
+        window.invokeLater(() -> window.label1.setText("changed"));
+        
+        Window previousWindow = window.clone();
+        window.runPendingTasks();
+        
+        assertEquals("changed", window.label1.getText());
+        assertEquals("l1", ((Label)previousWindow.findControlById(window.label1.getClientId())).getText());
+    }
+}
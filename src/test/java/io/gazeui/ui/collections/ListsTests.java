@@ -24,15 +24,18 @@
 
 package io.gazeui.ui.collections;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.function.Function;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -142,6 +145,102 @@ class ListsTests {
         assertTrue(result.isEmpty());
     }
     
+    @Test
+    void longestCommonSubsequenceCommonPrefixAndSuffix() {
+        List<String> list1 = Arrays.asList("A", "B", "X", "Y", "C", "D");
+        List<String> list2 = Arrays.asList("A", "B", "Y", "Z", "C", "D");
+        
+        // A zero budget forces the linear space algorithm for the elements between the prefix and the suffix
+        List<String> result = Lists.longestCommonSubsequence(list1, list2, genericEqualsComparator, 0);
+        assertIterableEquals(Arrays.asList("A", "B", "Y", "C", "D"), result);
+    }
+    
+    @Test
+    void longestCommonSubsequenceShouldNotDependOnMemoryBudget() {
+        // Fixed seed, so a failure can be reproduced
+        Random random = new Random(42);
+        
+        for (int i = 0; i < 500; i++) {
+            List<Integer> list1 = new ArrayList<>();
+            
+            for (int j = random.nextInt(80); j > 0; j--) {
+                list1.add(random.nextInt(10));
+            }
+            
+            List<Integer> list2 = new ArrayList<>(list1);
+            
+            // Half of the time the lists are similar, half of the time they are completely different
+            if (i % 2 == 0) {
+                for (int j = random.nextInt(5); j > 0 && !list2.isEmpty(); j--) {
+                    list2.remove(random.nextInt(list2.size()));
+                    list2.add(random.nextInt(list2.size() + 1), random.nextInt(10));
+                }
+            } else {
+                Collections.shuffle(list2, random);
+            }
+            
+            List<Integer> tabulationResult = Lists.longestCommonSubsequence(list1, list2,
+                    genericEqualsComparator, Long.MAX_VALUE);
+            
+            for (long memoryBudget : new long[] { 0, 256, 4096 }) {
+                List<Integer> result = Lists.longestCommonSubsequence(list1, list2, genericEqualsComparator,
+                        memoryBudget);
+                
+                assertEquals(tabulationResult.size(), result.size());
+                assertTrue(isSubsequence(result, list1));
+                assertTrue(isSubsequence(result, list2));
+            }
+        }
+    }
+    
+    private static <T> boolean isSubsequence(List<T> subsequence, List<T> list) {
+        int index = 0;
+        
+        for (T element : list) {
+            if (index < subsequence.size() && subsequence.get(index).equals(element)) {
+                index++;
+            }
+        }
+        
+        return index == subsequence.size();
+    }
+    
+    @Test
+    void longestIncreasingSubsequenceEmptyArray() {
+        assertArrayEquals(new int[0], Lists.longestIncreasingSubsequence(new int[0]));
+    }
+    
+    @Test
+    void longestIncreasingSubsequenceSortedArray() {
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, Lists.longestIncreasingSubsequence(new int[] { 3, 5, 8, 13 }));
+    }
+    
+    @Test
+    void longestIncreasingSubsequenceReversedArray() {
+        assertEquals(1, Lists.longestIncreasingSubsequence(new int[] { 4, 3, 2, 1 }).length);
+    }
+    
+    @Test
+    void longestIncreasingSubsequenceShuffledArray() {
+        int[] values = { 0, 8, 4, 12, 2, 10, 6, 14, 1, 9, 5, 13, 3, 11, 7, 15 };
+        int[] result = Lists.longestIncreasingSubsequence(values);
+        
+        assertEquals(6, result.length);
+        
+        for (int i = 1; i < result.length; i++) {
+            assertTrue(result[i - 1] < result[i]);
+            assertTrue(values[result[i - 1]] < values[result[i]]);
+        }
+    }
+    
+    @Test
+    void longestIncreasingSubsequenceShouldBeStrictlyIncreasing() {
+        int[] result = Lists.longestIncreasingSubsequence(new int[] { 1, 1, 1, 2 });
+        
+        assertEquals(2, result.length);
+        assertEquals(3, result[1]);
+    }
+    
     private static class DummyClass {
         private String fieldOne;
         private int fieldTwo;
@@ -26,6 +26,8 @@ package io.gazeui.ui.text;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+
 import org.junit.jupiter.api.Test;
 
 class StringsTests {
@@ -54,4 +56,22 @@ class StringsTests {
         assertFalse(Strings.isNullOrBlank(" t"));
         assertFalse(Strings.isNullOrBlank("          t          "));
     }
-}
\ No newline at end of file
+    
+    @Test
+    void appendHtmlEscapedShouldEscapeMarkupCharacters() throws IOException {
+        StringBuilder sbHtml = new StringBuilder();
+        
+        Strings.appendHtmlEscaped("<b title='x'>\"Tom\" & Jerry</b>", sbHtml);
+        
+        assertEquals("&lt;b title=&#39;x&#39;&gt;&quot;Tom&quot; &amp; Jerry&lt;/b&gt;", sbHtml.toString());
+    }
+    
+    @Test
+    void appendHtmlEscapedWithoutMarkupCharactersShouldAppendTheString() throws IOException {
+        StringBuilder sbHtml = new StringBuilder("a");
+        
+        Strings.appendHtmlEscaped("b c", sbHtml);
+        
+        assertEquals("ab c", sbHtml.toString());
+    }
+}